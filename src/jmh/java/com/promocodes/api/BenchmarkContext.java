@@ -0,0 +1,41 @@
+package com.promocodes.api;
+
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Starts the application without the web layer on a separate in-memory database, so every benchmark works on its
+// own data set. H2 result reuse is turned off, otherwise repeated read-only queries over unchanged tables are answered
+// from the previous result and measure nothing. Spring and Hibernate need long warmups to settle, especially on
+// machines with few cores.
+public class BenchmarkContext {
+
+    public static ConfigurableApplicationContext start(String databaseName) {
+        return run("--spring.datasource.url=jdbc:h2:mem:" + databaseName + ";DB_CLOSE_DELAY=-1;OPTIMIZE_REUSE_RESULTS=FALSE");
+    }
+
+    // Same on the durable profile, with the database kept in target/benchmark-data between runs, for data sets that
+    // take long to insert.
+    public static ConfigurableApplicationContext startOnFile(String databaseName) {
+        return run(
+                "--spring.profiles.active=durable",
+                "--promocodes.data-dir=./target/benchmark-data/" + databaseName,
+                "--promocodes.h2-settings=;CACHE_SIZE=131072;DB_CLOSE_ON_EXIT=FALSE;OPTIMIZE_REUSE_RESULTS=FALSE"
+        );
+    }
+
+    private static ConfigurableApplicationContext run(String... args) {
+        List<String> allArgs = new ArrayList<>(List.of(args));
+        allArgs.add("--logging.level.root=WARN");
+
+        return new SpringApplicationBuilder(ApiApplication.class)
+                .web(WebApplicationType.NONE)
+                .bannerMode(Banner.Mode.OFF)
+                .logStartupInfo(false)
+                .run(allArgs.toArray(String[]::new));
+    }
+}
@@ -0,0 +1,78 @@
+package com.promocodes.api;
+
+import com.promocodes.api.product.Product;
+import com.promocodes.api.product.dto.ProductDtoMapper;
+import com.promocodes.api.product.dto.ProductOutputDto;
+import com.promocodes.api.promocode.CodeType;
+import com.promocodes.api.promocode.PromoCode;
+import com.promocodes.api.promocode.dto.PromoCodeDtoMapper;
+import com.promocodes.api.promocode.dto.PromoCodeOutputDto;
+import com.promocodes.api.purchase.PurchaseItem;
+import com.promocodes.api.purchase.PurchaseOutcome;
+import com.promocodes.api.purchase.dto.CurrencySalesReportDto;
+import com.promocodes.api.purchase.dto.PurchaseBatchOutputDto;
+import com.promocodes.api.purchase.dto.PurchaseDtoMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DtoMapperBenchmark {
+
+    private Product product;
+    private PromoCode promoCode;
+    private List<PurchaseItem> items;
+    private List<PurchaseOutcome> outcomes;
+
+    @Setup
+    public void setUp() {
+        product = Product.builder()
+                .productId(UUID.randomUUID())
+                .name("Water")
+                .description("Still mineral water")
+                .price(new BigDecimal("5.00"))
+                .currency("PLN")
+                .build();
+        promoCode = PromoCode.builder()
+                .code("Summer2024")
+                .expireDate(LocalDate.now().plusYears(2))
+                .maxUsages(100)
+                .totalUsages(10)
+                .amount(new BigDecimal("1.25"))
+                .currency("PLN")
+                .codeType(CodeType.QUANTITATIVE)
+                .build();
+        items = Collections.nCopies(100, new PurchaseItem(product.getProductId(), promoCode.getCode()));
+        outcomes = Collections.nCopies(100, PurchaseOutcome.created(5_00, 1_25, null));
+    }
+
+    @Benchmark
+    public ProductOutputDto mapProductToProductOutputDto() {
+        return ProductDtoMapper.mapProductToProductOutputDto(product);
+    }
+
+    @Benchmark
+    public PromoCodeOutputDto mapPromoCodeToPromoCodeOutputDto() {
+        return PromoCodeDtoMapper.mapPromoCodeToPromoCodeOutputDto(promoCode);
+    }
+
+    @Benchmark
+    public CurrencySalesReportDto mapLedgerRowToCurrencySalesReportDto() {
+        return new CurrencySalesReportDto("PLN", 12345_67L, 234_50L, 1000L);
+    }
+
+    @Benchmark
+    public PurchaseBatchOutputDto mapPurchaseOutcomesToPurchaseBatchOutputDto() {
+        return PurchaseDtoMapper.mapPurchaseOutcomesToPurchaseBatchOutputDto(items, outcomes);
+    }
+}
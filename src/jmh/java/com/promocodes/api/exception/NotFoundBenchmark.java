@@ -0,0 +1,67 @@
+package com.promocodes.api.exception;
+
+import com.promocodes.api.BenchmarkContext;
+import com.promocodes.api.exception.advice.ApplicationExceptionHandler;
+import com.promocodes.api.product.Product;
+import com.promocodes.api.product.ProductService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.ProblemDetail;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// Price lookup with an unknown promo code, from the service call to the ProblemDetail of the 404 response. The promo
+// code filter rejects the code without a database lookup, so what is left is mostly the exception itself. Requests
+// reach the service about a hundred frames deep in Tomcat, filters and Spring MVC, which stackDepth stands in for.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 10, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NotFoundBenchmark {
+
+    @Param({"0", "100"})
+    private int stackDepth;
+
+    private ConfigurableApplicationContext context;
+    private ProductService productService;
+    private ApplicationExceptionHandler exceptionHandler;
+    private UUID productId;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.start("not-found-" + stackDepth);
+        productService = context.getBean(ProductService.class);
+        exceptionHandler = context.getBean(ApplicationExceptionHandler.class);
+        productId = productService.addProduct(Product.builder()
+                .name("Water")
+                .price(new BigDecimal("5.00"))
+                .currency("PLN")
+                .build()).getProductId();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public ProblemDetail getProductDiscountPriceForUnknownCode() {
+        return call(stackDepth);
+    }
+
+    private ProblemDetail call(int depth) {
+        if (depth > 0)
+            return call(depth - 1);
+
+        try {
+            productService.getProductDiscountPrice(productId, "Unknown2024");
+            throw new IllegalStateException("Unknown promo code was found");
+        } catch (ObjectNotFoundException e) {
+            return exceptionHandler.handleObjectNotFound(e);
+        }
+    }
+}
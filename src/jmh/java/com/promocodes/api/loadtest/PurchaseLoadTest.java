@@ -0,0 +1,130 @@
+package com.promocodes.api.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Closed-loop load test of POST /api/purchases against a running application: every client sends the next purchase
+// as soon as the previous one is answered. Only requests completed in the measured period are counted, with their
+// full latency, including time spent queued before it.
+//
+// Arguments: base URL, number of clients, warmup seconds, measured seconds.
+public class PurchaseLoadTest {
+
+    private static final Pattern PRODUCT_ID = Pattern.compile("\"productId\"\\s*:\\s*\"([^\"]+)\"");
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = args.length > 0 ? args[0] : "http://localhost:8080";
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+        int warmupSeconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        int measuredSeconds = args.length > 3 ? Integer.parseInt(args[3]) : 30;
+
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(30))
+                .build();
+
+        String suffix = Long.toString(System.currentTimeMillis(), 36).toUpperCase();
+        String productId = createProduct(httpClient, baseUrl, "LoadTest" + suffix);
+        String code = "LOAD" + suffix;
+        createPromoCode(httpClient, baseUrl, code);
+
+        HttpRequest purchase = HttpRequest.newBuilder(URI.create(baseUrl + "/api/purchases?productId=" + productId + "&code=" + code))
+                .timeout(Duration.ofMinutes(2))
+                .POST(HttpRequest.BodyPublishers.noBody())
+                .build();
+
+        long measureFrom = System.nanoTime() + Duration.ofSeconds(warmupSeconds).toNanos();
+        long measureTo = measureFrom + Duration.ofSeconds(measuredSeconds).toNanos();
+        ConcurrentLinkedQueue<long[]> latencies = new ConcurrentLinkedQueue<>();
+        LongAdder errors = new LongAdder();
+
+        System.out.printf("Running %d clients against %s, %ds warmup, %ds measured%n", clients, baseUrl, warmupSeconds, measuredSeconds);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < clients; i++) {
+                executor.submit(() -> {
+                    long[] clientLatencies = new long[64];
+                    int count = 0;
+                    long start;
+
+                    while ((start = System.nanoTime()) < measureTo) {
+                        boolean failed;
+                        try {
+                            failed = httpClient.send(purchase, HttpResponse.BodyHandlers.discarding()).statusCode() != 201;
+                        } catch (Exception e) {
+                            failed = true;
+                        }
+                        long end = System.nanoTime();
+
+                        if (end < measureFrom || end > measureTo)
+                            continue;
+                        if (failed)
+                            errors.increment();
+                        if (count == clientLatencies.length)
+                            clientLatencies = Arrays.copyOf(clientLatencies, count * 2);
+                        clientLatencies[count++] = end - start;
+                    }
+                    latencies.add(Arrays.copyOf(clientLatencies, count));
+                });
+            }
+        }
+
+        long[] all = latencies.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+
+        if (all.length == 0) {
+            System.out.println("No requests completed in the measured period");
+            return;
+        }
+
+        System.out.printf("requests: %d, errors: %d, throughput: %.1f req/s%n",
+                all.length, errors.sum(), all.length / (double) measuredSeconds);
+        System.out.printf("latency ms - p50: %.1f, p90: %.1f, p99: %.1f, max: %.1f%n",
+                percentile(all, 0.50), percentile(all, 0.90), percentile(all, 0.99), all[all.length - 1] / 1e6);
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(index, 0)] / 1e6;
+    }
+
+    private static String createProduct(HttpClient httpClient, String baseUrl, String name) throws Exception {
+        String body = post(httpClient, baseUrl + "/api/products",
+                "{\"name\":\"" + name + "\",\"price\":\"5.00\",\"currency\":\"PLN\"}");
+        Matcher matcher = PRODUCT_ID.matcher(body);
+
+        if (!matcher.find())
+            throw new IllegalStateException("Could not create product: " + body);
+
+        return matcher.group(1);
+    }
+
+    private static void createPromoCode(HttpClient httpClient, String baseUrl, String code) throws Exception {
+        post(httpClient, baseUrl + "/api/codes",
+                "{\"code\":\"" + code + "\",\"expireDate\":\"" + LocalDate.now().plusYears(1) + "\"," +
+                "\"maxUsages\":" + Long.MAX_VALUE + ",\"amount\":\"1.00\",\"currency\":\"PLN\",\"codeType\":\"QUANTITATIVE\"}");
+    }
+
+    private static String post(HttpClient httpClient, String url, String json) throws Exception {
+        HttpResponse<String> response = httpClient.send(HttpRequest.newBuilder(URI.create(url))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build(), HttpResponse.BodyHandlers.ofString());
+
+        if (response.statusCode() != 201)
+            throw new IllegalStateException("POST " + url + " returned " + response.statusCode() + ": " + response.body());
+
+        return response.body();
+    }
+}
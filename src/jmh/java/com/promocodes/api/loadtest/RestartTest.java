@@ -0,0 +1,200 @@
+package com.promocodes.api.loadtest;
+
+import java.io.File;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Measures restart-to-first-request time of the application on the durable profile: the time from launching a new
+// JVM with the application jar until GET /api/products/{id}?code= answers 200. On first use the data directory is
+// filled with products, promo codes and the given number of purchases, later runs reuse it. The first start is not
+// measured, it warms up the OS file cache and lets the JVM write its class data archive when asked to. Every restart
+// is stopped gracefully, as a deployment would, and shutdown time is reported too.
+//
+// Arguments: application jar, data directory, number of purchases, number of restarts, then any extra arguments:
+// --name=value ones are passed to the application, the rest (e.g. -XX:TieredStopAtLevel=1) to the JVM.
+public class RestartTest {
+
+    private static final int PORT = 18080;
+    private static final int CHUNK_SIZE = 250_000;
+
+    public static void main(String[] args) throws Exception {
+        Path jar = Path.of(args.length > 0 ? args[0] : "target/api-0.0.1-SNAPSHOT.jar").toAbsolutePath();
+        Path dataDir = Path.of(args.length > 1 ? args[1] : "target/restart-data").toAbsolutePath();
+        long purchases = args.length > 2 ? Long.parseLong(args[2]) : 10_000_000;
+        int restarts = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+        List<String> extraArgs = args.length > 4 ? Arrays.asList(args).subList(4, args.length) : List.of();
+        List<String> jvmArgs = extraArgs.stream().filter(arg -> !arg.startsWith("--")).toList();
+        List<String> appArgs = extraArgs.stream().filter(arg -> arg.startsWith("--")).toList();
+
+        HttpClient httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(1))
+                .build();
+
+        if (!Files.exists(dataDir.resolve("promocodes.mv.db"))) {
+            System.out.printf("Creating schema in %s%n", dataDir);
+            Process process = start(jar, dataDir, jvmArgs, appArgs, dataDir.resolve("schema.log"));
+            waitForFirstRequest(httpClient, "/api/codes?limit=1", process);
+            stop(process);
+
+            System.out.printf("Seeding %d purchases%n", purchases);
+            seed(dataDir, purchases);
+        }
+
+        System.out.printf("Database size %d MB%n", Files.size(dataDir.resolve("promocodes.mv.db")) / (1 << 20));
+
+        String firstRequest = "/api/products/" + productId(dataDir) + "?code=CODE1";
+
+        Process warmup = start(jar, dataDir, jvmArgs, appArgs, dataDir.resolve("restart-0.log"));
+        waitForFirstRequest(httpClient, firstRequest, warmup);
+        stop(warmup);
+
+        List<Long> startTimes = new ArrayList<>();
+        List<Long> stopTimes = new ArrayList<>();
+
+        for (int i = 1; i <= restarts; i++) {
+            long start = System.nanoTime();
+            Process process = start(jar, dataDir, jvmArgs, appArgs, dataDir.resolve("restart-" + i + ".log"));
+            waitForFirstRequest(httpClient, firstRequest, process);
+            long started = System.nanoTime();
+            stop(process);
+            long stopped = System.nanoTime();
+
+            startTimes.add(TimeUnit.NANOSECONDS.toMillis(started - start));
+            stopTimes.add(TimeUnit.NANOSECONDS.toMillis(stopped - started));
+            System.out.printf("Restart %d: first request after %d ms, stopped in %d ms%n",
+                    i, startTimes.get(i - 1), stopTimes.get(i - 1));
+        }
+
+        System.out.printf("Restart to first request (ms): min %d, median %d, max %d%n",
+                min(startTimes), median(startTimes), max(startTimes));
+        System.out.printf("Shutdown (ms): min %d, median %d, max %d%n", min(stopTimes), median(stopTimes), max(stopTimes));
+    }
+
+    private static Process start(Path jar, Path dataDir, List<String> jvmArgs, List<String> appArgs, Path log)
+            throws Exception {
+        Files.createDirectories(dataDir);
+
+        List<String> command = new ArrayList<>();
+        command.add(ProcessHandle.current().info().command().orElse("java"));
+        command.addAll(jvmArgs);
+        command.addAll(List.of(
+                "-jar", jar.toString(),
+                "--spring.profiles.active=durable",
+                "--promocodes.data-dir=" + dataDir,
+                "--server.port=" + PORT
+        ));
+        command.addAll(appArgs);
+
+        return new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile())
+                .start();
+    }
+
+    private static void waitForFirstRequest(HttpClient httpClient, String path, Process process) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + PORT + path))
+                .timeout(Duration.ofSeconds(10))
+                .build();
+        long deadline = System.nanoTime() + Duration.ofMinutes(5).toNanos();
+
+        while (System.nanoTime() < deadline) {
+            if (!process.isAlive())
+                throw new IllegalStateException("Application exited with code " + process.exitValue());
+
+            try {
+                if (httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200)
+                    return;
+            } catch (Exception e) {
+                // not listening yet
+            }
+            Thread.sleep(10);
+        }
+
+        process.destroyForcibly();
+        throw new IllegalStateException("Application did not answer " + path + " in time");
+    }
+
+    private static void stop(Process process) throws Exception {
+        process.destroy();
+
+        if (!process.waitFor(2, TimeUnit.MINUTES)) {
+            process.destroyForcibly();
+            throw new IllegalStateException("Application did not stop in time");
+        }
+    }
+
+    // Three products, one per currency, a thousand promo codes and purchases spread over the last year. Inserted in
+    // chunks so that H2 does not keep the undo log of the whole data set in memory, with a large page cache for the
+    // random purchase ids and old pages freed at once. The file is compacted at the end, as it would be after a
+    // long time in service.
+    private static void seed(Path dataDir, long purchases) throws Exception {
+        try (Connection connection = connect(dataDir, ";CACHE_SIZE=524288;RETENTION_TIME=0");
+             Statement statement = connection.createStatement()) {
+            statement.execute("INSERT INTO product (product_id, name, price, currency) " +
+                    "VALUES (RANDOM_UUID(), 'Water', 500, 'PLN'), " +
+                    "(RANDOM_UUID(), 'Coffee', 350, 'EUR'), " +
+                    "(RANDOM_UUID(), 'Tea', 275, 'USD')");
+            statement.execute("INSERT INTO promo_code (code, expire_date, max_usages, total_usages, amount, currency, code_type) " +
+                    "SELECT 'CODE' || X, DATE '2099-12-31', 1000000000, 0, 1000, " +
+                    "CASE MOD(X, 3) WHEN 0 THEN 'PLN' WHEN 1 THEN 'EUR' ELSE 'USD' END, 'PERCENTAGE' " +
+                    "FROM SYSTEM_RANGE(1, 1000)");
+            statement.execute("CREATE LOCAL TEMPORARY TABLE seed_product AS " +
+                    "SELECT ROW_NUMBER() OVER (ORDER BY name) - 1 AS n, product_id, price, currency FROM product");
+
+            for (long from = 1; from <= purchases; from += CHUNK_SIZE) {
+                long to = Math.min(from + CHUNK_SIZE - 1, purchases);
+                statement.execute("INSERT INTO purchase " +
+                        "(purchase_id, \"TIMESTAMP\", regular_price, discount, product_id, currency, code, redeemed) " +
+                        "SELECT RANDOM_UUID(), DATEADD(SECOND, -MOD(X * 7919, 31536000), LOCALTIMESTAMP), p.price, " +
+                        "CASE WHEN MOD(X, 4) = 0 THEN p.price / 10 ELSE 0 END, p.product_id, p.currency, " +
+                        "CASE WHEN MOD(X, 4) = 0 THEN 'CODE' || (MOD(X / 4, 1000) + 1) END, MOD(X, 4) = 0 " +
+                        "FROM SYSTEM_RANGE(" + from + ", " + to + ") JOIN seed_product p ON p.n = MOD(X, 3)");
+                System.out.printf("  %d purchases%n", to);
+            }
+
+            statement.execute("DELETE FROM sales_ledger_entry");
+            statement.execute("INSERT INTO sales_ledger_entry (currency, total_amount, total_discount, no_of_purchases) " +
+                    "SELECT currency, SUM(regular_price - discount), SUM(discount), COUNT(*) " +
+                    "FROM purchase GROUP BY currency");
+            statement.execute("SHUTDOWN COMPACT");
+        }
+    }
+
+    private static String productId(Path dataDir) throws Exception {
+        try (Connection connection = connect(dataDir, "");
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT product_id FROM product WHERE currency = 'EUR' LIMIT 1")) {
+            resultSet.next();
+            return resultSet.getString(1);
+        }
+    }
+
+    private static Connection connect(Path dataDir, String settings) throws Exception {
+        return DriverManager.getConnection("jdbc:h2:file:" + dataDir + File.separator + "promocodes" + settings, "sa", "password");
+    }
+
+    private static long min(List<Long> values) {
+        return values.stream().mapToLong(Long::longValue).min().orElse(0);
+    }
+
+    private static long max(List<Long> values) {
+        return values.stream().mapToLong(Long::longValue).max().orElse(0);
+    }
+
+    private static long median(List<Long> values) {
+        return values.stream().sorted().toList().get(values.size() / 2);
+    }
+}
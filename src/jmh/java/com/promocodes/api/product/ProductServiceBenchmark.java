@@ -0,0 +1,88 @@
+package com.promocodes.api.product;
+
+import com.promocodes.api.BenchmarkContext;
+import com.promocodes.api.exception.ObjectNotFoundException;
+import com.promocodes.api.promocode.CodeType;
+import com.promocodes.api.promocode.PromoCode;
+import com.promocodes.api.promocode.PromoCodeService;
+import com.promocodes.api.promocode.PromoCodeSnapshot;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 10, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductServiceBenchmark {
+
+    @Param({"QUANTITATIVE", "PERCENTAGE"})
+    private CodeType codeType;
+
+    private ConfigurableApplicationContext context;
+    private ProductService productService;
+    private PriceQuoteEngine priceQuoteEngine;
+    private LocalDate today;
+    private UUID productId;
+    private String code;
+    private ProductSnapshot productSnapshot;
+    private PromoCodeSnapshot promoCodeSnapshot;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.start("product-service-" + codeType);
+        productService = context.getBean(ProductService.class);
+        priceQuoteEngine = context.getBean(PriceQuoteEngine.class);
+        today = LocalDate.now();
+
+        Product product = productService.addProduct(Product.builder()
+                .name("Water")
+                .price(new BigDecimal("5.00"))
+                .currency("PLN")
+                .build());
+        PromoCode promoCode = context.getBean(PromoCodeService.class).addPromoCode(PromoCode.builder()
+                .code("Summer2024")
+                .expireDate(LocalDate.now().plusYears(2))
+                .maxUsages(Long.MAX_VALUE)
+                .amount(new BigDecimal("12.50"))
+                .currency("PLN")
+                .codeType(codeType)
+                .build());
+
+        productId = product.getProductId();
+        code = promoCode.getCode();
+        productSnapshot = ProductSnapshot.of(product);
+        promoCodeSnapshot = PromoCodeSnapshot.of(promoCode);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public PriceQuote getProductDiscountPrice() {
+        return productService.getProductDiscountPrice(productId, code);
+    }
+
+    // rejected by the promo code filter, without a database lookup
+    @Benchmark
+    public Object getProductDiscountPriceForUnknownCode() {
+        try {
+            return productService.getProductDiscountPrice(productId, "Unknown2024");
+        } catch (ObjectNotFoundException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public PriceQuote quote() {
+        return priceQuoteEngine.quote(productSnapshot, promoCodeSnapshot, 0, today);
+    }
+}
@@ -0,0 +1,79 @@
+package com.promocodes.api.purchase;
+
+import com.promocodes.api.BenchmarkContext;
+import com.promocodes.api.product.Product;
+import com.promocodes.api.product.ProductService;
+import com.promocodes.api.promocode.CodeType;
+import com.promocodes.api.promocode.PromoCode;
+import com.promocodes.api.promocode.PromoCodeService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 10, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AddPurchaseBenchmark {
+
+    private static final int BATCH_SIZE = 100;
+
+    private ConfigurableApplicationContext context;
+    private PurchaseService purchaseService;
+    private UUID productId;
+    private String code;
+    private List<PurchaseItem> batch;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.start("add-purchase");
+        purchaseService = context.getBean(PurchaseService.class);
+
+        Product product = context.getBean(ProductService.class).addProduct(Product.builder()
+                .name("Water")
+                .price(new BigDecimal("5.00"))
+                .currency("PLN")
+                .build());
+        PromoCode promoCode = context.getBean(PromoCodeService.class).addPromoCode(PromoCode.builder()
+                .code("Summer2024")
+                .expireDate(LocalDate.now().plusYears(2))
+                .maxUsages(Long.MAX_VALUE)
+                .amount(new BigDecimal("1.25"))
+                .currency("PLN")
+                .codeType(CodeType.QUANTITATIVE)
+                .build());
+
+        productId = product.getProductId();
+        code = promoCode.getCode();
+        batch = Collections.nCopies(BATCH_SIZE, new PurchaseItem(productId, code));
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void addPurchaseWithoutPromoCode() {
+        purchaseService.addPurchase(productId, null);
+    }
+
+    @Benchmark
+    public void addPurchaseWithPromoCode() {
+        purchaseService.addPurchase(productId, code);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public List<PurchaseOutcome> addPurchasesInBatch() {
+        return purchaseService.addPurchases(batch);
+    }
+}
@@ -0,0 +1,88 @@
+package com.promocodes.api.purchase;
+
+import com.promocodes.api.BenchmarkContext;
+import com.promocodes.api.metrics.QueryCounter;
+import jakarta.persistence.EntityManager;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Loading a day of purchases, about 2700 of 1M bought from a thousand products, as managed entities and as
+// summaries. Run with -prof gc for the allocated bytes per load, the number of SQL statements of each load is printed
+// before the warmup.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PurchaseLoadBenchmark {
+
+    private static final LocalDateTime DAY = LocalDateTime.of(2024, 7, 1, 0, 0);
+    private static final int PRODUCTS = 1000;
+
+    @Param({"1000000"})
+    private int purchases;
+
+    private ConfigurableApplicationContext context;
+    private PurchaseRepository purchaseRepository;
+    private EntityManager entityManager;
+    private TransactionTemplate transactionTemplate;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.start("purchase-loads-" + purchases);
+        purchaseRepository = context.getBean(PurchaseRepository.class);
+        entityManager = context.getBean(EntityManager.class);
+        transactionTemplate = new TransactionTemplate(context.getBean(TransactionTemplate.class).getTransactionManager());
+        transactionTemplate.setReadOnly(true);
+
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        jdbcTemplate.update("INSERT INTO product (product_id, name, price, currency) " +
+                "SELECT RANDOM_UUID(), 'Product' || X, 100 + X, CASE MOD(X, 3) WHEN 0 THEN 'PLN' WHEN 1 THEN 'EUR' ELSE 'USD' END " +
+                "FROM SYSTEM_RANGE(1, ?)", PRODUCTS);
+        jdbcTemplate.execute("CREATE TABLE seed_product AS " +
+                "SELECT ROW_NUMBER() OVER (ORDER BY name) - 1 AS n, product_id, price, currency FROM product");
+        jdbcTemplate.update("INSERT INTO purchase " +
+                "(purchase_id, \"TIMESTAMP\", regular_price, discount, product_id, currency, redeemed) " +
+                "SELECT RANDOM_UUID(), DATEADD(SECOND, MOD(X * 7919, 31536000), TIMESTAMP '2024-01-01 00:00:00'), " +
+                "p.price, 0, p.product_id, p.currency, FALSE " +
+                "FROM SYSTEM_RANGE(1, ?) JOIN seed_product p ON p.n = MOD(X, ?)", purchases, PRODUCTS);
+        jdbcTemplate.execute("DROP TABLE seed_product");
+
+        QueryCounter.start();
+        int loaded = loadPurchasesForDay().size();
+        int entityStatements = QueryCounter.stop();
+        QueryCounter.start();
+        loadPurchaseSummariesForDay();
+        int summaryStatements = QueryCounter.stop();
+
+        System.out.printf("%n%d purchases loaded with %d statements as entities and %d as summaries%n",
+                loaded, entityStatements, summaryStatements);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Purchase> loadPurchasesForDay() {
+        return transactionTemplate.execute(status -> entityManager.createQuery(
+                        "SELECT p FROM Purchase p WHERE p.timestamp >= :from AND p.timestamp < :to", Purchase.class)
+                .setParameter("from", DAY)
+                .setParameter("to", DAY.plusDays(1))
+                .getResultList());
+    }
+
+    @Benchmark
+    public List<PurchaseSummary> loadPurchaseSummariesForDay() {
+        return purchaseRepository.findAllInTimeRange(DAY, DAY.plusDays(1), Limit.unlimited());
+    }
+}
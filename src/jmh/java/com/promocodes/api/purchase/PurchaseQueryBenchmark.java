@@ -0,0 +1,147 @@
+package com.promocodes.api.purchase;
+
+import com.promocodes.api.BenchmarkContext;
+import com.promocodes.api.purchase.dto.CurrencySalesReportDto;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// Time-ranged and per-code purchase queries over a year of purchases. The data set is inserted on the first run and
+// kept in target/benchmark-data, which can take half an hour for 10M purchases.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 10, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PurchaseQueryBenchmark {
+
+    private static final String DATABASE_NAME = "purchase-queries-";
+    private static final LocalDateTime YEAR_START = LocalDateTime.of(2024, 1, 1, 0, 0);
+    private static final LocalDateTime HOUR = YEAR_START.plusDays(200).plusHours(12);
+    private static final LocalDateTime MONTH = YEAR_START.plusMonths(6);
+    private static final int CHUNK_SIZE = 250_000;
+    private static final Limit PAGE = Limit.of(100);
+    // same as declared on Purchase
+    private static final Map<String, String> INDEXES = Map.of(
+            "idx_purchase_timestamp", "\"TIMESTAMP\"",
+            "idx_purchase_product_timestamp", "product_id, \"TIMESTAMP\"",
+            "idx_purchase_currency_timestamp", "currency, \"TIMESTAMP\"",
+            "idx_purchase_code_sales", "code, \"TIMESTAMP\", redeemed, discount, regular_price"
+    );
+
+    @Param({"10000000"})
+    private int purchases;
+
+    private ConfigurableApplicationContext context;
+    private PurchaseRepository purchaseRepository;
+    private JdbcTemplate jdbcTemplate;
+    private UUID productId;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.startOnFile(DATABASE_NAME + purchases);
+        purchaseRepository = context.getBean(PurchaseRepository.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+
+        if (purchaseRepository.count() != purchases) {
+            insertPurchases();
+
+            // Otherwise H2 keeps compacting the file in the background during the measurement.
+            jdbcTemplate.execute("SHUTDOWN COMPACT");
+            context.close();
+
+            context = BenchmarkContext.startOnFile(DATABASE_NAME + purchases);
+            purchaseRepository = context.getBean(PurchaseRepository.class);
+            jdbcTemplate = context.getBean(JdbcTemplate.class);
+        }
+
+        productId = jdbcTemplate.queryForObject("SELECT product_id FROM product WHERE name = 'Coffee'", UUID.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<PurchaseSummary> findAllInHour() {
+        return purchaseRepository.findAllInTimeRange(HOUR, HOUR.plusHours(1), PAGE);
+    }
+
+    @Benchmark
+    public List<PurchaseSummary> findAllByProductInHour() {
+        return purchaseRepository.findAllByProductInTimeRange(productId, HOUR, HOUR.plusHours(1), PAGE);
+    }
+
+    @Benchmark
+    public List<PurchaseSummary> findAllByCurrencyInHour() {
+        return purchaseRepository.findAllByCurrencyInTimeRange("EUR", HOUR, HOUR.plusHours(1), PAGE);
+    }
+
+    @Benchmark
+    public List<PurchaseSummary> findAllByCodeInMonth() {
+        return purchaseRepository.findAllByCodeInTimeRange("CODE1", MONTH, MONTH.plusMonths(1), PAGE);
+    }
+
+    @Benchmark
+    public long countByCodeInMonth() {
+        return purchaseRepository.countByCodeInTimeRange("CODE1", MONTH, MONTH.plusMonths(1));
+    }
+
+    @Benchmark
+    public List<PromoCodeSales> getPromoCodeSalesByHourForYear() {
+        return purchaseRepository.getPromoCodeSalesByHour("CODE1", YEAR_START, YEAR_START.plusYears(1));
+    }
+
+    @Benchmark
+    public List<CurrencySalesReportDto> getCurrencySalesReportForHour() {
+        return purchaseRepository.getCurrencySalesReport(HOUR, HOUR.plusHours(1));
+    }
+
+    // The same count as a full scan, which is what every such query cost before the purchase table had indexes.
+    @Benchmark
+    public Long countByCodeInMonthWithoutIndex() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM purchase USE INDEX () " +
+                        "WHERE code = ? AND \"TIMESTAMP\" >= ? AND \"TIMESTAMP\" < ?",
+                Long.class, "CODE1", MONTH, MONTH.plusMonths(1));
+    }
+
+    // Three products, one per currency, and purchases spread evenly over 2024. Every fourth one is made with one of
+    // a thousand promo codes. Secondary indexes are dropped while inserting and built once at the end, otherwise
+    // every chunk updates four more B-trees at random positions.
+    private void insertPurchases() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS seed_product");
+        jdbcTemplate.execute("DELETE FROM purchase");
+        jdbcTemplate.execute("DELETE FROM product");
+        INDEXES.keySet().forEach(index -> jdbcTemplate.execute("DROP INDEX IF EXISTS " + index));
+
+        jdbcTemplate.execute("INSERT INTO product (product_id, name, price, currency) " +
+                "VALUES (RANDOM_UUID(), 'Water', 500, 'PLN'), " +
+                "(RANDOM_UUID(), 'Coffee', 350, 'EUR'), " +
+                "(RANDOM_UUID(), 'Tea', 275, 'USD')");
+        jdbcTemplate.execute("CREATE TABLE seed_product AS " +
+                "SELECT ROW_NUMBER() OVER (ORDER BY name) - 1 AS n, product_id, price, currency FROM product");
+
+        for (long from = 1; from <= purchases; from += CHUNK_SIZE) {
+            long to = Math.min(from + CHUNK_SIZE - 1, purchases);
+            jdbcTemplate.execute("INSERT INTO purchase " +
+                    "(purchase_id, \"TIMESTAMP\", regular_price, discount, product_id, currency, code, redeemed) " +
+                    "SELECT RANDOM_UUID(), DATEADD(SECOND, MOD(X * 7919, 31536000), TIMESTAMP '2024-01-01 00:00:00'), " +
+                    "p.price, CASE WHEN MOD(X, 4) = 0 THEN p.price / 10 ELSE 0 END, p.product_id, p.currency, " +
+                    "CASE WHEN MOD(X, 4) = 0 THEN 'CODE' || (MOD(X / 4, 1000) + 1) END, MOD(X, 4) = 0 " +
+                    "FROM SYSTEM_RANGE(" + from + ", " + to + ") JOIN seed_product p ON p.n = MOD(X, 3)");
+        }
+
+        jdbcTemplate.execute("DROP TABLE seed_product");
+        INDEXES.forEach((index, columns) -> jdbcTemplate.execute("CREATE INDEX " + index + " ON purchase (" + columns + ")"));
+        context.getBean(SalesLedgerService.class).rebuildFromPurchases();
+    }
+}
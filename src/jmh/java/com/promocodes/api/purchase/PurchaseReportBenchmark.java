@@ -0,0 +1,100 @@
+package com.promocodes.api.purchase;
+
+import com.promocodes.api.BenchmarkContext;
+import com.promocodes.api.product.Product;
+import com.promocodes.api.product.ProductService;
+import com.promocodes.api.purchase.dto.CurrencySalesReportDto;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 10, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PurchaseReportBenchmark {
+
+    @Param({"10000", "1000000"})
+    private int purchases;
+
+    private ConfigurableApplicationContext context;
+    private PurchaseService purchaseService;
+    private PurchaseRepository purchaseRepository;
+    private JdbcTemplate jdbcTemplate;
+    private LocalDateTime yearAgo;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.start("purchase-report-" + purchases);
+        purchaseService = context.getBean(PurchaseService.class);
+        purchaseRepository = context.getBean(PurchaseRepository.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        yearAgo = LocalDateTime.now().minusYears(1);
+
+        ProductService productService = context.getBean(ProductService.class);
+        Product water = productService.addProduct(product("Water", "PLN"));
+        Product coffee = productService.addProduct(product("Coffee", "EUR"));
+        Product tea = productService.addProduct(product("Tea", "USD"));
+
+        jdbcTemplate.update(
+                "INSERT INTO purchase (purchase_id, \"TIMESTAMP\", regular_price, discount, product_id, currency, redeemed) " +
+                "SELECT RANDOM_UUID(), DATEADD(SECOND, -MOD(X * 7919, 31536000), LOCALTIMESTAMP), 500, CASE WHEN MOD(X, 4) = 0 THEN 125 ELSE 0 END, " +
+                "CASE MOD(X, 3) WHEN 0 THEN ? WHEN 1 THEN ? ELSE ? END, " +
+                "CASE MOD(X, 3) WHEN 0 THEN 'PLN' WHEN 1 THEN 'EUR' ELSE 'USD' END, FALSE " +
+                "FROM SYSTEM_RANGE(1, ?)",
+                water.getProductId(), coffee.getProductId(), tea.getProductId(), purchases
+        );
+        context.getBean(SalesLedgerService.class).rebuildFromPurchases();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<CurrencySalesReportDto> getPurchaseReport() {
+        return purchaseService.getPurchaseReport();
+    }
+
+    // What the report cost before it was served from the ledger.
+    @Benchmark
+    public List<CurrencySalesReportDto> aggregatePurchases() {
+        return purchaseRepository.getCurrencySalesReport();
+    }
+
+    @Benchmark
+    public List<CurrencySales> getPurchaseReportForYearByDay() {
+        return purchaseService.getPurchaseReport(yearAgo, yearAgo.plusYears(1), ReportBucket.DAY);
+    }
+
+    @Benchmark
+    public List<CurrencySales> getPurchaseReportForYearByMonth() {
+        return purchaseService.getPurchaseReport(yearAgo, yearAgo.plusYears(1), ReportBucket.MONTH);
+    }
+
+    // The daily report aggregated from purchases, as it would be without rollups.
+    @Benchmark
+    public List<Map<String, Object>> aggregatePurchasesForYearByDay() {
+        return jdbcTemplate.queryForList("SELECT currency, DATE_TRUNC('DAY', \"TIMESTAMP\") d, " +
+                "SUM(regular_price - discount), SUM(discount), COUNT(*) FROM purchase " +
+                "WHERE \"TIMESTAMP\" >= ? AND \"TIMESTAMP\" < ? GROUP BY currency, d ORDER BY currency, d",
+                yearAgo, yearAgo.plusYears(1));
+    }
+
+    private static Product product(String name, String currency) {
+        return Product.builder()
+                .name(name)
+                .price(new BigDecimal("5.00"))
+                .currency(currency)
+                .build();
+    }
+}
@@ -0,0 +1,62 @@
+package com.promocodes.api.utils;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoneyFormatterBenchmark {
+
+    // Formatter used before MoneyFormatter, kept here as the baseline.
+    private static final DecimalFormat df = new DecimalFormat("0.00");
+
+    private static String formatToTwoDecimalPoints(BigDecimal number) {
+        DecimalFormatSymbols symbols = df.getDecimalFormatSymbols();
+        symbols.setDecimalSeparator('.');
+        df.setDecimalFormatSymbols(symbols);
+
+        return df.format(number);
+    }
+
+    @Param({"3.75", "1234567.5", "0.125"})
+    private String amount;
+
+    private BigDecimal value;
+    private long minorUnits;
+
+    @Setup
+    public void setUp() {
+        value = new BigDecimal(amount);
+        minorUnits = value.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    @Benchmark
+    public String decimalFormat() {
+        return formatToTwoDecimalPoints(value);
+    }
+
+    @Benchmark
+    public String moneyFormatter() {
+        return MoneyFormatter.format(value);
+    }
+
+    @Benchmark
+    public String moneyFormatterMinorUnits() {
+        return MoneyFormatter.format(minorUnits);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String moneyFormatterContended() {
+        return MoneyFormatter.format(value);
+    }
+}
@@ -0,0 +1,22 @@
+package com.promocodes.api.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.promocodes.api.promocode.PromoCodeFilter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.cache.CacheManagerCustomizer;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class CacheConfig {
+
+    // Unknown promo codes are kept much shorter than the spring.cache.caffeine.spec shared by the other caches, so a
+    // code found missing just before it was created is not rejected for long.
+    @Bean
+    public CacheManagerCustomizer<CaffeineCacheManager> missingPromoCodesCacheCustomizer(
+            @Value("${promocodes.missing-codes.spec}") String spec) {
+        return cacheManager -> cacheManager.registerCustomCache(
+                PromoCodeFilter.MISSING_PROMO_CODES, Caffeine.from(spec).build());
+    }
+}
@@ -0,0 +1,50 @@
+package com.promocodes.api.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.promocodes.api.cache.dto.CacheStatsDto;
+import lombok.AllArgsConstructor;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/cache")
+@AllArgsConstructor
+public class CacheStatsController {
+
+    private final CacheManager cacheManager;
+
+    @GetMapping("/stats")
+    public ResponseEntity<List<CacheStatsDto>> getCacheStats() {
+        List<CacheStatsDto> cacheStats = cacheManager.getCacheNames().stream()
+                .map(cacheManager::getCache)
+                .filter(CaffeineCache.class::isInstance)
+                .map(c -> mapCaffeineCacheToCacheStatsDto(c.getName(), ((CaffeineCache) c).getNativeCache()))
+                .toList();
+
+        return new ResponseEntity<>(
+                cacheStats,
+                HttpStatus.OK
+        );
+    }
+
+    private static CacheStatsDto mapCaffeineCacheToCacheStatsDto(String name, Cache<Object, Object> cache) {
+        CacheStats stats = cache.stats();
+
+        return new CacheStatsDto(
+                name,
+                cache.estimatedSize(),
+                stats.hitCount(),
+                stats.missCount(),
+                stats.hitRate(),
+                stats.evictionCount()
+        );
+    }
+}
@@ -1,6 +1,6 @@
 package com.promocodes.api.exception;
 
-public class DuplicateUniqueValueException extends RuntimeException{
+public class DuplicateUniqueValueException extends StacklessException {
 
     public DuplicateUniqueValueException(String message) {
         super(message);
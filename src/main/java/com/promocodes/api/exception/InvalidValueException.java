@@ -1,6 +1,6 @@
 package com.promocodes.api.exception;
 
-public class InvalidValueException extends RuntimeException {
+public class InvalidValueException extends StacklessException {
 
     public InvalidValueException(String message) {
         super(message);
@@ -1,6 +1,6 @@
 package com.promocodes.api.exception;
 
-public class ObjectNotFoundException extends RuntimeException {
+public class ObjectNotFoundException extends StacklessException {
 
     public ObjectNotFoundException(String message) {
         super(message);
@@ -0,0 +1,10 @@
+package com.promocodes.api.exception;
+
+// Application exceptions are thrown on ordinary traffic, e.g. for unknown codes, and only ever turned into a response,
+// so they are created without a stack trace, which would otherwise cost more than the rest of the request.
+abstract class StacklessException extends RuntimeException {
+
+    protected StacklessException(String message) {
+        super(message, null, false, false);
+    }
+}
@@ -0,0 +1,8 @@
+package com.promocodes.api.exception;
+
+public class TooManyRequestsException extends StacklessException {
+
+    public TooManyRequestsException(String message) {
+        super(message);
+    }
+}
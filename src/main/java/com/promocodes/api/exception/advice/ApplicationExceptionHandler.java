@@ -3,48 +3,51 @@ package com.promocodes.api.exception.advice;
 import com.promocodes.api.exception.DuplicateUniqueValueException;
 import com.promocodes.api.exception.InvalidValueException;
 import com.promocodes.api.exception.ObjectNotFoundException;
+import com.promocodes.api.exception.TooManyRequestsException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ProblemDetail;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.bind.support.WebExchangeBindException;
 
 @RestControllerAdvice
 public class ApplicationExceptionHandler {
 
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ProblemDetail handleInvalidArgument(MethodArgumentNotValidException e) {
-        ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(
-                HttpStatus.BAD_REQUEST, e.getFieldError().getDefaultMessage()
-        );
-        problemDetail.setTitle(HttpStatus.BAD_REQUEST.getReasonPhrase());
-        return problemDetail;
+        return problemDetail(HttpStatus.BAD_REQUEST, e.getFieldError().getDefaultMessage());
+    }
+
+    @ExceptionHandler(WebExchangeBindException.class)
+    public ProblemDetail handleInvalidArgument(WebExchangeBindException e) {
+        return problemDetail(HttpStatus.BAD_REQUEST, e.getFieldError().getDefaultMessage());
     }
 
     @ExceptionHandler(ObjectNotFoundException.class)
     public ProblemDetail handleObjectNotFound(ObjectNotFoundException e) {
-        ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(
-                HttpStatus.NOT_FOUND, e.getMessage()
-        );
-        problemDetail.setTitle(HttpStatus.NOT_FOUND.getReasonPhrase());
-        return problemDetail;
+        return problemDetail(HttpStatus.NOT_FOUND, e.getMessage());
     }
 
     @ExceptionHandler(DuplicateUniqueValueException.class)
     public ProblemDetail handleDuplicateUniqueValue(DuplicateUniqueValueException e) {
-        ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(
-                HttpStatus.BAD_REQUEST, e.getMessage()
-        );
-        problemDetail.setTitle(HttpStatus.BAD_REQUEST.getReasonPhrase());
-        return problemDetail;
+        return problemDetail(HttpStatus.BAD_REQUEST, e.getMessage());
     }
 
     @ExceptionHandler(InvalidValueException.class)
     public ProblemDetail handleDuplicateUniqueValue(InvalidValueException e) {
-        ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(
-                HttpStatus.BAD_REQUEST, e.getMessage()
-        );
-        problemDetail.setTitle(HttpStatus.BAD_REQUEST.getReasonPhrase());
+        return problemDetail(HttpStatus.BAD_REQUEST, e.getMessage());
+    }
+
+    @ExceptionHandler(TooManyRequestsException.class)
+    public ProblemDetail handleTooManyRequests(TooManyRequestsException e) {
+        return problemDetail(HttpStatus.TOO_MANY_REQUESTS, e.getMessage());
+    }
+
+    // Spring fills in the request path of the returned ProblemDetail, so each response gets its own instance.
+    private static ProblemDetail problemDetail(HttpStatus status, String detail) {
+        ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(status, detail);
+        problemDetail.setTitle(status.getReasonPhrase());
         return problemDetail;
     }
 }
@@ -0,0 +1,120 @@
+package com.promocodes.api.metrics;
+
+import com.promocodes.api.exception.DuplicateUniqueValueException;
+import com.promocodes.api.exception.InvalidValueException;
+import com.promocodes.api.exception.ObjectNotFoundException;
+import com.promocodes.api.exception.TooManyRequestsException;
+import com.promocodes.api.product.PriceQuoteReason;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+@Component
+public class PromoCodeMetrics {
+
+    public static final String PURCHASES = "promocodes.purchases";
+    public static final String PURCHASE_BATCHES = "promocodes.purchases.batch";
+    public static final String DISCOUNT_PRICES = "promocodes.discount.prices";
+    public static final String CART_QUOTES = "promocodes.cart.quotes";
+    public static final String PROMO_CODES_CREATED = "promocodes.codes.created";
+    public static final String SALES_REPORTS = "promocodes.sales.reports";
+    public static final String REDEMPTION_RATE = "promocodes.code.redemption.rate";
+    public static final String PURCHASES_QUEUED = "promocodes.purchases.queued";
+    public static final String PURCHASE_WRITE_FAILURES = "promocodes.purchases.write.failures";
+    public static final String PURCHASES_DEAD_LETTERED = "promocodes.purchases.dead.lettered";
+
+    public static final String APPLIED = "applied";
+    public static final String REGULAR = "regular";
+    public static final String EXPIRED = "expired";
+    public static final String CURRENCY_MISMATCH = "currency_mismatch";
+    public static final String EXHAUSTED = "exhausted";
+    public static final String SUCCESS = "success";
+    public static final String NOT_FOUND = "not_found";
+    public static final String DUPLICATE = "duplicate";
+    public static final String INVALID = "invalid";
+    public static final String REJECTED = "rejected";
+    public static final String ERROR = "error";
+
+    // Every tracked code is a separate time series, codes above the limit are reported together.
+    static final int MAX_TRACKED_CODES = 1000;
+    static final String OTHER_CODES = "other";
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Redemptions> redemptions = new ConcurrentHashMap<>();
+
+    public PromoCodeMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public Timer.Sample startTimer() {
+        return Timer.start(meterRegistry);
+    }
+
+    public void stopTimer(Timer.Sample sample, String name, String outcome) {
+        sample.stop(Timer.builder(name)
+                .tag("outcome", outcome)
+                .register(meterRegistry));
+    }
+
+    public void recordRedemption(String code, boolean redeemed) {
+        Redemptions codeRedemptions = redemptions.get(code);
+
+        if (codeRedemptions == null)
+            codeRedemptions = redemptions.size() < MAX_TRACKED_CODES
+                    ? redemptions.computeIfAbsent(code, this::registerRedemptions)
+                    : redemptions.computeIfAbsent(OTHER_CODES, this::registerRedemptions);
+
+        codeRedemptions.attempts.increment();
+        if (redeemed)
+            codeRedemptions.redeemed.increment();
+    }
+
+    public static String outcomeOf(PriceQuoteReason reason) {
+        return switch (reason) {
+            case APPLIED -> APPLIED;
+            case EXPIRED -> EXPIRED;
+            case CURRENCY_MISMATCH -> CURRENCY_MISMATCH;
+            case EXHAUSTED -> EXHAUSTED;
+        };
+    }
+
+    public static String outcomeOf(RuntimeException e) {
+        if (e instanceof ObjectNotFoundException)
+            return NOT_FOUND;
+        if (e instanceof DuplicateUniqueValueException)
+            return DUPLICATE;
+        if (e instanceof InvalidValueException)
+            return INVALID;
+        if (e instanceof TooManyRequestsException)
+            return REJECTED;
+
+        return ERROR;
+    }
+
+    private Redemptions registerRedemptions(String code) {
+        Redemptions codeRedemptions = new Redemptions();
+
+        Gauge.builder(REDEMPTION_RATE, codeRedemptions, Redemptions::rate)
+                .description("Share of purchases with the promo code that got the discount")
+                .tag("code", code)
+                .register(meterRegistry);
+
+        return codeRedemptions;
+    }
+
+    private static class Redemptions {
+
+        private final LongAdder attempts = new LongAdder();
+        private final LongAdder redeemed = new LongAdder();
+
+        private double rate() {
+            long attemptsSum = attempts.sum();
+            return attemptsSum == 0 ? 0 : (double) redeemed.sum() / attemptsSum;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.promocodes.api.metrics;
+
+// Counts SQL statements prepared by Hibernate on the current thread, between start() and stop().
+public class QueryCounter {
+
+    private static final ThreadLocal<int[]> COUNT = new ThreadLocal<>();
+
+    public static void start() {
+        COUNT.set(new int[1]);
+    }
+
+    public static void increment() {
+        int[] count = COUNT.get();
+
+        if (count != null)
+            count[0]++;
+    }
+
+    public static int stop() {
+        int[] count = COUNT.get();
+        COUNT.remove();
+
+        return count == null ? 0 : count[0];
+    }
+}
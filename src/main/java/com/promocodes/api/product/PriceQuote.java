@@ -0,0 +1,18 @@
+package com.promocodes.api.product;
+
+// Price of a product after applying a promo code, in minor units. When the code could not be applied the price is
+// the regular price, the discount is zero and the reason tells why.
+public record PriceQuote(
+        long price,
+        long discount,
+        PriceQuoteReason reason
+) {
+
+    public boolean applied() {
+        return reason == PriceQuoteReason.APPLIED;
+    }
+
+    public String warning() {
+        return reason.getWarning();
+    }
+}
@@ -0,0 +1,54 @@
+package com.promocodes.api.product;
+
+import com.promocodes.api.promocode.CodeType;
+import com.promocodes.api.promocode.PromoCodeSnapshot;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+
+// Discount rules of promo codes. Works only on immutable snapshots and the usage counter passed in, so it never
+// touches the database and gives the same answer for single, batch and cart pricing. All arithmetic is done on
+// minor units and allocates nothing but the returned quote.
+@Component
+public class PriceQuoteEngine {
+
+    public PriceQuote quote(ProductSnapshot product, PromoCodeSnapshot promoCode, long totalUsages) {
+        return quote(product, promoCode, totalUsages, LocalDate.now());
+    }
+
+    public PriceQuote quote(ProductSnapshot product, PromoCodeSnapshot promoCode, long totalUsages, LocalDate today) {
+        if (promoCode.expireDate().isBefore(today))
+            return regularPrice(product, PriceQuoteReason.EXPIRED);
+
+        if (!promoCode.currency().equals(product.currency()))
+            return regularPrice(product, PriceQuoteReason.CURRENCY_MISMATCH);
+
+        if (totalUsages >= promoCode.maxUsages())
+            return regularPrice(product, PriceQuoteReason.EXHAUSTED);
+
+        long discountPrice = discountPrice(product, promoCode);
+
+        return new PriceQuote(discountPrice, product.price() - discountPrice, PriceQuoteReason.APPLIED);
+    }
+
+    // Discount price in minor units, rounded half up. The percentage is first rounded to a whole percent and the
+    // discount is taken from the rounded price, so price and discount always add up to the regular price. Gives the
+    // same result as the former BigDecimal arithmetic, price - price * (amount / 100.00), for all non-negative
+    // amounts.
+    static long discountPrice(ProductSnapshot product, PromoCodeSnapshot promoCode) {
+        long price = product.price();
+
+        if (promoCode.codeType() == CodeType.QUANTITATIVE)
+            return Math.max(price - promoCode.amount(), 0);
+
+        long percent = promoCode.amount() / 100 + (promoCode.amount() % 100 >= 50 ? 1 : 0);
+        long remainingPercent = Math.max(100 - percent, 0);
+
+        // price * remainingPercent / 100 split on whole and minor part, so it cannot overflow
+        return price / 100 * remainingPercent + (price % 100 * remainingPercent + 50) / 100;
+    }
+
+    private static PriceQuote regularPrice(ProductSnapshot product, PriceQuoteReason reason) {
+        return new PriceQuote(product.price(), 0, reason);
+    }
+}
@@ -0,0 +1,16 @@
+package com.promocodes.api.product;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public enum PriceQuoteReason {
+
+    APPLIED(null),
+    EXPIRED("Promo code usage time expired"),
+    CURRENCY_MISMATCH("Promo code currency does not match product price currency"),
+    EXHAUSTED("The number of possible uses of the promo code has been exhausted");
+
+    private final String warning;
+}
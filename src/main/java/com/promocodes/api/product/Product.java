@@ -1,5 +1,6 @@
 package com.promocodes.api.product;
 
+import com.promocodes.api.utils.MinorUnitsConverter;
 import jakarta.persistence.*;
 import lombok.*;
 
@@ -13,6 +14,7 @@ import java.util.UUID;
 @AllArgsConstructor
 @Builder
 @EqualsAndHashCode
+@Table(indexes = @Index(name = "idx_product_currency", columnList = "currency"))
 public class Product {
 
     @Id
@@ -25,6 +27,7 @@ public class Product {
     private String name;
     private String description;
     @Column(nullable = false)
+    @Convert(converter = MinorUnitsConverter.class)
     private BigDecimal price;
     @Column(nullable = false)
     private String currency;
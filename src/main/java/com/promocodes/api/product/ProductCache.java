@@ -0,0 +1,52 @@
+package com.promocodes.api.product;
+
+import com.promocodes.api.exception.ObjectNotFoundException;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+@Component
+public class ProductCache {
+
+    private final ProductRepository productRepository;
+    private final Cache products;
+
+    public ProductCache(ProductRepository productRepository, CacheManager cacheManager) {
+        this.productRepository = productRepository;
+        this.products = cacheManager.getCache("products");
+    }
+
+    // Cache used directly for the same reason as in PromoCodeCache.
+    public ProductSnapshot getProduct(UUID productId) {
+        ProductSnapshot product = getCachedProduct(productId);
+
+        if (product != null)
+            return product;
+
+        return productRepository.findById(productId)
+                .map(p -> put(ProductSnapshot.of(p)))
+                .orElseThrow(() -> missing(productId));
+    }
+
+    // Steps of getProduct for callers that look the product up in their own way, like the reactive stack. Returns
+    // null when the product has to be looked up.
+    public ProductSnapshot getCachedProduct(UUID productId) {
+        return products.get(productId, ProductSnapshot.class);
+    }
+
+    public ProductSnapshot put(ProductSnapshot product) {
+        products.put(product.productId(), product);
+        return product;
+    }
+
+    // Returns the exception to throw for a product that was looked up and not found.
+    public ObjectNotFoundException missing(UUID productId) {
+        return new ObjectNotFoundException("Product with id = " + productId + " does not exist");
+    }
+
+    public void evictProduct(UUID productId) {
+        products.evict(productId);
+    }
+}
@@ -1,13 +1,19 @@
 package com.promocodes.api.product;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.promocodes.api.product.dto.ProductDtoMapper;
 import com.promocodes.api.product.dto.ProductInputDto;
-import com.promocodes.api.product.dto.ProductOutputDto;
+import com.promocodes.api.product.dto.ProductPageDto;
+import com.promocodes.api.product.dto.ProductQuoteInputDto;
+import com.promocodes.api.product.dto.ProductQuoteOutputDto;
+import com.promocodes.api.utils.NdjsonWriter;
 import jakarta.validation.Valid;
 import lombok.AllArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 import java.util.Map;
@@ -19,6 +25,7 @@ import java.util.UUID;
 public class ProductController {
 
     private final ProductService productService;
+    private final ObjectMapper objectMapper;
 
     @PostMapping
     public ResponseEntity<Map<String, UUID>> addProduct(@Valid @RequestBody ProductInputDto productInputDto) {
@@ -31,11 +38,28 @@ public class ProductController {
     }
 
     @GetMapping
-    public ResponseEntity<List<ProductOutputDto>> getAllProducts() {
-        List<Product> products = productService.getAllProducts();
+    public ResponseEntity<ProductPageDto> getProducts(@RequestParam(value = "after", required = false) String after,
+                                                      @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        List<Product> products = productService.getProducts(after, limit);
 
         return new ResponseEntity<>(
-                products.stream().map(ProductDtoMapper::mapProductToProductOutputDto).toList(),
+                ProductDtoMapper.mapProductsToProductPageDto(products, limit),
+                HttpStatus.OK
+        );
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllProducts() {
+        StreamingResponseBody responseBody = outputStream -> {
+            try (NdjsonWriter ndjsonWriter = new NdjsonWriter(objectMapper, outputStream)) {
+                productService.streamAllProducts(
+                        p -> ndjsonWriter.write(ProductDtoMapper.mapProductToProductOutputDto(p))
+                );
+            }
+        };
+
+        return new ResponseEntity<>(
+                responseBody,
                 HttpStatus.OK
         );
     }
@@ -57,7 +81,18 @@ public class ProductController {
                                                                        @RequestParam("code") String code) {
 
         return new ResponseEntity<>(
-                productService.getProductDiscountPrice(productId, code),
+                ProductDtoMapper.mapPriceQuoteToDiscountPriceMap(productService.getProductDiscountPrice(productId, code)),
+                HttpStatus.OK
+        );
+    }
+
+    @PostMapping("/quote")
+    public ResponseEntity<ProductQuoteOutputDto> quoteProducts(@Valid @RequestBody ProductQuoteInputDto productQuoteInputDto) {
+        List<ProductQuote> productQuotes = productService
+                .quoteProducts(productQuoteInputDto.productIds(), productQuoteInputDto.code());
+
+        return new ResponseEntity<>(
+                ProductDtoMapper.mapProductQuotesToProductQuoteOutputDto(productQuoteInputDto.code(), productQuotes),
                 HttpStatus.OK
         );
     }
@@ -0,0 +1,7 @@
+package com.promocodes.api.product;
+
+public record ProductQuote(
+        ProductSnapshot product,
+        PriceQuote priceQuote
+) {
+}
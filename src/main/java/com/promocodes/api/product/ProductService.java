@@ -3,46 +3,93 @@ package com.promocodes.api.product;
 import com.promocodes.api.exception.DuplicateUniqueValueException;
 import com.promocodes.api.exception.InvalidValueException;
 import com.promocodes.api.exception.ObjectNotFoundException;
-import com.promocodes.api.promocode.CodeType;
-import com.promocodes.api.promocode.PromoCode;
+import com.promocodes.api.metrics.PromoCodeMetrics;
+import com.promocodes.api.promocode.PromoCodeCache;
 import com.promocodes.api.promocode.PromoCodeRepository;
-import com.promocodes.api.utils.DecimalFormatter;
+import com.promocodes.api.promocode.PromoCodeSnapshot;
+import com.promocodes.api.purchase.SalesLedgerService;
+import com.promocodes.api.utils.MinorUnits;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityManager;
 import lombok.AllArgsConstructor;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.time.LocalDate;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @AllArgsConstructor
 public class ProductService {
 
+    public static final int MAX_PAGE_SIZE = 1000;
+
     private final ProductRepository productRepository;
     private final PromoCodeRepository promoCodeRepository;
+    private final SalesLedgerService salesLedgerService;
+    private final ProductCache productCache;
+    private final PromoCodeCache promoCodeCache;
+    private final EntityManager entityManager;
+    private final PriceQuoteEngine priceQuoteEngine;
+    private final PromoCodeMetrics promoCodeMetrics;
 
     public Product addProduct(Product product) {
         if (product.getPrice().compareTo(BigDecimal.ZERO) <= 0)
             throw new InvalidValueException("Product price must be a positive number");
 
+        if (!MinorUnits.fits(product.getPrice()))
+            throw new InvalidValueException("Product price must have at most two decimal points and must not exceed " +
+                    MinorUnits.MAX);
+
         if (productRepository.findByName(product.getName()).isPresent())
             throw new DuplicateUniqueValueException("Product with given name already exists");
 
-        return productRepository.save(product);
+        Product productDB = productRepository.save(product);
+        salesLedgerService.openCurrencies();
+
+        return productDB;
+    }
+
+    public List<Product> getProducts(String after, int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE)
+            throw new InvalidValueException("Page size must be a number between 1 and " + MAX_PAGE_SIZE);
+
+        if (after == null)
+            return productRepository.findAllByOrderByNameAsc(Limit.of(limit));
+
+        return productRepository.findByNameGreaterThanOrderByNameAsc(after, Limit.of(limit));
     }
 
-    public List<Product> getAllProducts() {
-        return productRepository.findAll();
+    @Transactional(readOnly = true)
+    public void streamAllProducts(Consumer<Product> consumer) {
+        try (Stream<Product> products = productRepository.streamAllByOrderByNameAsc()) {
+            products.forEach(p -> {
+                consumer.accept(p);
+                entityManager.detach(p);
+            });
+        }
     }
 
+    @Transactional
     public Product updateProductById(UUID productId, Product product) {
         if (product.getPrice().compareTo(BigDecimal.ZERO) <= 0)
             throw new InvalidValueException("Product price must be a positive number");
 
+        if (!MinorUnits.fits(product.getPrice()))
+            throw new InvalidValueException("Product price must have at most two decimal points and must not exceed " +
+                    MinorUnits.MAX);
+
         Product productDB = productRepository.findById(productId)
                 .orElseThrow(() -> new ObjectNotFoundException("Product with id = " + productId + " does not exist"));
 
@@ -55,49 +102,87 @@ public class ProductService {
         productDB.setPrice(product.getPrice());
         productDB.setCurrency(product.getCurrency());
 
-        return productRepository.save(productDB);
+        productDB = productRepository.save(productDB);
+
+        // A lookup missing the cache before the commit still reads the old product, so it is evicted only afterwards.
+        afterCommit(() -> {
+            productCache.evictProduct(productId);
+            salesLedgerService.openCurrencies();
+        });
+
+        return productDB;
     }
 
-    public Map<String, String> getProductDiscountPrice(UUID productId, String code) {
-        Product productDB = productRepository.findById(productId)
-                .orElseThrow(() -> new ObjectNotFoundException("Product with id = " + productId + " does not exist"));
+    public PriceQuote getProductDiscountPrice(UUID productId, String code) {
+        Timer.Sample sample = promoCodeMetrics.startTimer();
+        String outcome = PromoCodeMetrics.ERROR;
 
-        PromoCode promoCodeDB = promoCodeRepository.findById(code)
-                .orElseThrow(() -> new ObjectNotFoundException("Promo code: '" + code + "' does not exists"));
+        try {
+            ProductSnapshot product = productCache.getProduct(productId);
+            PromoCodeSnapshot promoCode = promoCodeCache.getPromoCode(code);
 
-        Map<String, String> discountPriceMap = new HashMap<>();
+            PriceQuote priceQuote = priceQuoteEngine.quote(product, promoCode, promoCodeRepository.getTotalUsages(code));
+            outcome = PromoCodeMetrics.outcomeOf(priceQuote.reason());
 
-        if (promoCodeDB.getExpireDate().isBefore(LocalDate.now())) {
-            discountPriceMap.put("discountPrice", "" + productDB.getPrice());
-            discountPriceMap.put("warning", "Promo code usage time expired");
-            return discountPriceMap;
+            return priceQuote;
+        } catch (RuntimeException e) {
+            outcome = PromoCodeMetrics.outcomeOf(e);
+            throw e;
+        } finally {
+            promoCodeMetrics.stopTimer(sample, PromoCodeMetrics.DISCOUNT_PRICES, outcome);
         }
+    }
 
-        if (!promoCodeDB.getCurrency().equals(productDB.getCurrency())) {
-            discountPriceMap.put("discountPrice", "" + productDB.getPrice());
-            discountPriceMap.put("warning", "Promo code currency does not match product price currency");
-            return discountPriceMap;
+    // The promo code is looked up once for the whole cart. Every line that gets the discount takes up one usage,
+    // so lines beyond the remaining usages are quoted at regular price, as they would be when purchased together.
+    public List<ProductQuote> quoteProducts(List<UUID> productIds, String code) {
+        Timer.Sample sample = promoCodeMetrics.startTimer();
+        String outcome = PromoCodeMetrics.ERROR;
+
+        try {
+            Map<UUID, ProductSnapshot> products = productRepository.findAllById(new HashSet<>(productIds)).stream()
+                    .collect(Collectors.toMap(Product::getProductId, ProductSnapshot::of));
+
+            for (UUID productId : productIds)
+                if (!products.containsKey(productId))
+                    throw new ObjectNotFoundException("Product with id = " + productId + " does not exist");
+
+            PromoCodeSnapshot promoCode = promoCodeCache.getPromoCode(code);
+            long totalUsages = promoCodeRepository.getTotalUsages(code);
+            LocalDate today = LocalDate.now();
+            List<ProductQuote> productQuotes = new ArrayList<>(productIds.size());
+
+            for (UUID productId : productIds) {
+                PriceQuote priceQuote = priceQuoteEngine.quote(products.get(productId), promoCode, totalUsages, today);
+
+                if (priceQuote.applied())
+                    totalUsages++;
+
+                productQuotes.add(new ProductQuote(products.get(productId), priceQuote));
+            }
+            outcome = PromoCodeMetrics.SUCCESS;
+
+            return productQuotes;
+        } catch (RuntimeException e) {
+            outcome = PromoCodeMetrics.outcomeOf(e);
+            throw e;
+        } finally {
+            promoCodeMetrics.stopTimer(sample, PromoCodeMetrics.CART_QUOTES, outcome);
         }
+    }
 
-        if (promoCodeDB.getTotalUsages() >= promoCodeDB.getMaxUsages()) {
-            discountPriceMap.put("discountPrice", "" + productDB.getPrice());
-            discountPriceMap.put("warning", "The number of possible uses of the promo code has been exhausted");
-            return discountPriceMap;
+    // Runs the action once the current transaction commits, or right away when there is none.
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
         }
 
-        BigDecimal discountPrice;
-
-        if (promoCodeDB.getCodeType() == CodeType.QUANTITATIVE)
-            discountPrice = productDB.getPrice().subtract(promoCodeDB.getAmount());
-        else
-            discountPrice = productDB.getPrice().subtract(productDB.getPrice()
-                    .multiply(promoCodeDB.getAmount().divide(new BigDecimal(("100.00")), RoundingMode.HALF_UP)));
-
-        if (discountPrice.compareTo(BigDecimal.ZERO) < 0)
-            discountPrice = BigDecimal.ZERO;
-
-        discountPriceMap.put("discountPrice", DecimalFormatter.formatToTwoDecimalPoints(discountPrice));
-
-        return discountPriceMap;
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
     }
 }
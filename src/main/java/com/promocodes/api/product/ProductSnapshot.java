@@ -0,0 +1,23 @@
+package com.promocodes.api.product;
+
+import com.promocodes.api.utils.MinorUnits;
+
+import java.util.UUID;
+
+// Price is in minor units
+public record ProductSnapshot(
+        UUID productId,
+        String name,
+        long price,
+        String currency
+) {
+
+    public static ProductSnapshot of(Product product) {
+        return new ProductSnapshot(
+                product.getProductId(),
+                product.getName(),
+                MinorUnits.of(product.getPrice()),
+                product.getCurrency()
+        );
+    }
+}
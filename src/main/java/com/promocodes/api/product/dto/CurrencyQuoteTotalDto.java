@@ -0,0 +1,11 @@
+package com.promocodes.api.product.dto;
+
+public record CurrencyQuoteTotalDto(
+
+        String currency,
+        String regularPrice,
+        String discountPrice,
+        String discount,
+        int noOfProducts
+) {
+}
@@ -1,9 +1,17 @@
 package com.promocodes.api.product.dto;
 
+import com.promocodes.api.product.PriceQuote;
 import com.promocodes.api.product.Product;
-import com.promocodes.api.utils.DecimalFormatter;
+import com.promocodes.api.product.ProductQuote;
+import com.promocodes.api.product.ProductSnapshot;
+import com.promocodes.api.utils.MoneyFormatter;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 public class ProductDtoMapper {
 
@@ -23,8 +31,76 @@ public class ProductDtoMapper {
                 product.getProductId(),
                 product.getName(),
                 product.getDescription() == null ? null : product.getDescription(),
-                DecimalFormatter.formatToTwoDecimalPoints(product.getPrice()),
+                MoneyFormatter.format(product.getPrice()),
                 product.getCurrency()
         );
     }
+
+    public static ProductPageDto mapProductsToProductPageDto(List<Product> products, int limit) {
+
+        return new ProductPageDto(
+                products.stream().map(ProductDtoMapper::mapProductToProductOutputDto).toList(),
+                products.size() < limit ? null : products.get(products.size() - 1).getName()
+        );
+    }
+
+    public static Map<String, String> mapPriceQuoteToDiscountPriceMap(PriceQuote priceQuote) {
+        Map<String, String> discountPriceMap = new HashMap<>();
+        discountPriceMap.put("discountPrice", MoneyFormatter.format(priceQuote.price()));
+
+        if (!priceQuote.applied())
+            discountPriceMap.put("warning", priceQuote.warning());
+
+        return discountPriceMap;
+    }
+
+    // Lines keep the order of requested products, totals are sorted by currency
+    public static ProductQuoteOutputDto mapProductQuotesToProductQuoteOutputDto(String code, List<ProductQuote> productQuotes) {
+        List<ProductQuoteLineDto> lines = new ArrayList<>(productQuotes.size());
+        Map<String, CurrencyTotal> totals = new TreeMap<>();
+
+        for (ProductQuote productQuote : productQuotes) {
+            ProductSnapshot product = productQuote.product();
+            PriceQuote priceQuote = productQuote.priceQuote();
+
+            lines.add(new ProductQuoteLineDto(
+                    product.productId(),
+                    product.name(),
+                    product.currency(),
+                    MoneyFormatter.format(product.price()),
+                    MoneyFormatter.format(priceQuote.price()),
+                    MoneyFormatter.format(priceQuote.discount()),
+                    priceQuote.warning()
+            ));
+            totals.computeIfAbsent(product.currency(), currency -> new CurrencyTotal()).add(product, priceQuote);
+        }
+
+        return new ProductQuoteOutputDto(
+                code,
+                lines,
+                totals.entrySet().stream()
+                        .map(e -> new CurrencyQuoteTotalDto(
+                                e.getKey(),
+                                MoneyFormatter.format(e.getValue().regularPrice),
+                                MoneyFormatter.format(e.getValue().discountPrice),
+                                MoneyFormatter.format(e.getValue().discount),
+                                e.getValue().noOfProducts))
+                        .toList()
+        );
+    }
+
+    private static class CurrencyTotal {
+
+        private long regularPrice;
+        private long discountPrice;
+        private long discount;
+        private int noOfProducts;
+
+        private void add(ProductSnapshot product, PriceQuote priceQuote) {
+            regularPrice += product.price();
+            discountPrice += priceQuote.price();
+            discount += priceQuote.discount();
+            noOfProducts++;
+        }
+    }
 }
@@ -0,0 +1,10 @@
+package com.promocodes.api.product.dto;
+
+import java.util.List;
+
+public record ProductPageDto(
+
+        List<ProductOutputDto> products,
+        String nextCursor
+) {
+}
@@ -0,0 +1,19 @@
+package com.promocodes.api.product.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+import java.util.UUID;
+
+public record ProductQuoteInputDto(
+
+        @NotEmpty(message = "Quote must contain at least one product")
+        @Size(max = 1000, message = "Quote can contain at most 1000 products")
+        List<@NotNull(message = "Product id cannot be null") UUID> productIds,
+        @NotBlank(message = "Promo code cannot be blank")
+        String code
+) {
+}
@@ -0,0 +1,15 @@
+package com.promocodes.api.product.dto;
+
+import java.util.UUID;
+
+public record ProductQuoteLineDto(
+
+        UUID productId,
+        String name,
+        String currency,
+        String regularPrice,
+        String discountPrice,
+        String discount,
+        String warning
+) {
+}
@@ -0,0 +1,11 @@
+package com.promocodes.api.product.dto;
+
+import java.util.List;
+
+public record ProductQuoteOutputDto(
+
+        String code,
+        List<ProductQuoteLineDto> lines,
+        List<CurrencyQuoteTotalDto> totals
+) {
+}
@@ -1,5 +1,6 @@
 package com.promocodes.api.promocode;
 
+import com.promocodes.api.utils.MinorUnitsConverter;
 import jakarta.persistence.*;
 import lombok.*;
 
@@ -21,6 +22,7 @@ public class PromoCode {
     private long maxUsages;
     private long totalUsages;
     @Column(nullable = false)
+    @Convert(converter = MinorUnitsConverter.class)
     private BigDecimal amount;
     @Column(nullable = false)
     private String currency;
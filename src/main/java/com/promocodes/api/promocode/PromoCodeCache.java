@@ -0,0 +1,66 @@
+package com.promocodes.api.promocode;
+
+import com.promocodes.api.exception.ObjectNotFoundException;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+@Component
+public class PromoCodeCache {
+
+    private final PromoCodeRepository promoCodeRepository;
+    private final PromoCodeFilter promoCodeFilter;
+    private final Cache promoCodes;
+
+    public PromoCodeCache(PromoCodeRepository promoCodeRepository,
+                          PromoCodeFilter promoCodeFilter,
+                          CacheManager cacheManager) {
+        this.promoCodeRepository = promoCodeRepository;
+        this.promoCodeFilter = promoCodeFilter;
+        this.promoCodes = cacheManager.getCache("promoCodes");
+    }
+
+    // The cache is used directly rather than through cache annotations, as the proxy they need wraps every exception
+    // of the method in ones with a full stack trace, and unknown codes are the common case here.
+    public PromoCodeSnapshot getPromoCode(String code) {
+        PromoCodeSnapshot promoCode = getCachedPromoCode(code);
+
+        if (promoCode != null)
+            return promoCode;
+
+        return promoCodeRepository.findById(code)
+                .map(p -> put(PromoCodeSnapshot.of(p)))
+                .orElseThrow(() -> missing(code));
+    }
+
+    // Steps of getPromoCode for callers that look the promo code up in their own way, like the reactive stack.
+    // Returns null when the promo code has to be looked up. Codes the filter rules out are rejected before the
+    // database, as are codes recently found missing.
+    public PromoCodeSnapshot getCachedPromoCode(String code) {
+        PromoCodeSnapshot promoCode = promoCodes.get(code, PromoCodeSnapshot.class);
+
+        if (promoCode == null && !promoCodeFilter.mightExist(code))
+            throw notFound(code);
+
+        return promoCode;
+    }
+
+    public PromoCodeSnapshot put(PromoCodeSnapshot promoCode) {
+        promoCodes.put(promoCode.code(), promoCode);
+        return promoCode;
+    }
+
+    // Remembers a code that was looked up and not found, returns the exception to throw.
+    public ObjectNotFoundException missing(String code) {
+        promoCodeFilter.markMissing(code);
+        return notFound(code);
+    }
+
+    public void evictPromoCode(String code) {
+        promoCodes.evict(code);
+    }
+
+    private static ObjectNotFoundException notFound(String code) {
+        return new ObjectNotFoundException("Promo code: '" + code + "' does not exists");
+    }
+}
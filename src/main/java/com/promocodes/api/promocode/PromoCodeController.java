@@ -1,13 +1,20 @@
 package com.promocodes.api.promocode;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.promocodes.api.promocode.dto.PromoCodeBulkInputDto;
+import com.promocodes.api.promocode.dto.PromoCodeBulkOutputDto;
 import com.promocodes.api.promocode.dto.PromoCodeDtoMapper;
 import com.promocodes.api.promocode.dto.PromoCodeInputDto;
 import com.promocodes.api.promocode.dto.PromoCodeOutputDto;
+import com.promocodes.api.promocode.dto.PromoCodePageDto;
+import com.promocodes.api.utils.NdjsonWriter;
 import jakarta.validation.Valid;
 import lombok.AllArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 import java.util.Map;
@@ -18,6 +25,7 @@ import java.util.Map;
 public class PromoCodeController {
 
     private final PromoCodeService promoCodeService;
+    private final ObjectMapper objectMapper;
 
     @PostMapping()
     public ResponseEntity<Map<String, String>> addPromoCode(@Valid @RequestBody PromoCodeInputDto promoCodeInputDto) {
@@ -30,12 +38,50 @@ public class PromoCodeController {
         );
     }
 
+    @PostMapping("/bulk")
+    public ResponseEntity<PromoCodeBulkOutputDto> generatePromoCodes(
+            @Valid @RequestBody PromoCodeBulkInputDto promoCodeBulkInputDto) {
+        long start = System.nanoTime();
+
+        int count = promoCodeService.generatePromoCodes(
+                promoCodeBulkInputDto.prefix(),
+                promoCodeBulkInputDto.count(),
+                promoCodeBulkInputDto.length(),
+                promoCodeBulkInputDto.alphabet(),
+                PromoCodeDtoMapper.mapPromoCodeBulkInputDtoToPromoCode(promoCodeBulkInputDto)
+        );
+
+        return new ResponseEntity<>(
+                PromoCodeDtoMapper.mapGeneratedPromoCodesToPromoCodeBulkOutputDto(
+                        promoCodeBulkInputDto.prefix(), count, System.nanoTime() - start
+                ),
+                HttpStatus.CREATED
+        );
+    }
+
     @GetMapping
-    public ResponseEntity<List<PromoCodeOutputDto>> getAllPromoCodes() {
-        List<PromoCode> promoCodes = promoCodeService.getAllPromoCodes();
+    public ResponseEntity<PromoCodePageDto> getPromoCodes(@RequestParam(value = "after", required = false) String after,
+                                                          @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        List<PromoCode> promoCodes = promoCodeService.getPromoCodes(after, limit);
+
+        return new ResponseEntity<>(
+                PromoCodeDtoMapper.mapPromoCodesToPromoCodePageDto(promoCodes, limit),
+                HttpStatus.OK
+        );
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllPromoCodes() {
+        StreamingResponseBody responseBody = outputStream -> {
+            try (NdjsonWriter ndjsonWriter = new NdjsonWriter(objectMapper, outputStream)) {
+                promoCodeService.streamAllPromoCodes(
+                        p -> ndjsonWriter.write(PromoCodeDtoMapper.mapPromoCodeToPromoCodeOutputDto(p))
+                );
+            }
+        };
 
         return new ResponseEntity<>(
-                promoCodes.stream().map(PromoCodeDtoMapper::mapPromoCodeToPromoCodeOutputDto).toList(),
+                responseBody,
                 HttpStatus.OK
         );
     }
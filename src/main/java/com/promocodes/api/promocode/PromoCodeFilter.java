@@ -0,0 +1,130 @@
+package com.promocodes.api.promocode;
+
+import com.promocodes.api.utils.BloomFilter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+// Rejects unknown promo codes without a database lookup. A Bloom filter over all codes rules out almost every code
+// that does not exist, the few it lets through are found missing once and then remembered for a short time. Until
+// the filter is loaded after start every code is let through.
+@Component
+public class PromoCodeFilter {
+
+    public static final String MISSING_PROMO_CODES = "missingPromoCodes";
+
+    private final PromoCodeRepository promoCodeRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Cache missingCodes;
+    private final long expectedCodes;
+    private final double falsePositiveRate;
+    private final AtomicLong codeCount = new AtomicLong();
+    // a lock rather than synchronized, which would pin a virtual thread to its carrier for the whole load
+    private final ReentrantLock loadLock = new ReentrantLock();
+
+    private volatile BloomFilter codes;
+    // filter being loaded, codes added meanwhile go to both
+    private volatile BloomFilter loadingCodes;
+    private volatile long capacity;
+
+    public PromoCodeFilter(PromoCodeRepository promoCodeRepository,
+                           TransactionTemplate transactionTemplate,
+                           CacheManager cacheManager,
+                           @Value("${promocodes.code-filter.expected-codes:1000000}") long expectedCodes,
+                           @Value("${promocodes.code-filter.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.promoCodeRepository = promoCodeRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.missingCodes = cacheManager.getCache(MISSING_PROMO_CODES);
+        this.expectedCodes = expectedCodes;
+        this.falsePositiveRate = falsePositiveRate;
+    }
+
+    public boolean mightExist(String code) {
+        BloomFilter current = codes;
+
+        if (current != null && !current.mightContain(code))
+            return false;
+
+        return missingCodes.get(code) == null;
+    }
+
+    public void markMissing(String code) {
+        missingCodes.put(code, Boolean.TRUE);
+    }
+
+    // Called once the code is committed. The filter being loaded is read first: load() publishes it as the current
+    // filter before it lets go of it, so a code is in the current filter or in the one replacing it, or the load
+    // started after the code was committed and reads it from the database.
+    public void add(String code) {
+        BloomFilter loading = loadingCodes;
+        BloomFilter current = codes;
+
+        if (current != null)
+            current.add(code);
+
+        if (loading != null)
+            loading.add(code);
+
+        codeCount.incrementAndGet();
+        missingCodes.evict(code);
+    }
+
+    public void addAll(Collection<String> codes) {
+        codes.forEach(this::add);
+    }
+
+    // Sized for twice the codes there are, at least the expected number. Loaded again on a schedule, to pick up codes
+    // inserted past the API, and as soon as it fills up, as the false positive rate grows past its capacity.
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        loadLock.lock();
+
+        try {
+            long count = promoCodeRepository.count();
+            long size = Math.max(expectedCodes, 2 * count);
+            BloomFilter loading = new BloomFilter(size, falsePositiveRate);
+
+            loadingCodes = loading;
+            codeCount.set(0);
+
+            transactionTemplate.executeWithoutResult(status -> {
+                try (Stream<String> allCodes = promoCodeRepository.streamAllCodes()) {
+                    allCodes.forEach(code -> {
+                        loading.add(code);
+                        codeCount.incrementAndGet();
+                    });
+                }
+            });
+
+            capacity = size;
+            codes = loading;
+            missingCodes.clear();
+        } finally {
+            loadingCodes = null;
+            loadLock.unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${promocodes.code-filter.reload-interval:PT10M}",
+            initialDelayString = "${promocodes.code-filter.reload-interval:PT10M}")
+    public void reload() {
+        if (codes != null)
+            load();
+    }
+
+    @Scheduled(fixedDelay = 60_000, initialDelay = 60_000)
+    public void loadWhenFull() {
+        if (codes != null && codeCount.get() > capacity)
+            load();
+    }
+}
@@ -1,8 +1,57 @@
 package com.promocodes.api.promocode;
 
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
+
 @Repository
 public interface PromoCodeRepository extends JpaRepository<PromoCode, String> {
+
+    List<PromoCode> findAllByOrderByCodeAsc(Limit limit);
+
+    List<PromoCode> findByCodeGreaterThanOrderByCodeAsc(String code, Limit limit);
+
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    Stream<PromoCode> streamAllByOrderByCodeAsc();
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "10000"))
+    @Query("SELECT p.code FROM PromoCode p")
+    Stream<String> streamAllCodes();
+
+    @Modifying
+    @Query("UPDATE PromoCode p SET p.totalUsages = p.totalUsages + 1 " +
+            "WHERE p.code = :code AND p.totalUsages < p.maxUsages")
+    int redeemPromoCode(@Param("code") String code);
+
+    @Modifying
+    @Query("UPDATE PromoCode p SET p.totalUsages = p.totalUsages - 1 " +
+            "WHERE p.code = :code AND p.totalUsages > 0")
+    int releasePromoCode(@Param("code") String code);
+
+    @Query("SELECT p.totalUsages FROM PromoCode p WHERE p.code = :code")
+    long getTotalUsages(@Param("code") String code);
+
+    @Query("SELECT p.code FROM PromoCode p WHERE p.code IN :codes")
+    List<String> findExistingCodes(@Param("codes") Collection<String> codes);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM PromoCode p WHERE p.code IN :codes ORDER BY p.code")
+    List<PromoCode> findAllForUpdate(@Param("codes") Collection<String> codes);
 }
@@ -3,34 +3,204 @@ package com.promocodes.api.promocode;
 import com.promocodes.api.exception.DuplicateUniqueValueException;
 import com.promocodes.api.exception.InvalidValueException;
 import com.promocodes.api.exception.ObjectNotFoundException;
+import com.promocodes.api.metrics.PromoCodeMetrics;
+import com.promocodes.api.utils.MinorUnits;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityManager;
 import lombok.AllArgsConstructor;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @AllArgsConstructor
 public class PromoCodeService {
 
+    public static final int MAX_PAGE_SIZE = 1000;
+    private static final int MIN_CODE_LENGTH = 3;
+    private static final int MAX_CODE_LENGTH = 24;
+    private static final int BULK_CHUNK_SIZE = 1000;
+    private static final int BULK_CHUNK_ATTEMPTS = 3;
+    private static final SecureRandom RANDOM = new SecureRandom();
+
     private final PromoCodeRepository promoCodeRepository;
+    private final PromoCodeCache promoCodeCache;
+    private final PromoCodeFilter promoCodeFilter;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final PromoCodeMetrics promoCodeMetrics;
 
     public PromoCode addPromoCode(PromoCode promoCode) {
-        if (promoCode.getAmount().compareTo(BigDecimal.ZERO) <= 0)
+        Timer.Sample sample = promoCodeMetrics.startTimer();
+        String outcome = PromoCodeMetrics.ERROR;
+
+        try {
+            if (promoCode.getAmount().compareTo(BigDecimal.ZERO) <= 0)
+                throw new InvalidValueException("Promo code amount must be a positive number");
+
+            if (!MinorUnits.fits(promoCode.getAmount()))
+                throw new InvalidValueException("Promo code amount must have at most two decimal points and must not " +
+                        "exceed " + MinorUnits.MAX);
+
+            if (promoCodeRepository.findById(promoCode.getCode()).isPresent())
+                throw new DuplicateUniqueValueException("Given promo code already exists");
+
+            PromoCode promoCodeDB = promoCodeRepository.save(promoCode);
+            promoCodeCache.evictPromoCode(promoCode.getCode());
+            promoCodeFilter.add(promoCode.getCode());
+            outcome = PromoCodeMetrics.SUCCESS;
+
+            return promoCodeDB;
+        } catch (RuntimeException e) {
+            outcome = PromoCodeMetrics.outcomeOf(e);
+            throw e;
+        } finally {
+            promoCodeMetrics.stopTimer(sample, PromoCodeMetrics.PROMO_CODES_CREATED, outcome);
+        }
+    }
+
+    public int generatePromoCodes(String prefix, int count, int length, String alphabet, PromoCode terms) {
+        if (terms.getAmount().compareTo(BigDecimal.ZERO) <= 0)
             throw new InvalidValueException("Promo code amount must be a positive number");
 
-        if (promoCodeRepository.findById(promoCode.getCode()).isPresent())
-            throw new DuplicateUniqueValueException("Given promo code already exists");
+        if (!MinorUnits.fits(terms.getAmount()))
+            throw new InvalidValueException("Promo code amount must have at most two decimal points and must not exceed " +
+                    MinorUnits.MAX);
+
+        if (prefix.length() + length < MIN_CODE_LENGTH || prefix.length() + length > MAX_CODE_LENGTH)
+            throw new InvalidValueException("Promo code prefix and generated part must have " + MIN_CODE_LENGTH +
+                    "-" + MAX_CODE_LENGTH + " characters in total");
+
+        String symbols = alphabet.chars().distinct().mapToObj(Character::toString).collect(Collectors.joining());
+
+        // Leave enough headroom so that random draws rarely hit an already taken code.
+        if (Math.pow(symbols.length(), length) < 2.0 * count)
+            throw new InvalidValueException("Promo code alphabet and length allow too few unique codes");
+
+        int generated = 0;
+        int attempt = 1;
+
+        // Every chunk is committed on its own, so codes of earlier chunks stay when a later one fails.
+        while (generated < count) {
+            int chunkSize = Math.min(BULK_CHUNK_SIZE, count - generated);
+            Set<String> codes = new HashSet<>(chunkSize * 2);
+
+            while (codes.size() < chunkSize)
+                codes.addAll(randomCodes(prefix, symbols, length, chunkSize - codes.size()));
+
+            Integer persisted;
+
+            try {
+                persisted = transactionTemplate.execute(status -> persistNewPromoCodes(codes, terms));
+            } catch (ConstraintViolationException e) {
+                // A code was added by another request between the check and the insert, the chunk is drawn again.
+                if (attempt++ == BULK_CHUNK_ATTEMPTS)
+                    throw new DuplicateUniqueValueException("Generated promo codes kept colliding with codes added " +
+                            "meanwhile, " + generated + " of " + count + " codes were created");
+
+                continue;
+            }
+
+            attempt = 1;
+
+            if (persisted == null || persisted == 0)
+                throw new InvalidValueException("Promo code alphabet and length allow too few unique codes");
+
+            promoCodeFilter.addAll(codes);
 
-        return promoCodeRepository.save(promoCode);
+            generated += persisted;
+        }
+
+        return generated;
+    }
+
+    public List<PromoCode> getPromoCodes(String after, int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE)
+            throw new InvalidValueException("Page size must be a number between 1 and " + MAX_PAGE_SIZE);
+
+        if (after == null)
+            return promoCodeRepository.findAllByOrderByCodeAsc(Limit.of(limit));
+
+        return promoCodeRepository.findByCodeGreaterThanOrderByCodeAsc(after, Limit.of(limit));
     }
 
-    public List<PromoCode> getAllPromoCodes() {
-        return promoCodeRepository.findAll();
+    @Transactional(readOnly = true)
+    public void streamAllPromoCodes(Consumer<PromoCode> consumer) {
+        try (Stream<PromoCode> promoCodes = promoCodeRepository.streamAllByOrderByCodeAsc()) {
+            promoCodes.forEach(p -> {
+                consumer.accept(p);
+                entityManager.detach(p);
+            });
+        }
     }
 
     public PromoCode getPromoCode(String code) {
         return promoCodeRepository.findById(code)
                 .orElseThrow(() -> new ObjectNotFoundException("Promo code: '" + code + "' does not exists"));
     }
+
+    private int persistNewPromoCodes(Set<String> codes, PromoCode terms) {
+        codes.removeAll(promoCodeRepository.findExistingCodes(codes));
+
+        for (String code : codes)
+            entityManager.persist(PromoCode.builder()
+                    .code(code)
+                    .expireDate(terms.getExpireDate())
+                    .maxUsages(terms.getMaxUsages())
+                    .totalUsages(0)
+                    .amount(terms.getAmount())
+                    .currency(terms.getCurrency())
+                    .codeType(terms.getCodeType())
+                    .build());
+
+        entityManager.flush();
+        entityManager.clear();
+
+        return codes.size();
+    }
+
+    private static List<String> randomCodes(String prefix, String symbols, int length, int count) {
+        // Random bytes are drawn in bulk and mapped onto the alphabet; bytes above the largest multiple of the
+        // alphabet size are rejected so that every symbol is equally likely.
+        int bound = 256 - 256 % symbols.length();
+        byte[] randomBytes = new byte[count * length * 2];
+        RANDOM.nextBytes(randomBytes);
+
+        List<String> codes = new ArrayList<>(count);
+        char[] code = new char[prefix.length() + length];
+        prefix.getChars(0, prefix.length(), code, 0);
+        int position = prefix.length();
+
+        for (byte b : randomBytes) {
+            int value = b & 0xFF;
+
+            if (value >= bound)
+                continue;
+
+            code[position++] = symbols.charAt(value % symbols.length());
+
+            if (position == code.length) {
+                codes.add(new String(code));
+
+                if (codes.size() == count)
+                    break;
+
+                position = prefix.length();
+            }
+        }
+
+        return codes;
+    }
 }
@@ -0,0 +1,28 @@
+package com.promocodes.api.promocode;
+
+import com.promocodes.api.utils.MinorUnits;
+
+import java.time.LocalDate;
+
+// Immutable terms of a promo code. Usage counter is deliberately left out, it changes with every purchase and must
+// always be read from the database. Amount is in minor units, hundredths of a percent for percentage codes.
+public record PromoCodeSnapshot(
+        String code,
+        LocalDate expireDate,
+        long maxUsages,
+        long amount,
+        String currency,
+        CodeType codeType
+) {
+
+    public static PromoCodeSnapshot of(PromoCode promoCode) {
+        return new PromoCodeSnapshot(
+                promoCode.getCode(),
+                promoCode.getExpireDate(),
+                promoCode.getMaxUsages(),
+                MinorUnits.of(promoCode.getAmount()),
+                promoCode.getCurrency(),
+                promoCode.getCodeType()
+        );
+    }
+}
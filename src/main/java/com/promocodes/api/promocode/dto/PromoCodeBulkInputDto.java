@@ -0,0 +1,47 @@
+package com.promocodes.api.promocode.dto;
+
+import com.promocodes.api.promocode.CodeType;
+import jakarta.validation.constraints.*;
+
+import java.time.LocalDate;
+
+public record PromoCodeBulkInputDto(
+
+        @NotNull(message = "Promo code prefix cannot be null, use empty text for no prefix")
+        @Pattern(
+                regexp = "^[a-zA-Z0-9]{0,23}$",
+                message = "Promo code prefix must be a text with 0-23 alphanumeric case-sensitive characters"
+        )
+        String prefix,
+        @Positive(message = "Number of generated promo codes must be a positive number")
+        @Max(value = 1_000_000, message = "At most 1000000 promo codes can be generated at once")
+        int count,
+        @Positive(message = "Length of generated part of promo code must be a positive number")
+        int length,
+        @NotBlank(message = "Promo code alphabet cannot be blank")
+        @Pattern(
+                regexp = "^[a-zA-Z0-9]+$",
+                message = "Promo code alphabet must contain only alphanumeric characters"
+        )
+        String alphabet,
+        @NotNull(message = "Promo code expiration date cannot be blank")
+        @Future(message = "Promo code expiration date must be in future")
+        LocalDate expireDate,
+        @Positive(message = "Max amount of usages of promo code must be a positive number")
+        long maxUsages,
+        @NotBlank(message = "Amount of discount promo code must be a positive number with two decimal points")
+        @Pattern(
+                regexp = "^[0-9]*[.]{1}[0-9]{2}$",
+                message = "Amount of discount promo code must be a positive number with two decimal points"
+        )
+        String amount,
+        @NotBlank(message = "Promo code currency cannot be blank")
+        @Pattern(
+                regexp = "^[A-Z]{3}$",
+                message = "Promo code currency must match ISO 4217 currency code"
+        )
+        String currency,
+        @NotNull(message = "Code type must have a value 'QUANTITATIVE' or 'PERCENTAGE'")
+        CodeType codeType
+) {
+}
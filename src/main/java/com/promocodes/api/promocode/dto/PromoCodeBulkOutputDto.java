@@ -0,0 +1,10 @@
+package com.promocodes.api.promocode.dto;
+
+public record PromoCodeBulkOutputDto(
+
+        String prefix,
+        int count,
+        long elapsedMillis,
+        long codesPerSecond
+) {
+}
@@ -1,9 +1,11 @@
 package com.promocodes.api.promocode.dto;
 
 import com.promocodes.api.promocode.PromoCode;
-import com.promocodes.api.utils.DecimalFormatter;
+import com.promocodes.api.utils.MoneyFormatter;
 
 import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 public class PromoCodeDtoMapper {
 
@@ -19,15 +21,46 @@ public class PromoCodeDtoMapper {
                 .build();
     }
 
+    public static PromoCode mapPromoCodeBulkInputDtoToPromoCode(PromoCodeBulkInputDto promoCodeBulkInputDto) {
+        return PromoCode.builder()
+                .expireDate(promoCodeBulkInputDto.expireDate())
+                .maxUsages(promoCodeBulkInputDto.maxUsages())
+                .totalUsages(0)
+                .amount(new BigDecimal(promoCodeBulkInputDto.amount()))
+                .currency(promoCodeBulkInputDto.currency())
+                .codeType(promoCodeBulkInputDto.codeType())
+                .build();
+    }
+
+    public static PromoCodeBulkOutputDto mapGeneratedPromoCodesToPromoCodeBulkOutputDto(String prefix,
+                                                                                        int count,
+                                                                                        long elapsedNanos) {
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+
+        return new PromoCodeBulkOutputDto(
+                prefix,
+                count,
+                elapsedMillis,
+                elapsedNanos == 0 ? count : count * TimeUnit.SECONDS.toNanos(1) / elapsedNanos
+        );
+    }
+
     public static PromoCodeOutputDto mapPromoCodeToPromoCodeOutputDto(PromoCode promoCode) {
         return new PromoCodeOutputDto(
                 promoCode.getCode(),
                 promoCode.getExpireDate(),
                 promoCode.getMaxUsages(),
                 promoCode.getTotalUsages(),
-                DecimalFormatter.formatToTwoDecimalPoints(promoCode.getAmount()),
+                MoneyFormatter.format(promoCode.getAmount()),
                 promoCode.getCurrency(),
                 promoCode.getCodeType()
         );
     }
+
+    public static PromoCodePageDto mapPromoCodesToPromoCodePageDto(List<PromoCode> promoCodes, int limit) {
+        return new PromoCodePageDto(
+                promoCodes.stream().map(PromoCodeDtoMapper::mapPromoCodeToPromoCodeOutputDto).toList(),
+                promoCodes.size() < limit ? null : promoCodes.get(promoCodes.size() - 1).getCode()
+        );
+    }
 }
@@ -0,0 +1,10 @@
+package com.promocodes.api.promocode.dto;
+
+import java.util.List;
+
+public record PromoCodePageDto(
+
+        List<PromoCodeOutputDto> promoCodes,
+        String nextCursor
+) {
+}
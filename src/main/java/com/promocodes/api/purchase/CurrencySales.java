@@ -0,0 +1,13 @@
+package com.promocodes.api.purchase;
+
+import java.time.LocalDateTime;
+
+// Sales of one currency in the bucket starting at given time, amounts in minor units
+public record CurrencySales(
+        String currency,
+        LocalDateTime start,
+        long totalAmount,
+        long totalDiscount,
+        long noOfPurchases
+) {
+}
@@ -0,0 +1,22 @@
+package com.promocodes.api.purchase;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Purchase accepted by the write-behind path. Sequence is assigned by PurchaseWriter when it is journaled, amounts are
+// in minor units. Redeemed tells whether a promo code usage was taken, which a discount rounded to zero does not show.
+public record JournaledPurchase(
+        long sequence,
+        UUID productId,
+        LocalDateTime timestamp,
+        long regularPrice,
+        long discount,
+        String currency,
+        String code,
+        boolean redeemed
+) {
+
+    public JournaledPurchase withSequence(long sequence) {
+        return new JournaledPurchase(sequence, productId, timestamp, regularPrice, discount, currency, code, redeemed);
+    }
+}
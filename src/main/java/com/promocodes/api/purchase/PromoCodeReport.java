@@ -0,0 +1,10 @@
+package com.promocodes.api.purchase;
+
+import java.util.List;
+
+public record PromoCodeReport(
+        String code,
+        String currency,
+        List<PromoCodeSales> buckets
+) {
+}
@@ -0,0 +1,32 @@
+package com.promocodes.api.purchase;
+
+import java.time.LocalDateTime;
+
+// Purchases made with a promo code in the bucket starting at given time. Amounts are in minor units. Only redeemed
+// purchases, the ones that took a usage of the code, count towards the amount, the rest may be in another currency.
+public record PromoCodeSales(
+        LocalDateTime start,
+        long noOfPurchases,
+        long noOfRedemptions,
+        long totalDiscount,
+        long totalAmount
+) {
+
+    public PromoCodeSales startingAt(LocalDateTime start) {
+        return new PromoCodeSales(start, noOfPurchases, noOfRedemptions, totalDiscount, totalAmount);
+    }
+
+    public PromoCodeSales plus(PromoCodeSales other) {
+        return new PromoCodeSales(
+                start,
+                noOfPurchases + other.noOfPurchases,
+                noOfRedemptions + other.noOfRedemptions,
+                totalDiscount + other.totalDiscount,
+                totalAmount + other.totalAmount
+        );
+    }
+
+    public double conversionRate() {
+        return noOfPurchases == 0 ? 0 : (double) noOfRedemptions / noOfPurchases;
+    }
+}
@@ -4,7 +4,6 @@ import com.promocodes.api.product.Product;
 import jakarta.persistence.*;
 import lombok.*;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.UUID;
 
@@ -14,6 +13,12 @@ import java.util.UUID;
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
+@Table(indexes = {
+        @Index(name = "idx_purchase_timestamp", columnList = "timestamp"),
+        @Index(name = "idx_purchase_product_timestamp", columnList = "product_id, timestamp"),
+        @Index(name = "idx_purchase_currency_timestamp", columnList = "currency, timestamp"),
+        @Index(name = "idx_purchase_code_sales", columnList = "code, timestamp, redeemed, discount, regular_price")
+})
 public class Purchase {
 
     @Id
@@ -21,14 +26,21 @@ public class Purchase {
     private UUID purchaseId;
     @Column(nullable = false)
     private LocalDateTime timestamp;
-    @Column(nullable = false)
-    private BigDecimal regularPrice;
-    @Column(nullable = false)
-    private BigDecimal discount;
-    @ManyToOne
+    // in minor units, written and summed on every purchase
+    private long regularPrice;
+    private long discount;
+    // lazy, so loading purchases does not look up their products, reads that need only its id get it from the column
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(
             name = "product_id",
             referencedColumnName = "productId"
     )
     private Product product;
+    // currency of the product at the time of purchase, so that per-currency queries do not join products
+    @Column(nullable = false)
+    private String currency;
+    // promo code given with the purchase, also when it could not be applied
+    private String code;
+    // a usage of the code was taken, also when its discount rounds to zero
+    private boolean redeemed;
 }
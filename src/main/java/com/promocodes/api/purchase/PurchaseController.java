@@ -1,12 +1,22 @@
 package com.promocodes.api.purchase;
 
 import com.promocodes.api.purchase.dto.CurrencySalesReportDto;
+import com.promocodes.api.purchase.dto.CurrencySalesSeriesDto;
+import com.promocodes.api.purchase.dto.PromoCodeReportDto;
+import com.promocodes.api.purchase.dto.PurchaseBatchInputDto;
+import com.promocodes.api.purchase.dto.PurchaseBatchOutputDto;
+import com.promocodes.api.purchase.dto.PurchaseDtoMapper;
+import com.promocodes.api.purchase.dto.SalesLedgerConsistencyDto;
+import jakarta.validation.Valid;
 import lombok.AllArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @RestController
@@ -15,17 +25,33 @@ import java.util.UUID;
 public class PurchaseController {
 
     private final PurchaseService purchaseService;
+    private final SalesLedgerService salesLedgerService;
+    // present on the write-behind profile only
+    private final Optional<WriteBehindPurchaseService> writeBehindPurchaseService;
 
     @PostMapping()
     public ResponseEntity<Void> addPurchase(@RequestParam("productId") UUID productId,
                                             @RequestParam(value = "code", required = false) String code) {
-        purchaseService.addPurchase(productId, code);
+        if (writeBehindPurchaseService.isPresent())
+            writeBehindPurchaseService.get().addPurchase(productId, code);
+        else
+            purchaseService.addPurchase(productId, code);
 
         return new ResponseEntity<>(
                 HttpStatus.CREATED
         );
     }
 
+    @PostMapping("/batch")
+    public ResponseEntity<PurchaseBatchOutputDto> addPurchases(@Valid @RequestBody PurchaseBatchInputDto purchaseBatchInputDto) {
+        List<PurchaseItem> items = PurchaseDtoMapper.mapPurchaseBatchInputDtoToPurchaseItems(purchaseBatchInputDto);
+
+        return new ResponseEntity<>(
+                PurchaseDtoMapper.mapPurchaseOutcomesToPurchaseBatchOutputDto(items, purchaseService.addPurchases(items)),
+                HttpStatus.OK
+        );
+    }
+
     @GetMapping("/report")
     public ResponseEntity<List<CurrencySalesReportDto>> getPurchaseReport() {
         return new ResponseEntity<>(
@@ -33,4 +59,47 @@ public class PurchaseController {
             HttpStatus.OK
         );
     }
+
+    @GetMapping(value = "/report", params = {"from", "to"})
+    public ResponseEntity<List<CurrencySalesSeriesDto>> getPurchaseReport(
+            @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(value = "bucket", defaultValue = "day") String bucket) {
+        List<CurrencySales> report = purchaseService.getPurchaseReport(from, to, ReportBucket.of(bucket));
+
+        return new ResponseEntity<>(
+                PurchaseDtoMapper.mapCurrencySalesToCurrencySalesSeriesDtos(report),
+                HttpStatus.OK
+        );
+    }
+
+    @GetMapping("/report/codes/{code}")
+    public ResponseEntity<PromoCodeReportDto> getPromoCodeReport(
+            @PathVariable("code") String code,
+            @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(value = "bucket", defaultValue = "day") String bucket) {
+        PromoCodeReport report = purchaseService.getPromoCodeReport(code, from, to, ReportBucket.of(bucket));
+
+        return new ResponseEntity<>(
+                PurchaseDtoMapper.mapPromoCodeReportToPromoCodeReportDto(report),
+                HttpStatus.OK
+        );
+    }
+
+    @PostMapping("/report/rebuild")
+    public ResponseEntity<List<CurrencySalesReportDto>> rebuildPurchaseReport() {
+        return new ResponseEntity<>(
+                salesLedgerService.rebuildFromPurchases(),
+                HttpStatus.OK
+        );
+    }
+
+    @GetMapping("/report/consistency")
+    public ResponseEntity<SalesLedgerConsistencyDto> checkPurchaseReportConsistency() {
+        return new ResponseEntity<>(
+                salesLedgerService.checkConsistency(),
+                HttpStatus.OK
+        );
+    }
 }
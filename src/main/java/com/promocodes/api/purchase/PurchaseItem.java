@@ -0,0 +1,9 @@
+package com.promocodes.api.purchase;
+
+import java.util.UUID;
+
+public record PurchaseItem(
+        UUID productId,
+        String code
+) {
+}
@@ -0,0 +1,145 @@
+package com.promocodes.api.purchase;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+// Append-only file of purchases that were acknowledged but may not be in the database yet. Every record carries
+// a CRC, a record torn by a crash in the middle of a write ends the replay and is cut off.
+public class PurchaseJournal implements Closeable {
+
+    private final FileChannel channel;
+
+    public PurchaseJournal(Path path) throws IOException {
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        this.channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.channel.position(channel.size());
+    }
+
+    // Returns once all purchases are on disk, with a single fsync for the whole batch.
+    public void append(List<JournaledPurchase> purchases) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(purchases.size() * 128);
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        for (JournaledPurchase purchase : purchases) {
+            byte[] record = serialize(purchase);
+            CRC32 crc = new CRC32();
+            crc.update(record);
+
+            out.writeInt(record.length);
+            out.write(record);
+            out.writeLong(crc.getValue());
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+        long start = channel.position();
+
+        try {
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+
+            channel.force(false);
+        } catch (IOException e) {
+            // a partly written batch was not acknowledged and must not be replayed, nor hide batches appended later
+            channel.truncate(start);
+            channel.position(start);
+            throw e;
+        }
+    }
+
+    public List<JournaledPurchase> replay() throws IOException {
+        List<JournaledPurchase> purchases = new ArrayList<>();
+        long validSize = 0;
+
+        channel.position(0);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+
+        try {
+            while (true) {
+                int length = in.readInt();
+
+                if (length <= 0 || length > channel.size())
+                    break;
+
+                byte[] record = in.readNBytes(length);
+                long expectedCrc = in.readLong();
+                CRC32 crc = new CRC32();
+                crc.update(record);
+
+                if (record.length != length || crc.getValue() != expectedCrc)
+                    break;
+
+                purchases.add(deserialize(record));
+                validSize += Integer.BYTES + length + Long.BYTES;
+            }
+        } catch (EOFException e) {
+            // end of the last complete record
+        }
+
+        channel.truncate(validSize);
+        channel.position(validSize);
+
+        return purchases;
+    }
+
+    public long size() throws IOException {
+        return channel.size();
+    }
+
+    public void truncate() throws IOException {
+        channel.truncate(0);
+        channel.position(0);
+        channel.force(true);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static byte[] serialize(JournaledPurchase purchase) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        out.writeLong(purchase.sequence());
+        out.writeLong(purchase.productId().getMostSignificantBits());
+        out.writeLong(purchase.productId().getLeastSignificantBits());
+        out.writeUTF(purchase.timestamp().toString());
+        out.writeLong(purchase.regularPrice());
+        out.writeLong(purchase.discount());
+        out.writeUTF(purchase.currency());
+        out.writeBoolean(purchase.code() != null);
+
+        if (purchase.code() != null)
+            out.writeUTF(purchase.code());
+
+        out.writeBoolean(purchase.redeemed());
+
+        return bytes.toByteArray();
+    }
+
+    private static JournaledPurchase deserialize(byte[] record) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+
+        return new JournaledPurchase(
+                in.readLong(),
+                new UUID(in.readLong(), in.readLong()),
+                LocalDateTime.parse(in.readUTF()),
+                in.readLong(),
+                in.readLong(),
+                in.readUTF(),
+                in.readBoolean() ? in.readUTF() : null,
+                in.readBoolean()
+        );
+    }
+}
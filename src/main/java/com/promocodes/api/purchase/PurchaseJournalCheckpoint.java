@@ -0,0 +1,19 @@
+package com.promocodes.api.purchase;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.*;
+
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PurchaseJournalCheckpoint {
+
+    @Id
+    private long id;
+    // sequence of the last journaled purchase stored in the database, updated in the same transaction
+    private long lastSequence;
+}
@@ -0,0 +1,8 @@
+package com.promocodes.api.purchase;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface PurchaseJournalCheckpointRepository extends JpaRepository<PurchaseJournalCheckpoint, Long> {
+}
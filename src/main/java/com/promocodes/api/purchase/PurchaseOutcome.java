@@ -0,0 +1,19 @@
+package com.promocodes.api.purchase;
+
+// Regular price and discount are in minor units and only set for created purchases
+public record PurchaseOutcome(
+        boolean created,
+        long regularPrice,
+        long discount,
+        String warning,
+        String error
+) {
+
+    public static PurchaseOutcome created(long regularPrice, long discount, String warning) {
+        return new PurchaseOutcome(true, regularPrice, discount, warning, null);
+    }
+
+    public static PurchaseOutcome rejected(String error) {
+        return new PurchaseOutcome(false, 0, 0, null, error);
+    }
+}
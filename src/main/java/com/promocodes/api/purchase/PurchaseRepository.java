@@ -1,10 +1,74 @@
 package com.promocodes.api.purchase;
 
+import com.promocodes.api.purchase.dto.CurrencySalesReportDto;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.UUID;
 
+// Time ranges are half-open, [from, to). Every query below is served by one of the indexes declared on Purchase.
+// Listings are returned as PurchaseSummary projections, which skip the persistence context and the product.
 @Repository
 public interface PurchaseRepository extends JpaRepository<Purchase, UUID> {
+
+    @Query("SELECT new com.promocodes.api.purchase.dto.CurrencySalesReportDto(" +
+            "p.currency, SUM(p.regularPrice - p.discount), SUM(p.discount), COUNT(p)) " +
+            "FROM Purchase p " +
+            "GROUP BY p.currency")
+    List<CurrencySalesReportDto> getCurrencySalesReport();
+
+    @Query("SELECT new com.promocodes.api.purchase.dto.CurrencySalesReportDto(" +
+            "p.currency, SUM(p.regularPrice - p.discount), SUM(p.discount), COUNT(p)) " +
+            "FROM Purchase p " +
+            "WHERE p.timestamp >= :from AND p.timestamp < :to " +
+            "GROUP BY p.currency")
+    List<CurrencySalesReportDto> getCurrencySalesReport(LocalDateTime from, LocalDateTime to);
+
+    @Query("SELECT new com.promocodes.api.purchase.PurchaseSummary(" +
+            "p.purchaseId, p.timestamp, p.product.productId, p.currency, p.regularPrice, p.discount, p.code) " +
+            "FROM Purchase p " +
+            "WHERE p.timestamp >= :from AND p.timestamp < :to " +
+            "ORDER BY p.timestamp")
+    List<PurchaseSummary> findAllInTimeRange(LocalDateTime from, LocalDateTime to, Limit limit);
+
+    @Query("SELECT new com.promocodes.api.purchase.PurchaseSummary(" +
+            "p.purchaseId, p.timestamp, p.product.productId, p.currency, p.regularPrice, p.discount, p.code) " +
+            "FROM Purchase p " +
+            "WHERE p.product.productId = :productId AND p.timestamp >= :from AND p.timestamp < :to " +
+            "ORDER BY p.timestamp")
+    List<PurchaseSummary> findAllByProductInTimeRange(UUID productId, LocalDateTime from, LocalDateTime to, Limit limit);
+
+    @Query("SELECT new com.promocodes.api.purchase.PurchaseSummary(" +
+            "p.purchaseId, p.timestamp, p.product.productId, p.currency, p.regularPrice, p.discount, p.code) " +
+            "FROM Purchase p " +
+            "WHERE p.currency = :currency AND p.timestamp >= :from AND p.timestamp < :to " +
+            "ORDER BY p.timestamp")
+    List<PurchaseSummary> findAllByCurrencyInTimeRange(String currency, LocalDateTime from, LocalDateTime to, Limit limit);
+
+    @Query("SELECT new com.promocodes.api.purchase.PurchaseSummary(" +
+            "p.purchaseId, p.timestamp, p.product.productId, p.currency, p.regularPrice, p.discount, p.code) " +
+            "FROM Purchase p " +
+            "WHERE p.code = :code AND p.timestamp >= :from AND p.timestamp < :to " +
+            "ORDER BY p.timestamp")
+    List<PurchaseSummary> findAllByCodeInTimeRange(String code, LocalDateTime from, LocalDateTime to, Limit limit);
+
+    @Query("SELECT COUNT(p) FROM Purchase p " +
+            "WHERE p.code = :code AND p.timestamp >= :from AND p.timestamp < :to")
+    long countByCodeInTimeRange(String code, LocalDateTime from, LocalDateTime to);
+
+    // Read from the code index alone, it also holds the amounts. Longer buckets are folded from hours by the caller.
+    @Query("SELECT new com.promocodes.api.purchase.PromoCodeSales(" +
+            "truncate(p.timestamp, hour), COUNT(p), " +
+            "SUM(CASE WHEN p.redeemed THEN 1 ELSE 0 END), " +
+            "SUM(p.discount), " +
+            "SUM(CASE WHEN p.redeemed THEN p.regularPrice - p.discount ELSE 0 END)) " +
+            "FROM Purchase p " +
+            "WHERE p.code = :code AND p.timestamp >= :from AND p.timestamp < :to " +
+            "GROUP BY truncate(p.timestamp, hour) " +
+            "ORDER BY truncate(p.timestamp, hour)")
+    List<PromoCodeSales> getPromoCodeSalesByHour(String code, LocalDateTime from, LocalDateTime to);
 }
@@ -1,22 +1,28 @@
 package com.promocodes.api.purchase;
 
-import com.promocodes.api.exception.ObjectNotFoundException;
+import com.promocodes.api.exception.InvalidValueException;
+import com.promocodes.api.metrics.PromoCodeMetrics;
+import com.promocodes.api.product.PriceQuote;
+import com.promocodes.api.product.PriceQuoteEngine;
 import com.promocodes.api.product.Product;
+import com.promocodes.api.product.ProductCache;
 import com.promocodes.api.product.ProductRepository;
-import com.promocodes.api.product.ProductService;
+import com.promocodes.api.product.ProductSnapshot;
 import com.promocodes.api.promocode.PromoCode;
+import com.promocodes.api.promocode.PromoCodeCache;
 import com.promocodes.api.promocode.PromoCodeRepository;
+import com.promocodes.api.promocode.PromoCodeSnapshot;
 import com.promocodes.api.purchase.dto.CurrencySalesReportDto;
-import com.promocodes.api.utils.DecimalFormatter;
+import io.micrometer.core.instrument.Timer;
 import lombok.AllArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
-import java.util.UUID;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @AllArgsConstructor
@@ -25,68 +31,194 @@ public class PurchaseService {
     private final PurchaseRepository purchaseRepository;
     private final ProductRepository productRepository;
     private final PromoCodeRepository promoCodeRepository;
-    private final ProductService productService;
+    private final PriceQuoteEngine priceQuoteEngine;
+    private final SalesLedgerService salesLedgerService;
+    private final ProductCache productCache;
+    private final PromoCodeCache promoCodeCache;
+    private final PromoCodeMetrics promoCodeMetrics;
 
+    @Transactional
     public void addPurchase(UUID productId, String code) {
-        Product productDB = productRepository.findById(productId)
-                .orElseThrow(() -> new ObjectNotFoundException("Product with id = " + productId + " does not exist"));
+        Timer.Sample sample = promoCodeMetrics.startTimer();
+        String outcome = PromoCodeMetrics.ERROR;
 
-        Map<String, String> discountMap;
-        BigDecimal discount = BigDecimal.ZERO;
+        try {
+            ProductSnapshot product = productCache.getProduct(productId);
 
-        if (code != null) {
-            PromoCode promoCode = promoCodeRepository.findById(code)
-                    .orElseThrow(() -> new ObjectNotFoundException("Promo code: '" + code + "' does not exists"));
+            long discount = 0;
+            boolean redeemed = false;
+            outcome = PromoCodeMetrics.REGULAR;
 
-            discountMap = productService.getProductDiscountPrice(productId, code);
+            if (code != null) {
+                PromoCodeSnapshot promoCode = promoCodeCache.getPromoCode(code);
 
-            if (discountMap.get("warning") == null) {
-                discount = productDB.getPrice().subtract(new BigDecimal(discountMap.get("discountPrice")));
-                promoCode.setTotalUsages(promoCode.getTotalUsages() + 1);
-                promoCodeRepository.save(promoCode);
+                // Usages are not read up front, the conditional update below takes one only while any are left.
+                PriceQuote priceQuote = priceQuoteEngine.quote(product, promoCode, 0);
+                outcome = PromoCodeMetrics.outcomeOf(priceQuote.reason());
+
+                if (priceQuote.applied()) {
+                    redeemed = promoCodeRepository.redeemPromoCode(code) == 1;
+
+                    if (redeemed)
+                        discount = priceQuote.discount();
+                    else
+                        outcome = PromoCodeMetrics.EXHAUSTED;
+                }
+
+                promoCodeMetrics.recordRedemption(code, outcome.equals(PromoCodeMetrics.APPLIED));
             }
+
+            Purchase purchase = Purchase.builder()
+                    .product(productRepository.getReferenceById(productId))
+                    .regularPrice(product.price())
+                    .timestamp(LocalDateTime.now())
+                    .discount(discount)
+                    .currency(product.currency())
+                    .code(code)
+                    .redeemed(redeemed)
+                    .build();
+
+            purchaseRepository.save(purchase);
+            salesLedgerService.recordPurchase(
+                    product.currency(), purchase.getTimestamp(), purchase.getRegularPrice(), discount);
+        } catch (RuntimeException e) {
+            outcome = PromoCodeMetrics.outcomeOf(e);
+            throw e;
+        } finally {
+            promoCodeMetrics.stopTimer(sample, PromoCodeMetrics.PURCHASES, outcome);
         }
+    }
+
+    // Items are priced in request order against usage counters of promo codes locked for the whole batch, so a code
+    // running out in the middle of the batch gives the same warning as it would for single purchases. Items with an
+    // unknown product or promo code are rejected on their own and do not affect the rest of the batch.
+    @Transactional
+    public List<PurchaseOutcome> addPurchases(List<PurchaseItem> items) {
+        Timer.Sample sample = promoCodeMetrics.startTimer();
+        Set<UUID> productIds = items.stream()
+                .map(PurchaseItem::productId)
+                .collect(Collectors.toSet());
+        Set<String> codes = items.stream()
+                .map(PurchaseItem::code)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+
+        Map<UUID, Product> products = productRepository.findAllById(productIds).stream()
+                .collect(Collectors.toMap(Product::getProductId, Function.identity()));
+        Map<String, PromoCode> promoCodes = codes.isEmpty() ? Map.of() : promoCodeRepository.findAllForUpdate(codes).stream()
+                .collect(Collectors.toMap(PromoCode::getCode, Function.identity()));
+
+        LocalDateTime timestamp = LocalDateTime.now();
+        LocalDate today = timestamp.toLocalDate();
+        List<PurchaseOutcome> outcomes = new ArrayList<>(items.size());
+        List<Purchase> purchases = new ArrayList<>(items.size());
+
+        for (PurchaseItem item : items) {
+            Product product = products.get(item.productId());
+
+            if (product == null) {
+                outcomes.add(PurchaseOutcome.rejected("Product with id = " + item.productId() + " does not exist"));
+                continue;
+            }
+
+            ProductSnapshot productSnapshot = ProductSnapshot.of(product);
+            long regularPrice = productSnapshot.price();
+            long discount = 0;
+            boolean redeemed = false;
+            String warning = null;
+
+            if (item.code() != null) {
+                PromoCode promoCode = promoCodes.get(item.code());
+
+                if (promoCode == null) {
+                    outcomes.add(PurchaseOutcome.rejected("Promo code: '" + item.code() + "' does not exists"));
+                    continue;
+                }
+
+                PriceQuote priceQuote = priceQuoteEngine.quote(
+                        productSnapshot, PromoCodeSnapshot.of(promoCode), promoCode.getTotalUsages(), today);
+                warning = priceQuote.warning();
 
-        Purchase purchase = Purchase.builder()
-                .product(productDB)
-                .regularPrice(productDB.getPrice())
-                .timestamp(LocalDateTime.now())
-                .discount(discount)
-                .build();
+                if (priceQuote.applied()) {
+                    discount = priceQuote.discount();
+                    redeemed = true;
+                    promoCode.setTotalUsages(promoCode.getTotalUsages() + 1);
+                }
 
-        purchaseRepository.save(purchase);
+                promoCodeMetrics.recordRedemption(item.code(), priceQuote.applied());
+            }
+
+            purchases.add(Purchase.builder()
+                    .product(product)
+                    .regularPrice(regularPrice)
+                    .timestamp(timestamp)
+                    .discount(discount)
+                    .currency(productSnapshot.currency())
+                    .code(item.code())
+                    .redeemed(redeemed)
+                    .build());
+            outcomes.add(PurchaseOutcome.created(regularPrice, discount, warning));
+        }
+
+        purchaseRepository.saveAll(purchases);
+
+        purchases.stream()
+                .collect(Collectors.groupingBy(Purchase::getCurrency))
+                .forEach((currency, currencyPurchases) -> salesLedgerService.recordPurchases(
+                        currency,
+                        timestamp,
+                        currencyPurchases.stream()
+                                .mapToLong(p -> p.getRegularPrice() - p.getDiscount())
+                                .sum(),
+                        currencyPurchases.stream()
+                                .mapToLong(Purchase::getDiscount)
+                                .sum(),
+                        currencyPurchases.size()
+                ));
+
+        promoCodeMetrics.stopTimer(sample, PromoCodeMetrics.PURCHASE_BATCHES, PromoCodeMetrics.SUCCESS);
+
+        return outcomes;
     }
 
     public List<CurrencySalesReportDto> getPurchaseReport() {
-        List<Purchase> purchases = purchaseRepository.findAll();
+        Timer.Sample sample = promoCodeMetrics.startTimer();
+        List<CurrencySalesReportDto> report = salesLedgerService.getCurrencySalesReport();
+        promoCodeMetrics.stopTimer(sample, PromoCodeMetrics.SALES_REPORTS, PromoCodeMetrics.SUCCESS);
+
+        return report;
+    }
 
-        List<String> currencies = purchases.stream().map(p -> p.getProduct().getCurrency()).distinct().toList();
+    // Rollups only hold whole buckets, so the range is widened to the buckets it touches.
+    public List<CurrencySales> getPurchaseReport(LocalDateTime from, LocalDateTime to, ReportBucket bucket) {
+        if (!from.isBefore(to))
+            throw new InvalidValueException("Report start must be before its end");
 
-        List<CurrencySalesReportDto> currencySalesReportDtos = new ArrayList<>();
+        LocalDateTime end = bucket.truncate(to);
 
-        for (String c : currencies) {
-            List<Purchase> currencyPurchases = purchases.stream()
-                    .filter(p -> p.getProduct().getCurrency().equals(c))
-                    .toList();
+        if (end.isBefore(to))
+            end = bucket.next(end);
 
-            BigDecimal totalAmount = BigDecimal.ZERO;
-            BigDecimal totalDiscount = BigDecimal.ZERO;
+        Timer.Sample sample = promoCodeMetrics.startTimer();
+        List<CurrencySales> report = salesLedgerService.getCurrencySales(bucket.truncate(from), end, bucket);
+        promoCodeMetrics.stopTimer(sample, PromoCodeMetrics.SALES_REPORTS, PromoCodeMetrics.SUCCESS);
 
-            for (Purchase p : currencyPurchases) {
-                totalAmount = totalAmount.add(p.getRegularPrice().subtract(p.getDiscount()));
-                totalDiscount = totalDiscount.add(p.getDiscount());
-            }
+        return report;
+    }
+
+    @Transactional(readOnly = true)
+    public PromoCodeReport getPromoCodeReport(String code, LocalDateTime from, LocalDateTime to, ReportBucket bucket) {
+        if (!from.isBefore(to))
+            throw new InvalidValueException("Report start must be before its end");
+
+        PromoCodeSnapshot promoCode = promoCodeCache.getPromoCode(code);
+        Map<LocalDateTime, PromoCodeSales> buckets = new LinkedHashMap<>();
 
-            currencySalesReportDtos.add(
-                    new CurrencySalesReportDto(
-                            c,
-                            DecimalFormatter.formatToTwoDecimalPoints(totalAmount),
-                            DecimalFormatter.formatToTwoDecimalPoints(totalDiscount),
-                            currencyPurchases.size()
-                    )
-            );
+        for (PromoCodeSales hour : purchaseRepository.getPromoCodeSalesByHour(code, from, to)) {
+            LocalDateTime start = bucket.truncate(hour.start());
+            buckets.merge(start, hour.startingAt(start), PromoCodeSales::plus);
         }
 
-        return currencySalesReportDtos;
+        return new PromoCodeReport(promoCode.code(), promoCode.currency(), List.copyOf(buckets.values()));
     }
 }
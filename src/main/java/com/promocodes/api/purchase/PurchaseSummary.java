@@ -0,0 +1,17 @@
+package com.promocodes.api.purchase;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Read-only view of a purchase for listings. Product id comes from the foreign key column, so neither the product nor
+// a managed Purchase entity is loaded. Amounts are in minor units.
+public record PurchaseSummary(
+        UUID purchaseId,
+        LocalDateTime timestamp,
+        UUID productId,
+        String currency,
+        long regularPrice,
+        long discount,
+        String code
+) {
+}
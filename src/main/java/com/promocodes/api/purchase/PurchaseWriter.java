@@ -0,0 +1,384 @@
+package com.promocodes.api.purchase;
+
+import com.promocodes.api.exception.TooManyRequestsException;
+import com.promocodes.api.metrics.PromoCodeMetrics;
+import com.promocodes.api.product.ProductRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+// Single writer behind the write-behind purchase path. Requests wait only until their purchase is journaled, which
+// is done with one fsync per batch, the batch is then stored in the database in one transaction together with the
+// journal checkpoint. Purchases journaled but not stored before a crash are stored again on the next start, those up
+// to the checkpoint are skipped, so each of them is stored exactly once. A batch that keeps failing while the writer
+// is running is moved to the dead-letter file, so one bad batch does not hold up all later purchases, and is stored
+// again on the next start under a checkpoint of its own. When even the dead-letter file cannot be written, the writer
+// keeps retrying, reports itself down and rejects new purchases until one of them succeeds.
+@Component
+@Profile("write-behind")
+public class PurchaseWriter implements SmartLifecycle, HealthIndicator {
+
+    private static final long CHECKPOINT_ID = 1;
+    private static final long DEAD_LETTER_CHECKPOINT_ID = 2;
+    private static final long RETRY_DELAY_MILLIS = 1000;
+
+    private final PurchaseRepository purchaseRepository;
+    private final ProductRepository productRepository;
+    private final PurchaseJournalCheckpointRepository checkpointRepository;
+    private final SalesLedgerService salesLedgerService;
+    private final TransactionTemplate transactionTemplate;
+    private final Path journalPath;
+    private final int batchSize;
+    private final long maxJournalSize;
+    private final Path deadLetterPath;
+    private final int maxAttempts;
+    private final BlockingQueue<PendingPurchase> queue;
+    // places are taken before the promo code is reserved, so a full queue rejects requests before they change anything
+    private final Semaphore places;
+    private final Counter writeFailures;
+    private final Counter deadLettered;
+
+    private PurchaseJournal journal;
+    private Thread thread;
+    private long nextSequence;
+    private boolean storeAbandoned;
+    private volatile boolean running;
+    private volatile boolean stalled;
+
+    public PurchaseWriter(PurchaseRepository purchaseRepository,
+                          ProductRepository productRepository,
+                          PurchaseJournalCheckpointRepository checkpointRepository,
+                          SalesLedgerService salesLedgerService,
+                          TransactionTemplate transactionTemplate,
+                          MeterRegistry meterRegistry,
+                          @Value("${promocodes.write-behind.journal}") Path journalPath,
+                          @Value("${promocodes.write-behind.capacity:10000}") int capacity,
+                          @Value("${promocodes.write-behind.batch-size:500}") int batchSize,
+                          @Value("${promocodes.write-behind.max-journal-size:67108864}") long maxJournalSize,
+                          @Value("${promocodes.write-behind.dead-letter:${promocodes.write-behind.journal}.dead}") Path deadLetterPath,
+                          @Value("${promocodes.write-behind.max-attempts:5}") int maxAttempts) {
+        this.purchaseRepository = purchaseRepository;
+        this.productRepository = productRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.salesLedgerService = salesLedgerService;
+        this.transactionTemplate = transactionTemplate;
+        this.journalPath = journalPath;
+        this.batchSize = batchSize;
+        this.maxJournalSize = maxJournalSize;
+        this.deadLetterPath = deadLetterPath;
+        this.maxAttempts = maxAttempts;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.places = new Semaphore(capacity);
+
+        Gauge.builder(PromoCodeMetrics.PURCHASES_QUEUED, queue, Collection::size)
+                .description("Purchases waiting to be journaled")
+                .register(meterRegistry);
+        this.writeFailures = Counter.builder(PromoCodeMetrics.PURCHASE_WRITE_FAILURES)
+                .description("Failed attempts to store a journaled batch in the database")
+                .register(meterRegistry);
+        this.deadLettered = Counter.builder(PromoCodeMetrics.PURCHASES_DEAD_LETTERED)
+                .description("Journaled purchases moved to the dead-letter file after failing to be stored")
+                .register(meterRegistry);
+    }
+
+    // Runs the purchase supplier only if there is a place in the queue and returns once the purchase is journaled.
+    // When it cannot be journaled, undo is given the purchase to take back what the supplier did.
+    public JournaledPurchase write(Supplier<JournaledPurchase> purchase, Consumer<JournaledPurchase> undo) {
+        if (stalled)
+            throw stalledException();
+
+        if (!running || !places.tryAcquire())
+            throw new TooManyRequestsException("Too many purchases are waiting to be written, try again later");
+
+        PendingPurchase pending;
+
+        try {
+            pending = new PendingPurchase(purchase.get(), new CompletableFuture<>());
+        } catch (RuntimeException e) {
+            places.release();
+            throw e;
+        }
+
+        queue.add(pending);
+
+        try {
+            return pending.journaled().join();
+        } catch (CompletionException e) {
+            undo.accept(pending.purchase());
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    @Override
+    public void start() {
+        try (PurchaseJournal deadLetters = new PurchaseJournal(deadLetterPath)) {
+            journal = new PurchaseJournal(journalPath);
+
+            // a batch moved to the dead letters just before a crash may still be in the journal
+            List<JournaledPurchase> deadLettered = deadLetters.replay();
+            Set<Long> deadLetteredSequences = deadLettered.stream()
+                    .map(JournaledPurchase::sequence)
+                    .collect(Collectors.toSet());
+
+            long lastStored = lastStored(CHECKPOINT_ID);
+            List<JournaledPurchase> unstored = journal.replay().stream()
+                    .filter(p -> p.sequence() > lastStored && !deadLetteredSequences.contains(p.sequence()))
+                    .toList();
+
+            if (!unstored.isEmpty())
+                transactionTemplate.executeWithoutResult(status -> store(unstored, CHECKPOINT_ID));
+
+            journal.truncate();
+            nextSequence = Math.max(unstored.isEmpty() ? lastStored : unstored.getLast().sequence(),
+                    storeDeadLetters(deadLetters, deadLettered)) + 1;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Purchase journal " + journalPath + " could not be replayed", e);
+        }
+
+        storeAbandoned = false;
+        stalled = false;
+        running = true;
+        thread = Thread.ofPlatform().name("purchase-writer").start(this::run);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+
+        try {
+            thread.join();
+
+            // purchases enqueued while the writer was stopping
+            List<PendingPurchase> rest = new ArrayList<>();
+            queue.drainTo(rest);
+
+            if (!rest.isEmpty())
+                writeBatch(rest);
+
+            if (!storeAbandoned)
+                journal.truncate();
+
+            journal.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public Health health() {
+        if (stalled)
+            return Health.down()
+                    .withDetail("reason", "A batch could neither be stored nor moved to the dead-letter file")
+                    .build();
+
+        return Health.up().build();
+    }
+
+    // Started before and stopped after the web server, so no request is accepted without a writer behind it.
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 1024;
+    }
+
+    private void run() {
+        List<PendingPurchase> batch = new ArrayList<>(batchSize);
+
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingPurchase first = queue.poll(100, TimeUnit.MILLISECONDS);
+
+                if (first == null)
+                    continue;
+
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                writeBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException e) {
+                // journal could not be truncated, it is retried after the next batch
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void writeBatch(List<PendingPurchase> batch) throws IOException, InterruptedException {
+        places.release(batch.size());
+
+        List<JournaledPurchase> purchases = new ArrayList<>(batch.size());
+
+        for (PendingPurchase pending : batch)
+            purchases.add(pending.purchase().withSequence(nextSequence++));
+
+        try {
+            journal.append(purchases);
+        } catch (IOException e) {
+            UncheckedIOException failure = new UncheckedIOException("Purchase could not be journaled", e);
+            batch.forEach(pending -> pending.journaled().completeExceptionally(failure));
+            return;
+        }
+
+        for (int i = 0; i < batch.size(); i++)
+            batch.get(i).journaled().complete(purchases.get(i));
+
+        // The journal keeps the batch when the writer is stopped before the database is back, it is stored on the
+        // next start. Later batches are then only journaled too, storing them would move the checkpoint past it and
+        // the replay would skip it.
+        if (storeAbandoned)
+            return;
+
+        // Past the last attempt the batch is retried together with the move to the dead letters until one of them
+        // succeeds, the journal would otherwise grow with purchases that are never stored while the writer is running.
+        for (int attempt = 1; ; attempt++) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> store(purchases, CHECKPOINT_ID));
+                break;
+            } catch (RuntimeException e) {
+                writeFailures.increment();
+
+                if (!running) {
+                    storeAbandoned = true;
+                    return;
+                }
+
+                if (attempt >= maxAttempts && moveToDeadLetters(purchases))
+                    return;
+
+                if (stalled)
+                    rejectQueued();
+
+                Thread.sleep(RETRY_DELAY_MILLIS);
+            }
+        }
+
+        stalled = false;
+
+        if (journal.size() > maxJournalSize)
+            journal.truncate();
+    }
+
+    // All batches before this one are stored and later ones are not journaled yet, so the journal holds only this batch
+    // and is cut off once the batch is safely in the dead-letter file. Otherwise it stays for the next start.
+    private boolean moveToDeadLetters(List<JournaledPurchase> purchases) throws IOException {
+        try (PurchaseJournal deadLetters = new PurchaseJournal(deadLetterPath)) {
+            deadLetters.append(purchases);
+        } catch (IOException e) {
+            stalled = true;
+            return false;
+        }
+
+        stalled = false;
+        deadLettered.increment(purchases.size());
+        journal.truncate();
+        return true;
+    }
+
+    // Purchases queued while the writer is stalled are not journaled yet, they fail so their promo code usages are
+    // given back instead of waiting for the writer behind the stalled batch.
+    private void rejectQueued() {
+        List<PendingPurchase> rejected = new ArrayList<>();
+        queue.drainTo(rejected);
+        places.release(rejected.size());
+        rejected.forEach(pending -> pending.journaled().completeExceptionally(stalledException()));
+    }
+
+    private static TooManyRequestsException stalledException() {
+        return new TooManyRequestsException("Purchases cannot be stored at the moment, try again later");
+    }
+
+    // Dead-lettered purchases were acknowledged as well, so they are stored like the journal, with a checkpoint of
+    // their own as they are older than the journal checkpoint. When they still fail, they stay in the file for the
+    // next start. Returns the last sequence taken by them, which later purchases must not use again.
+    private long storeDeadLetters(PurchaseJournal deadLetters, List<JournaledPurchase> deadLettered)
+            throws IOException {
+        long lastStored = lastStored(DEAD_LETTER_CHECKPOINT_ID);
+        List<JournaledPurchase> unstored = deadLettered.stream()
+                .filter(p -> p.sequence() > lastStored)
+                .toList();
+
+        if (!unstored.isEmpty()) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> store(unstored, DEAD_LETTER_CHECKPOINT_ID));
+            } catch (RuntimeException e) {
+                writeFailures.increment();
+                return deadLettered.getLast().sequence();
+            }
+        }
+
+        deadLetters.truncate();
+
+        return deadLettered.isEmpty() ? lastStored : Math.max(lastStored, deadLettered.getLast().sequence());
+    }
+
+    private long lastStored(long checkpointId) {
+        return checkpointRepository.findById(checkpointId)
+                .map(PurchaseJournalCheckpoint::getLastSequence)
+                .orElse(0L);
+    }
+
+    // Ledger and rollups are updated once per currency and hour of the batch instead of once per purchase.
+    private void store(List<JournaledPurchase> purchases, long checkpointId) {
+        purchaseRepository.saveAll(purchases.stream()
+                .map(p -> Purchase.builder()
+                        .product(productRepository.getReferenceById(p.productId()))
+                        .regularPrice(p.regularPrice())
+                        .timestamp(p.timestamp())
+                        .discount(p.discount())
+                        .currency(p.currency())
+                        .code(p.code())
+                        .redeemed(p.redeemed())
+                        .build())
+                .toList());
+
+        Map<String, Map<LocalDateTime, List<JournaledPurchase>>> sales = purchases.stream()
+                .collect(Collectors.groupingBy(JournaledPurchase::currency,
+                        Collectors.groupingBy(p -> ReportBucket.HOUR.truncate(p.timestamp()))));
+
+        sales.forEach((currency, hours) -> hours.forEach((hour, hourPurchases) -> salesLedgerService.recordPurchases(
+                currency,
+                hour,
+                hourPurchases.stream()
+                        .mapToLong(p -> p.regularPrice() - p.discount())
+                        .sum(),
+                hourPurchases.stream()
+                        .mapToLong(JournaledPurchase::discount)
+                        .sum(),
+                hourPurchases.size()
+        )));
+
+        checkpointRepository.save(new PurchaseJournalCheckpoint(checkpointId, purchases.getLast().sequence()));
+    }
+
+    private record PendingPurchase(JournaledPurchase purchase, CompletableFuture<JournaledPurchase> journaled) {
+    }
+}
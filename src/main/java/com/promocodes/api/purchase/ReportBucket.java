@@ -0,0 +1,36 @@
+package com.promocodes.api.purchase;
+
+import com.promocodes.api.exception.InvalidValueException;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+public enum ReportBucket {
+    HOUR,
+    DAY,
+    MONTH;
+
+    public LocalDateTime truncate(LocalDateTime timestamp) {
+        return switch (this) {
+            case HOUR -> timestamp.truncatedTo(ChronoUnit.HOURS);
+            case DAY -> timestamp.truncatedTo(ChronoUnit.DAYS);
+            case MONTH -> timestamp.toLocalDate().withDayOfMonth(1).atStartOfDay();
+        };
+    }
+
+    public LocalDateTime next(LocalDateTime start) {
+        return switch (this) {
+            case HOUR -> start.plusHours(1);
+            case DAY -> start.plusDays(1);
+            case MONTH -> start.plusMonths(1);
+        };
+    }
+
+    public static ReportBucket of(String name) {
+        for (ReportBucket bucket : values())
+            if (bucket.name().equalsIgnoreCase(name))
+                return bucket;
+
+        throw new InvalidValueException("Report bucket must be one of: hour, day, month");
+    }
+}
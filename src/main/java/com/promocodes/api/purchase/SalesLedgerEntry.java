@@ -0,0 +1,21 @@
+package com.promocodes.api.purchase;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.*;
+
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SalesLedgerEntry {
+
+    @Id
+    private String currency;
+    // in minor units
+    private long totalAmount;
+    private long totalDiscount;
+    private long noOfPurchases;
+}
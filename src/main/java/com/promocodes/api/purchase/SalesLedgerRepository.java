@@ -0,0 +1,68 @@
+package com.promocodes.api.purchase;
+
+import com.promocodes.api.purchase.dto.CurrencySalesReportDto;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface SalesLedgerRepository extends JpaRepository<SalesLedgerEntry, String> {
+
+    // shared with the reactive profile, which runs it over R2DBC
+    String ADD_PURCHASES = "UPDATE sales_ledger_entry SET " +
+            "total_amount = total_amount + :amount, " +
+            "total_discount = total_discount + :discount, " +
+            "no_of_purchases = no_of_purchases + :count " +
+            "WHERE currency = :currency";
+
+    @Modifying
+    @Query(value = "UPDATE sales_ledger_entry SET " +
+            "total_amount = total_amount + :amount, " +
+            "total_discount = total_discount + :discount, " +
+            "no_of_purchases = no_of_purchases + 1 " +
+            "WHERE currency = :currency", nativeQuery = true)
+    int addPurchase(@Param("currency") String currency,
+                    @Param("amount") long amount,
+                    @Param("discount") long discount);
+
+    @Modifying
+    @Query(value = ADD_PURCHASES, nativeQuery = true)
+    int addPurchases(@Param("currency") String currency,
+                     @Param("amount") long amount,
+                     @Param("discount") long discount,
+                     @Param("count") long count);
+
+    @Modifying
+    @Query("INSERT INTO SalesLedgerEntry (currency, totalAmount, totalDiscount, noOfPurchases) " +
+            "SELECT p.currency, SUM(p.regularPrice - p.discount), SUM(p.discount), COUNT(p) " +
+            "FROM Purchase p " +
+            "GROUP BY p.currency")
+    int insertFromPurchases();
+
+    @Modifying
+    @Query("INSERT INTO SalesLedgerEntry (currency, totalAmount, totalDiscount, noOfPurchases) " +
+            "SELECT DISTINCT pr.currency, 0L, 0L, 0L " +
+            "FROM Product pr " +
+            "WHERE pr.currency NOT IN (SELECT e.currency FROM SalesLedgerEntry e)")
+    int insertMissingCurrencies();
+
+    @Query("SELECT e.currency FROM SalesLedgerEntry e ORDER BY e.currency")
+    List<String> getCurrencies();
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT e FROM SalesLedgerEntry e WHERE e.currency = :currency")
+    Optional<SalesLedgerEntry> lockCurrency(String currency);
+
+    @Query("SELECT new com.promocodes.api.purchase.dto.CurrencySalesReportDto(" +
+            "e.currency, e.totalAmount, e.totalDiscount, e.noOfPurchases) " +
+            "FROM SalesLedgerEntry e " +
+            "WHERE e.noOfPurchases > 0")
+    List<CurrencySalesReportDto> getCurrencySalesReport();
+}
@@ -0,0 +1,164 @@
+package com.promocodes.api.purchase;
+
+import com.promocodes.api.purchase.dto.CurrencySalesReportDto;
+import com.promocodes.api.purchase.dto.SalesLedgerConsistencyDto;
+import lombok.AllArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+@Service
+@AllArgsConstructor
+public class SalesLedgerService {
+
+    private static final List<ReportBucket> ROLLED_UP_BUCKETS = List.of(ReportBucket.HOUR, ReportBucket.DAY);
+
+    private final SalesLedgerRepository salesLedgerRepository;
+    private final SalesRollupRepository salesRollupRepository;
+    private final PurchaseRepository purchaseRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    // Ledger rows are opened up front, outside purchase transactions, so that concurrent purchases only ever
+    // increment an existing row and never race to insert it. A transaction of the caller is suspended, also one that
+    // has just committed, so each step below runs in a transaction of its own.
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void openCurrencies() {
+        try {
+            transactionTemplate.executeWithoutResult(status -> salesLedgerRepository.insertMissingCurrencies());
+        } catch (DataIntegrityViolationException e) {
+            // another thread has just opened the same currency
+        }
+
+        openRollups();
+    }
+
+    // Same for rollup rows of the current and the next hour and day, so they are open before purchases reach them.
+    // Rows of a currency are opened while holding its ledger row, which purchases update before their rollups, so a
+    // purchase never meets a rollup row that another transaction has inserted but not committed yet. One transaction
+    // per currency keeps these locks from deadlocking with batches that span several currencies.
+    @Scheduled(cron = "0 */10 * * * *")
+    public void openRollups() {
+        LocalDateTime now = LocalDateTime.now();
+
+        for (String currency : salesLedgerRepository.getCurrencies())
+            transactionTemplate.executeWithoutResult(status -> {
+                salesLedgerRepository.lockCurrency(currency);
+
+                for (ReportBucket bucket : ROLLED_UP_BUCKETS) {
+                    LocalDateTime current = bucket.truncate(now);
+
+                    for (LocalDateTime start : List.of(current, bucket.next(current)))
+                        salesRollupRepository.insertMissingCurrency(bucket.name(), start, currency);
+                }
+            });
+    }
+
+    @Transactional
+    public void recordPurchase(String currency, LocalDateTime timestamp, long regularPrice, long discount) {
+        long amount = regularPrice - discount;
+
+        if (salesLedgerRepository.addPurchase(currency, amount, discount) == 0)
+            salesLedgerRepository.save(SalesLedgerEntry.builder()
+                    .currency(currency)
+                    .totalAmount(amount)
+                    .totalDiscount(discount)
+                    .noOfPurchases(1)
+                    .build());
+
+        rollUp(currency, timestamp, amount, discount, 1);
+    }
+
+    @Transactional
+    public void recordPurchases(String currency, LocalDateTime timestamp, long amount, long discount,
+                                long noOfPurchases) {
+        if (salesLedgerRepository.addPurchases(currency, amount, discount, noOfPurchases) == 0)
+            salesLedgerRepository.save(SalesLedgerEntry.builder()
+                    .currency(currency)
+                    .totalAmount(amount)
+                    .totalDiscount(discount)
+                    .noOfPurchases(noOfPurchases)
+                    .build());
+
+        rollUp(currency, timestamp, amount, discount, noOfPurchases);
+    }
+
+    @Transactional(readOnly = true)
+    public List<CurrencySalesReportDto> getCurrencySalesReport() {
+        return salesLedgerRepository.getCurrencySalesReport();
+    }
+
+    // Range has to start and end on bucket boundaries, months are summed up from at most 31 days per currency.
+    @Transactional(readOnly = true)
+    public List<CurrencySales> getCurrencySales(LocalDateTime from, LocalDateTime to, ReportBucket bucket) {
+        return bucket == ReportBucket.MONTH
+                ? salesRollupRepository.getMonthlyCurrencySales(from, to)
+                : salesRollupRepository.getCurrencySales(bucket, from, to);
+    }
+
+    // Rollups of the current and the next hour and day are opened again once the rebuild has committed.
+    public List<CurrencySalesReportDto> rebuildFromPurchases() {
+        List<CurrencySalesReportDto> report = transactionTemplate.execute(status -> {
+            salesLedgerRepository.deleteAllInBatch();
+            salesLedgerRepository.insertFromPurchases();
+            salesLedgerRepository.insertMissingCurrencies();
+
+            salesRollupRepository.deleteAllInBatch();
+            salesRollupRepository.insertHoursFromPurchases();
+            salesRollupRepository.insertDaysFromHours();
+
+            return salesLedgerRepository.getCurrencySalesReport();
+        });
+
+        openRollups();
+
+        return report;
+    }
+
+    @Transactional(readOnly = true)
+    public SalesLedgerConsistencyDto checkConsistency() {
+        Set<CurrencySalesReportDto> ledgerReport = new HashSet<>(salesLedgerRepository.getCurrencySalesReport());
+        Set<CurrencySalesReportDto> purchasesReport = new HashSet<>(purchaseRepository.getCurrencySalesReport());
+
+        Set<String> mismatchedCurrencies = new HashSet<>();
+
+        for (CurrencySalesReportDto c : ledgerReport)
+            if (!purchasesReport.contains(c))
+                mismatchedCurrencies.add(c.currency());
+
+        for (CurrencySalesReportDto c : purchasesReport)
+            if (!ledgerReport.contains(c))
+                mismatchedCurrencies.add(c.currency());
+
+        return new SalesLedgerConsistencyDto(
+                mismatchedCurrencies.isEmpty(),
+                mismatchedCurrencies.stream().sorted().toList()
+        );
+    }
+
+    // Rows are normally open already and updated together. Otherwise the missing rows are opened and the update is
+    // run again. The purchase holds the ledger row of the currency by now, so no other transaction opens them meanwhile.
+    private void rollUp(String currency, LocalDateTime timestamp, long amount, long discount, long noOfPurchases) {
+        LocalDateTime hour = ReportBucket.HOUR.truncate(timestamp);
+        LocalDateTime day = ReportBucket.DAY.truncate(timestamp);
+
+        if (salesRollupRepository.addPurchases(hour, day, currency, amount, discount, noOfPurchases)
+                == ROLLED_UP_BUCKETS.size())
+            return;
+
+        for (ReportBucket bucket : ROLLED_UP_BUCKETS)
+            salesRollupRepository.insertMissingCurrency(bucket.name(), bucket.truncate(timestamp), currency);
+
+        salesRollupRepository.addPurchases(hour, day, currency, amount, discount, noOfPurchases);
+    }
+}
@@ -0,0 +1,41 @@
+package com.promocodes.api.purchase;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+// Sales of one currency in one hour or day. Months are summed up from days when reported.
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@IdClass(SalesRollupEntry.Key.class)
+public class SalesRollupEntry {
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    private ReportBucket bucket;
+    @Id
+    private LocalDateTime bucketStart;
+    @Id
+    private String currency;
+    // in minor units
+    private long totalAmount;
+    private long totalDiscount;
+    private long noOfPurchases;
+
+    @Getter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    public static class Key implements Serializable {
+
+        private ReportBucket bucket;
+        private LocalDateTime bucketStart;
+        private String currency;
+    }
+}
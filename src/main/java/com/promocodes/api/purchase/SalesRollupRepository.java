@@ -0,0 +1,85 @@
+package com.promocodes.api.purchase;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Time ranges are half-open, [from, to), and refer to bucket starts.
+@Repository
+public interface SalesRollupRepository extends JpaRepository<SalesRollupEntry, SalesRollupEntry.Key> {
+
+    // Hour and day rows of purchases in one statement. The IN lists let the primary key narrow the update to the two rows.
+    // Rows are updated only if both exist, so a purchase is never rolled up into one bucket but not the other.
+    // Native, as the reactive profile runs the same statement over R2DBC.
+    String ADD_PURCHASES = "UPDATE sales_rollup_entry SET " +
+            "total_amount = total_amount + :amount, " +
+            "total_discount = total_discount + :discount, " +
+            "no_of_purchases = no_of_purchases + :count " +
+            "WHERE bucket IN ('HOUR', 'DAY') AND bucket_start IN (:hour, :day) AND currency = :currency " +
+            "AND (bucket = 'HOUR' AND bucket_start = :hour OR bucket = 'DAY' AND bucket_start = :day) " +
+            "AND (SELECT COUNT(*) FROM sales_rollup_entry r WHERE r.currency = :currency " +
+            "AND (r.bucket = 'HOUR' AND r.bucket_start = :hour OR r.bucket = 'DAY' AND r.bucket_start = :day)) = 2";
+
+    // Opens an empty row only for a currency of the ledger, whose row the caller holds.
+    String INSERT_MISSING_CURRENCY = "INSERT INTO sales_rollup_entry " +
+            "(bucket, bucket_start, currency, total_amount, total_discount, no_of_purchases) " +
+            "SELECT :bucket, :start, e.currency, 0, 0, 0 " +
+            "FROM sales_ledger_entry e " +
+            "WHERE e.currency = :currency AND NOT EXISTS (" +
+            "SELECT 1 FROM sales_rollup_entry r " +
+            "WHERE r.bucket = :bucket AND r.bucket_start = :start AND r.currency = :currency)";
+
+    @Modifying
+    @Query(value = ADD_PURCHASES, nativeQuery = true)
+    int addPurchases(@Param("hour") LocalDateTime hour,
+                     @Param("day") LocalDateTime day,
+                     @Param("currency") String currency,
+                     @Param("amount") long amount,
+                     @Param("discount") long discount,
+                     @Param("count") long count);
+
+    @Modifying
+    @Query(value = INSERT_MISSING_CURRENCY, nativeQuery = true)
+    int insertMissingCurrency(@Param("bucket") String bucket,
+                              @Param("start") LocalDateTime start,
+                              @Param("currency") String currency);
+
+    @Modifying
+    @Query("INSERT INTO SalesRollupEntry (bucket, bucketStart, currency, totalAmount, totalDiscount, noOfPurchases) " +
+            "SELECT com.promocodes.api.purchase.ReportBucket.HOUR, truncate(p.timestamp, hour), p.currency, " +
+            "SUM(p.regularPrice - p.discount), SUM(p.discount), COUNT(p) " +
+            "FROM Purchase p " +
+            "GROUP BY truncate(p.timestamp, hour), p.currency")
+    int insertHoursFromPurchases();
+
+    @Modifying
+    @Query("INSERT INTO SalesRollupEntry (bucket, bucketStart, currency, totalAmount, totalDiscount, noOfPurchases) " +
+            "SELECT com.promocodes.api.purchase.ReportBucket.DAY, truncate(e.bucketStart, day), e.currency, " +
+            "SUM(e.totalAmount), SUM(e.totalDiscount), SUM(e.noOfPurchases) " +
+            "FROM SalesRollupEntry e " +
+            "WHERE e.bucket = com.promocodes.api.purchase.ReportBucket.HOUR " +
+            "GROUP BY truncate(e.bucketStart, day), e.currency")
+    int insertDaysFromHours();
+
+    @Query("SELECT new com.promocodes.api.purchase.CurrencySales(" +
+            "e.currency, e.bucketStart, e.totalAmount, e.totalDiscount, e.noOfPurchases) " +
+            "FROM SalesRollupEntry e " +
+            "WHERE e.bucket = :bucket AND e.bucketStart >= :from AND e.bucketStart < :to AND e.noOfPurchases > 0 " +
+            "ORDER BY e.currency, e.bucketStart")
+    List<CurrencySales> getCurrencySales(ReportBucket bucket, LocalDateTime from, LocalDateTime to);
+
+    @Query("SELECT new com.promocodes.api.purchase.CurrencySales(" +
+            "e.currency, truncate(e.bucketStart, month), SUM(e.totalAmount), SUM(e.totalDiscount), SUM(e.noOfPurchases)) " +
+            "FROM SalesRollupEntry e " +
+            "WHERE e.bucket = com.promocodes.api.purchase.ReportBucket.DAY " +
+            "AND e.bucketStart >= :from AND e.bucketStart < :to " +
+            "GROUP BY e.currency, truncate(e.bucketStart, month) " +
+            "HAVING SUM(e.noOfPurchases) > 0 " +
+            "ORDER BY e.currency, truncate(e.bucketStart, month)")
+    List<CurrencySales> getMonthlyCurrencySales(LocalDateTime from, LocalDateTime to);
+}
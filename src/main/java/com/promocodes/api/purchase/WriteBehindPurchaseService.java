@@ -0,0 +1,90 @@
+package com.promocodes.api.purchase;
+
+import com.promocodes.api.metrics.PromoCodeMetrics;
+import com.promocodes.api.product.PriceQuote;
+import com.promocodes.api.product.PriceQuoteEngine;
+import com.promocodes.api.product.ProductCache;
+import com.promocodes.api.product.ProductSnapshot;
+import com.promocodes.api.promocode.PromoCodeCache;
+import com.promocodes.api.promocode.PromoCodeRepository;
+import io.micrometer.core.instrument.Timer;
+import lombok.AllArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Same validation and outcomes as PurchaseService.addPurchase, but only the promo code usage is committed before
+// the response, the purchase itself is handed over to PurchaseWriter.
+@Service
+@Profile("write-behind")
+@AllArgsConstructor
+public class WriteBehindPurchaseService {
+
+    private final PurchaseWriter purchaseWriter;
+    private final PromoCodeRepository promoCodeRepository;
+    private final PriceQuoteEngine priceQuoteEngine;
+    private final ProductCache productCache;
+    private final PromoCodeCache promoCodeCache;
+    private final PromoCodeMetrics promoCodeMetrics;
+    private final TransactionTemplate transactionTemplate;
+
+    public void addPurchase(UUID productId, String code) {
+        Timer.Sample sample = promoCodeMetrics.startTimer();
+        String outcome = PromoCodeMetrics.ERROR;
+
+        try {
+            ProductSnapshot product = productCache.getProduct(productId);
+            // usages are not read up front, the conditional update in redeem takes one only while any are left
+            PriceQuote quote = code == null ? null : priceQuoteEngine.quote(product, promoCodeCache.getPromoCode(code), 0);
+            JournaledPurchase purchase = purchaseWriter.write(() -> {
+                boolean redeemed = redeem(code, quote);
+
+                return new JournaledPurchase(
+                        0,
+                        productId,
+                        LocalDateTime.now(),
+                        product.price(),
+                        redeemed ? quote.discount() : 0,
+                        product.currency(),
+                        code,
+                        redeemed
+                );
+            }, this::release);
+
+            outcome = PromoCodeMetrics.REGULAR;
+
+            if (code != null) {
+                outcome = PromoCodeMetrics.outcomeOf(quote.reason());
+
+                if (quote.applied() && !purchase.redeemed())
+                    outcome = PromoCodeMetrics.EXHAUSTED;
+
+                promoCodeMetrics.recordRedemption(code, outcome.equals(PromoCodeMetrics.APPLIED));
+            }
+        } catch (RuntimeException e) {
+            outcome = PromoCodeMetrics.outcomeOf(e);
+            throw e;
+        } finally {
+            promoCodeMetrics.stopTimer(sample, PromoCodeMetrics.PURCHASES, outcome);
+        }
+    }
+
+    // Gives back the usage of a purchase that could not be journaled.
+    private void release(JournaledPurchase purchase) {
+        if (purchase.redeemed())
+            transactionTemplate.executeWithoutResult(status -> promoCodeRepository.releasePromoCode(purchase.code()));
+    }
+
+    // Takes a usage of an applied code, returns false when the code has no usages left.
+    private boolean redeem(String code, PriceQuote priceQuote) {
+        if (priceQuote == null || !priceQuote.applied())
+            return false;
+
+        Integer redeemed = transactionTemplate.execute(status -> promoCodeRepository.redeemPromoCode(code));
+
+        return redeemed != null && redeemed == 1;
+    }
+}
@@ -1,9 +1,20 @@
 package com.promocodes.api.purchase.dto;
 
+import com.promocodes.api.utils.MoneyFormatter;
+
 public record CurrencySalesReportDto(
         String currency,
         String totalAmount,
         String totalDiscount,
         long noOfPurchases
 ) {
+
+    public CurrencySalesReportDto(String currency, Long totalAmount, Long totalDiscount, Long noOfPurchases) {
+        this(
+                currency,
+                MoneyFormatter.format(totalAmount),
+                MoneyFormatter.format(totalDiscount),
+                noOfPurchases
+        );
+    }
 }
@@ -0,0 +1,9 @@
+package com.promocodes.api.purchase.dto;
+
+import java.util.List;
+
+public record CurrencySalesSeriesDto(
+        String currency,
+        List<SalesReportBucketDto> buckets
+) {
+}
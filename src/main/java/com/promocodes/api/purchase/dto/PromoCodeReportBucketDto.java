@@ -0,0 +1,13 @@
+package com.promocodes.api.purchase.dto;
+
+import java.time.LocalDateTime;
+
+public record PromoCodeReportBucketDto(
+        LocalDateTime start,
+        long noOfPurchases,
+        long noOfRedemptions,
+        double conversionRate,
+        String totalDiscount,
+        String totalAmount
+) {
+}
@@ -0,0 +1,15 @@
+package com.promocodes.api.purchase.dto;
+
+import java.util.List;
+
+public record PromoCodeReportDto(
+        String code,
+        String currency,
+        long noOfPurchases,
+        long noOfRedemptions,
+        double conversionRate,
+        String totalDiscount,
+        String totalAmount,
+        List<PromoCodeReportBucketDto> buckets
+) {
+}
@@ -0,0 +1,16 @@
+package com.promocodes.api.purchase.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public record PurchaseBatchInputDto(
+
+        @NotEmpty(message = "Purchase batch must contain at least one item")
+        @Size(max = 10_000, message = "Purchase batch can contain at most 10000 items")
+        List<@Valid @NotNull(message = "Purchase item cannot be null") PurchaseBatchItemInputDto> items
+) {
+}
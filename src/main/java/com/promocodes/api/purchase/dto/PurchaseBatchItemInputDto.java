@@ -0,0 +1,13 @@
+package com.promocodes.api.purchase.dto;
+
+import jakarta.validation.constraints.NotNull;
+
+import java.util.UUID;
+
+public record PurchaseBatchItemInputDto(
+
+        @NotNull(message = "Product id of purchase item cannot be null")
+        UUID productId,
+        String code
+) {
+}
@@ -0,0 +1,16 @@
+package com.promocodes.api.purchase.dto;
+
+import java.util.UUID;
+
+public record PurchaseBatchItemOutputDto(
+
+        int index,
+        UUID productId,
+        String code,
+        boolean created,
+        String regularPrice,
+        String discount,
+        String warning,
+        String error
+) {
+}
@@ -0,0 +1,11 @@
+package com.promocodes.api.purchase.dto;
+
+import java.util.List;
+
+public record PurchaseBatchOutputDto(
+
+        int created,
+        int rejected,
+        List<PurchaseBatchItemOutputDto> items
+) {
+}
@@ -0,0 +1,91 @@
+package com.promocodes.api.purchase.dto;
+
+import com.promocodes.api.purchase.CurrencySales;
+import com.promocodes.api.purchase.PromoCodeReport;
+import com.promocodes.api.purchase.PromoCodeSales;
+import com.promocodes.api.purchase.PurchaseItem;
+import com.promocodes.api.purchase.PurchaseOutcome;
+import com.promocodes.api.utils.MoneyFormatter;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class PurchaseDtoMapper {
+
+    public static List<PurchaseItem> mapPurchaseBatchInputDtoToPurchaseItems(PurchaseBatchInputDto purchaseBatchInputDto) {
+        return purchaseBatchInputDto.items().stream()
+                .map(i -> new PurchaseItem(i.productId(), i.code()))
+                .toList();
+    }
+
+    public static PurchaseBatchOutputDto mapPurchaseOutcomesToPurchaseBatchOutputDto(List<PurchaseItem> items,
+                                                                                     List<PurchaseOutcome> outcomes) {
+        List<PurchaseBatchItemOutputDto> itemDtos = new ArrayList<>(outcomes.size());
+        int created = 0;
+
+        for (int i = 0; i < outcomes.size(); i++) {
+            PurchaseItem item = items.get(i);
+            PurchaseOutcome outcome = outcomes.get(i);
+
+            if (outcome.created())
+                created++;
+
+            itemDtos.add(new PurchaseBatchItemOutputDto(
+                    i,
+                    item.productId(),
+                    item.code(),
+                    outcome.created(),
+                    outcome.created() ? MoneyFormatter.format(outcome.regularPrice()) : null,
+                    outcome.created() ? MoneyFormatter.format(outcome.discount()) : null,
+                    outcome.warning(),
+                    outcome.error()
+            ));
+        }
+
+        return new PurchaseBatchOutputDto(created, outcomes.size() - created, itemDtos);
+    }
+
+    public static PromoCodeReportDto mapPromoCodeReportToPromoCodeReportDto(PromoCodeReport report) {
+        PromoCodeSales total = report.buckets().stream()
+                .reduce(new PromoCodeSales(null, 0, 0, 0, 0), PromoCodeSales::plus);
+
+        return new PromoCodeReportDto(
+                report.code(),
+                report.currency(),
+                total.noOfPurchases(),
+                total.noOfRedemptions(),
+                total.conversionRate(),
+                MoneyFormatter.format(total.totalDiscount()),
+                MoneyFormatter.format(total.totalAmount()),
+                report.buckets().stream()
+                        .map(b -> new PromoCodeReportBucketDto(
+                                b.start(),
+                                b.noOfPurchases(),
+                                b.noOfRedemptions(),
+                                b.conversionRate(),
+                                MoneyFormatter.format(b.totalDiscount()),
+                                MoneyFormatter.format(b.totalAmount())
+                        ))
+                        .toList()
+        );
+    }
+
+    // Sales come ordered by currency and bucket start
+    public static List<CurrencySalesSeriesDto> mapCurrencySalesToCurrencySalesSeriesDtos(List<CurrencySales> sales) {
+        Map<String, List<SalesReportBucketDto>> series = new LinkedHashMap<>();
+
+        for (CurrencySales s : sales)
+            series.computeIfAbsent(s.currency(), c -> new ArrayList<>()).add(new SalesReportBucketDto(
+                    s.start(),
+                    MoneyFormatter.format(s.totalAmount()),
+                    MoneyFormatter.format(s.totalDiscount()),
+                    s.noOfPurchases()
+            ));
+
+        return series.entrySet().stream()
+                .map(e -> new CurrencySalesSeriesDto(e.getKey(), e.getValue()))
+                .toList();
+    }
+}
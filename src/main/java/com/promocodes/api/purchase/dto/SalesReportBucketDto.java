@@ -0,0 +1,11 @@
+package com.promocodes.api.purchase.dto;
+
+import java.time.LocalDateTime;
+
+public record SalesReportBucketDto(
+        LocalDateTime start,
+        String totalAmount,
+        String totalDiscount,
+        long noOfPurchases
+) {
+}
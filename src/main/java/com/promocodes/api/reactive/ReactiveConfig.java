@@ -0,0 +1,42 @@
+package com.promocodes.api.reactive;
+
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.web.reactive.config.BlockingExecutionConfigurer;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+import org.springframework.web.reactive.function.server.RequestPredicates;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+@Configuration
+@Profile("reactive")
+public class ReactiveConfig implements WebFluxConfigurer {
+
+    // Tomcat is on the classpath for the servlet stack and would be picked first, run the event loop on Netty instead
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    // Router functions are mapped before annotated controllers, so these two routes take over the servlet endpoints
+    @Bean
+    public RouterFunction<ServerResponse> pricingRoutes(ReactivePricingHandler reactivePricingHandler) {
+        return RouterFunctions.route()
+                .GET("/api/products/{id}", RequestPredicates.queryParam("code", code -> true),
+                        reactivePricingHandler::getProductDiscountPrice)
+                .POST("/api/purchases", reactivePricingHandler::addPurchase)
+                .build();
+    }
+
+    // The remaining controllers call blocking JPA services, run them off the event loop
+    @Override
+    public void configureBlockingExecution(BlockingExecutionConfigurer configurer) {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("blocking-");
+        executor.setVirtualThreads(true);
+        configurer.setExecutor(executor);
+    }
+}
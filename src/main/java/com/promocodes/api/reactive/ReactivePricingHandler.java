@@ -0,0 +1,176 @@
+package com.promocodes.api.reactive;
+
+import com.promocodes.api.exception.InvalidValueException;
+import com.promocodes.api.exception.ObjectNotFoundException;
+import com.promocodes.api.metrics.PromoCodeMetrics;
+import com.promocodes.api.product.PriceQuote;
+import com.promocodes.api.product.PriceQuoteEngine;
+import com.promocodes.api.product.ProductCache;
+import com.promocodes.api.product.ProductSnapshot;
+import com.promocodes.api.product.dto.ProductDtoMapper;
+import com.promocodes.api.promocode.PromoCodeCache;
+import com.promocodes.api.promocode.PromoCodeSnapshot;
+import io.micrometer.core.instrument.Timer;
+import lombok.AllArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ProblemDetail;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Non-blocking counterparts of ProductController.getProductDiscountPrice and PurchaseController.addPurchase.
+// Prices come from PriceQuoteEngine and products and promo codes are read through ProductCache and PromoCodeCache,
+// only the database lookup itself is non-blocking, so both stacks give identical answers and share cache evictions.
+@Component
+@Profile("reactive")
+@AllArgsConstructor
+public class ReactivePricingHandler {
+
+    private final ReactivePurchaseStore reactivePurchaseStore;
+    private final PriceQuoteEngine priceQuoteEngine;
+    private final ProductCache productCache;
+    private final PromoCodeCache promoCodeCache;
+    private final PromoCodeMetrics promoCodeMetrics;
+
+    public Mono<ServerResponse> getProductDiscountPrice(ServerRequest request) {
+        return Mono.defer(() -> {
+                    UUID productId = parseUuid("id", request.pathVariable("id"));
+                    String code = request.queryParam("code").orElseThrow();
+                    Timer.Sample sample = promoCodeMetrics.startTimer();
+
+                    return getProduct(productId)
+                            .flatMap(product -> quote(product, code))
+                            .doOnSuccess(priceQuote -> promoCodeMetrics.stopTimer(sample,
+                                    PromoCodeMetrics.DISCOUNT_PRICES, PromoCodeMetrics.outcomeOf(priceQuote.reason())))
+                            .doOnError(e -> promoCodeMetrics.stopTimer(sample, PromoCodeMetrics.DISCOUNT_PRICES, outcomeOf(e)));
+                })
+                .flatMap(priceQuote -> ServerResponse.ok()
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue(ProductDtoMapper.mapPriceQuoteToDiscountPriceMap(priceQuote)))
+                .onErrorResume(e -> handleError(request, e));
+    }
+
+    public Mono<ServerResponse> addPurchase(ServerRequest request) {
+        return Mono.defer(() -> {
+                    UUID productId = parseUuid("productId", request.queryParam("productId")
+                            .orElseThrow(() -> new InvalidValueException("Required parameter 'productId' is not present.")));
+                    String code = request.queryParam("code").orElse(null);
+                    Timer.Sample sample = promoCodeMetrics.startTimer();
+
+                    return reactivePurchaseStore.inTransaction(purchase(productId, code))
+                            .doOnSuccess(outcome -> promoCodeMetrics.stopTimer(sample, PromoCodeMetrics.PURCHASES, outcome))
+                            .doOnError(e -> promoCodeMetrics.stopTimer(sample, PromoCodeMetrics.PURCHASES, outcomeOf(e)));
+                })
+                .then(ServerResponse.status(HttpStatus.CREATED).build())
+                .onErrorResume(e -> handleError(request, e));
+    }
+
+    // Same steps as PurchaseService.addPurchase, all statements run in one R2DBC transaction. Emits metrics outcome.
+    private Mono<String> purchase(UUID productId, String code) {
+        return getProduct(productId).flatMap(product -> redeem(product, code)
+                .flatMap(redemption -> {
+                    LocalDateTime timestamp = LocalDateTime.now();
+
+                    return reactivePurchaseStore
+                            .insertPurchase(product, code, redemption.discount(), redemption.redeemed(), timestamp)
+                            .then(reactivePurchaseStore.recordPurchase(
+                                    product.currency(), timestamp, product.price(), redemption.discount()))
+                            .thenReturn(redemption.outcome());
+                }));
+    }
+
+    private Mono<Redemption> redeem(ProductSnapshot product, String code) {
+        if (code == null)
+            return Mono.just(new Redemption(0, PromoCodeMetrics.REGULAR));
+
+        return quote(product, code)
+                .flatMap(priceQuote -> {
+                    if (!priceQuote.applied())
+                        return Mono.just(new Redemption(0, PromoCodeMetrics.outcomeOf(priceQuote.reason())));
+
+                    return reactivePurchaseStore.redeemPromoCode(code).map(updated -> updated == 1
+                            ? new Redemption(priceQuote.discount(), PromoCodeMetrics.APPLIED)
+                            : new Redemption(0, PromoCodeMetrics.EXHAUSTED));
+                })
+                .doOnNext(redemption -> promoCodeMetrics.recordRedemption(code, redemption.redeemed()));
+    }
+
+    private Mono<PriceQuote> quote(ProductSnapshot product, String code) {
+        return getPromoCode(code).flatMap(promoCode -> reactivePurchaseStore.getTotalUsages(code)
+                .map(totalUsages -> priceQuoteEngine.quote(product, promoCode, totalUsages)));
+    }
+
+    private Mono<ProductSnapshot> getProduct(UUID productId) {
+        return Mono.defer(() -> {
+            ProductSnapshot product = productCache.getCachedProduct(productId);
+
+            if (product != null)
+                return Mono.just(product);
+
+            return reactivePurchaseStore.findProduct(productId)
+                    .map(productCache::put)
+                    .switchIfEmpty(Mono.error(() -> productCache.missing(productId)));
+        });
+    }
+
+    private Mono<PromoCodeSnapshot> getPromoCode(String code) {
+        return Mono.defer(() -> {
+            PromoCodeSnapshot promoCode = promoCodeCache.getCachedPromoCode(code);
+
+            if (promoCode != null)
+                return Mono.just(promoCode);
+
+            return reactivePurchaseStore.findPromoCode(code)
+                    .map(promoCodeCache::put)
+                    .switchIfEmpty(Mono.error(() -> promoCodeCache.missing(code)));
+        });
+    }
+
+    private static UUID parseUuid(String name, String value) {
+        try {
+            return UUID.fromString(value);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidValueException("Parameter '" + name + "' must be a valid UUID");
+        }
+    }
+
+    private static String outcomeOf(Throwable e) {
+        return e instanceof RuntimeException runtimeException
+                ? PromoCodeMetrics.outcomeOf(runtimeException)
+                : PromoCodeMetrics.ERROR;
+    }
+
+    // Problem details as written by ApplicationExceptionHandler on the servlet stack
+    private static Mono<ServerResponse> handleError(ServerRequest request, Throwable e) {
+        HttpStatus status;
+
+        if (e instanceof ObjectNotFoundException)
+            status = HttpStatus.NOT_FOUND;
+        else if (e instanceof InvalidValueException)
+            status = HttpStatus.BAD_REQUEST;
+        else
+            return Mono.error(e);
+
+        ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(status, e.getMessage());
+        problemDetail.setTitle(status.getReasonPhrase());
+        problemDetail.setInstance(URI.create(request.path()));
+
+        return ServerResponse.status(status)
+                .contentType(MediaType.APPLICATION_PROBLEM_JSON)
+                .bodyValue(problemDetail);
+    }
+
+    private record Redemption(long discount, String outcome) {
+
+        boolean redeemed() {
+            return outcome.equals(PromoCodeMetrics.APPLIED);
+        }
+    }
+}
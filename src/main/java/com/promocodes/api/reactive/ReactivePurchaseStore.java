@@ -0,0 +1,170 @@
+package com.promocodes.api.reactive;
+
+import com.promocodes.api.product.ProductSnapshot;
+import com.promocodes.api.promocode.CodeType;
+import com.promocodes.api.promocode.PromoCodeSnapshot;
+import com.promocodes.api.purchase.ReportBucket;
+import com.promocodes.api.purchase.SalesLedgerRepository;
+import com.promocodes.api.purchase.SalesRollupRepository;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+// R2DBC access to the tables mapped by JPA, which still creates the schema and serves every other endpoint.
+// The connection pool and transaction manager are deliberately not exposed as beans: a ConnectionFactory bean
+// would switch off the JDBC DataSource and a second transaction manager would make @Transactional ambiguous.
+@Component
+@Profile("reactive")
+public class ReactivePurchaseStore implements DisposableBean {
+
+    private static final List<ReportBucket> ROLLED_UP_BUCKETS = List.of(ReportBucket.HOUR, ReportBucket.DAY);
+
+    private final ConnectionPool connectionPool;
+    private final DatabaseClient databaseClient;
+    private final TransactionalOperator transactionalOperator;
+
+    public ReactivePurchaseStore(@Value("${promocodes.reactive.r2dbc-url}") String url,
+                                 @Value("${promocodes.reactive.pool-size:10}") int poolSize,
+                                 @Value("${spring.datasource.username}") String username,
+                                 @Value("${spring.datasource.password}") String password) {
+        ConnectionFactoryOptions options = ConnectionFactoryOptions.parse(url).mutate()
+                .option(ConnectionFactoryOptions.USER, username)
+                .option(ConnectionFactoryOptions.PASSWORD, password)
+                .build();
+
+        this.connectionPool = new ConnectionPool(ConnectionPoolConfiguration.builder(ConnectionFactories.get(options))
+                .initialSize(poolSize)
+                .maxSize(poolSize)
+                .build());
+        this.databaseClient = DatabaseClient.create(connectionPool);
+        this.transactionalOperator = TransactionalOperator.create(new R2dbcTransactionManager(connectionPool));
+    }
+
+    public Mono<ProductSnapshot> findProduct(UUID productId) {
+        return databaseClient.sql("SELECT product_id, name, price, currency FROM product WHERE product_id = :productId")
+                .bind("productId", productId)
+                .map(row -> new ProductSnapshot(
+                        row.get("product_id", UUID.class),
+                        row.get("name", String.class),
+                        row.get("price", Long.class),
+                        row.get("currency", String.class)))
+                .one();
+    }
+
+    public Mono<PromoCodeSnapshot> findPromoCode(String code) {
+        return databaseClient.sql("SELECT code, expire_date, max_usages, amount, currency, code_type " +
+                        "FROM promo_code WHERE code = :code")
+                .bind("code", code)
+                .map(row -> new PromoCodeSnapshot(
+                        row.get("code", String.class),
+                        row.get("expire_date", LocalDate.class),
+                        row.get("max_usages", Long.class),
+                        row.get("amount", Long.class),
+                        row.get("currency", String.class),
+                        CodeType.valueOf(row.get("code_type", String.class))))
+                .one();
+    }
+
+    public Mono<Long> getTotalUsages(String code) {
+        return databaseClient.sql("SELECT total_usages FROM promo_code WHERE code = :code")
+                .bind("code", code)
+                .map(row -> row.get("total_usages", Long.class))
+                .one();
+    }
+
+    public Mono<Long> redeemPromoCode(String code) {
+        return databaseClient.sql("UPDATE promo_code SET total_usages = total_usages + 1 " +
+                        "WHERE code = :code AND total_usages < max_usages")
+                .bind("code", code)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    public Mono<Long> insertPurchase(ProductSnapshot product, String code, long discount, boolean redeemed,
+                                     LocalDateTime timestamp) {
+        DatabaseClient.GenericExecuteSpec insert = databaseClient.sql("INSERT INTO purchase " +
+                        "(purchase_id, \"TIMESTAMP\", regular_price, discount, product_id, currency, code, redeemed) " +
+                        "VALUES (:purchaseId, :timestamp, :regularPrice, :discount, :productId, :currency, :code, " +
+                        ":redeemed)")
+                .bind("purchaseId", UUID.randomUUID())
+                .bind("timestamp", timestamp)
+                .bind("regularPrice", product.price())
+                .bind("discount", discount)
+                .bind("productId", product.productId())
+                .bind("currency", product.currency())
+                .bind("redeemed", redeemed);
+
+        return (code != null ? insert.bind("code", code) : insert.bindNull("code", String.class))
+                .fetch()
+                .rowsUpdated();
+    }
+
+    // Same steps as SalesLedgerService.recordPurchase, with the statements of its repositories: the currency row is
+    // updated first and opened if missing, then the hour and day rows are updated together. When either is missing,
+    // both are opened empty while the currency row is held and the update is run again.
+    public Mono<Long> recordPurchase(String currency, LocalDateTime timestamp, long regularPrice, long discount) {
+        long amount = regularPrice - discount;
+
+        return databaseClient.sql(SalesLedgerRepository.ADD_PURCHASES)
+                .bind("amount", amount)
+                .bind("discount", discount)
+                .bind("count", 1L)
+                .bind("currency", currency)
+                .fetch()
+                .rowsUpdated()
+                .flatMap(updated -> updated > 0 ? Mono.just(updated) : databaseClient
+                        .sql("INSERT INTO sales_ledger_entry (currency, total_amount, total_discount, no_of_purchases) " +
+                                "VALUES (:currency, :amount, :discount, 1)")
+                        .bind("currency", currency)
+                        .bind("amount", amount)
+                        .bind("discount", discount)
+                        .fetch()
+                        .rowsUpdated())
+                .then(rollUp(currency, timestamp, amount, discount))
+                .flatMap(updated -> updated == ROLLED_UP_BUCKETS.size() ? Mono.just(updated) : Flux
+                        .fromIterable(ROLLED_UP_BUCKETS)
+                        .concatMap(bucket -> databaseClient.sql(SalesRollupRepository.INSERT_MISSING_CURRENCY)
+                                .bind("bucket", bucket.name())
+                                .bind("start", bucket.truncate(timestamp))
+                                .bind("currency", currency)
+                                .fetch()
+                                .rowsUpdated())
+                        .then(rollUp(currency, timestamp, amount, discount)));
+    }
+
+    private Mono<Long> rollUp(String currency, LocalDateTime timestamp, long amount, long discount) {
+        return databaseClient.sql(SalesRollupRepository.ADD_PURCHASES)
+                .bind("amount", amount)
+                .bind("discount", discount)
+                .bind("count", 1L)
+                .bind("hour", ReportBucket.HOUR.truncate(timestamp))
+                .bind("day", ReportBucket.DAY.truncate(timestamp))
+                .bind("currency", currency)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    public <T> Mono<T> inTransaction(Mono<T> mono) {
+        return transactionalOperator.transactional(mono);
+    }
+
+    @Override
+    public void destroy() {
+        connectionPool.dispose();
+    }
+}
@@ -0,0 +1,64 @@
+package com.promocodes.api.utils;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Set of strings that may answer "maybe" for a string it does not contain, at the given rate, but never "no" for one
+// it does. Bits are only ever set, atomically, so adds and lookups run concurrently without locks.
+public class BloomFilter {
+
+    private final AtomicLongArray words;
+    private final long bits;
+    private final int hashes;
+
+    public BloomFilter(long expectedInsertions, double falsePositiveRate) {
+        long optimalBits = (long) Math.ceil(
+                -Math.max(expectedInsertions, 1) * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+
+        this.words = new AtomicLongArray(Math.toIntExact(Math.max((optimalBits + 63) / 64, 1)));
+        this.bits = words.length() * 64L;
+        this.hashes = (int) Math.max(Math.round((double) bits / Math.max(expectedInsertions, 1) * Math.log(2)), 1);
+    }
+
+    public void add(String value) {
+        long hash1 = hash(value);
+        long hash2 = mix(hash1) | 1;
+
+        for (int i = 0; i < hashes; i++) {
+            long bit = Long.remainderUnsigned(hash1 + i * hash2, bits);
+            long mask = 1L << bit;
+
+            words.accumulateAndGet((int) (bit >>> 6), mask, (word, m) -> word | m);
+        }
+    }
+
+    public boolean mightContain(String value) {
+        long hash1 = hash(value);
+        long hash2 = mix(hash1) | 1;
+
+        for (int i = 0; i < hashes; i++) {
+            long bit = Long.remainderUnsigned(hash1 + i * hash2, bits);
+
+            if ((words.get((int) (bit >>> 6)) & 1L << bit) == 0)
+                return false;
+        }
+
+        return true;
+    }
+
+    // 64-bit FNV-1a over the chars, mixed so that similar codes spread over the whole filter
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+
+        for (int i = 0; i < value.length(); i++)
+            hash = (hash ^ value.charAt(i)) * 0x100000001b3L;
+
+        return mix(hash);
+    }
+
+    // finalizer of SplitMix64
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
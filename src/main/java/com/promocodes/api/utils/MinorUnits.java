@@ -0,0 +1,31 @@
+package com.promocodes.api.utils;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+// Money amounts as a long count of minor units. Every currency is kept with two decimal places, the scale the
+// API accepts and prints, so 12.50 is stored as 1250 whatever the currency.
+public class MinorUnits {
+
+    public static final int SCALE = 2;
+
+    // Largest accepted price or amount, far enough below Long.MAX_VALUE that totals of the largest cart or purchase
+    // batch, and of millions of purchases in a ledger or rollup row, cannot overflow.
+    public static final BigDecimal MAX = BigDecimal.valueOf(999_999_999_999L, SCALE);
+    public static final BigDecimal MIN = MAX.negate();
+
+    public static long of(BigDecimal amount) {
+        return amount.setScale(SCALE, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+    }
+
+    public static BigDecimal toBigDecimal(long minorUnits) {
+        return BigDecimal.valueOf(minorUnits, SCALE);
+    }
+
+    // Whether the amount can be stored without rounding or overflow
+    public static boolean fits(BigDecimal amount) {
+        return Math.max(amount.stripTrailingZeros().scale(), 0) <= SCALE
+                && amount.compareTo(MAX) <= 0
+                && amount.compareTo(MIN) >= 0;
+    }
+}
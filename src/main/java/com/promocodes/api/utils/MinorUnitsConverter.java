@@ -0,0 +1,21 @@
+package com.promocodes.api.utils;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.math.BigDecimal;
+
+// Stores a BigDecimal attribute as a BIGINT column of minor units
+@Converter
+public class MinorUnitsConverter implements AttributeConverter<BigDecimal, Long> {
+
+    @Override
+    public Long convertToDatabaseColumn(BigDecimal amount) {
+        return amount == null ? null : MinorUnits.of(amount);
+    }
+
+    @Override
+    public BigDecimal convertToEntityAttribute(Long minorUnits) {
+        return minorUnits == null ? null : MinorUnits.toBigDecimal(minorUnits);
+    }
+}
@@ -0,0 +1,51 @@
+package com.promocodes.api.utils;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+
+// Formats amounts with exactly two decimal places, rounding half up. Stateless apart from a per-thread char buffer,
+// so it is safe to call from any number of threads. Amounts already held in minor units are formatted without
+// creating any BigDecimal.
+public class MoneyFormatter {
+
+    // 19 digits of a long, sign and decimal point
+    private static final int BUFFER_SIZE = 21;
+    private static final ThreadLocal<char[]> BUFFER = ThreadLocal.withInitial(() -> new char[BUFFER_SIZE]);
+
+    public static String format(BigDecimal amount) {
+        BigDecimal scaled = amount.setScale(2, RoundingMode.HALF_UP);
+        BigInteger unscaled = scaled.unscaledValue();
+
+        if (unscaled.bitLength() > 63)
+            return scaled.toPlainString();
+
+        return format(unscaled.longValue());
+    }
+
+    public static String format(long minorUnits) {
+        if (minorUnits == Long.MIN_VALUE)
+            return BigDecimal.valueOf(minorUnits, 2).toPlainString();
+
+        char[] buffer = BUFFER.get();
+        boolean negative = minorUnits < 0;
+        long value = Math.abs(minorUnits);
+        int position = BUFFER_SIZE;
+
+        buffer[--position] = (char) ('0' + value % 10);
+        value /= 10;
+        buffer[--position] = (char) ('0' + value % 10);
+        value /= 10;
+        buffer[--position] = '.';
+
+        do {
+            buffer[--position] = (char) ('0' + value % 10);
+            value /= 10;
+        } while (value > 0);
+
+        if (negative)
+            buffer[--position] = '-';
+
+        return new String(buffer, position, BUFFER_SIZE - position);
+    }
+}
@@ -0,0 +1,59 @@
+-- Converts money columns of a database created before amounts were stored in minor units from DECIMAL(38,2) to
+-- BIGINT counts of hundredths. H2 commits every ALTER TABLE on its own, so instead of one transaction each step runs
+-- only while the column it works on is still in the state the step expects: the new column is filled from the old
+-- one while the old one is still DECIMAL and renamed once the old one is gone. A run that failed part way can be
+-- repeated and continues where it stopped, a run over converted columns changes nothing.
+
+EXECUTE IMMEDIATE CASE WHEN EXISTS (SELECT 1 FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_NAME = 'PRODUCT' AND COLUMN_NAME = 'PRICE' AND DATA_TYPE = 'NUMERIC')
+    THEN 'ALTER TABLE product ADD COLUMN IF NOT EXISTS price_minor BIGINT' ELSE 'COMMIT' END;
+EXECUTE IMMEDIATE CASE WHEN EXISTS (SELECT 1 FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_NAME = 'PRODUCT' AND COLUMN_NAME = 'PRICE' AND DATA_TYPE = 'NUMERIC')
+    THEN 'UPDATE product SET price_minor = CAST(price * 100 AS BIGINT)' ELSE 'COMMIT' END;
+EXECUTE IMMEDIATE CASE WHEN EXISTS (SELECT 1 FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_NAME = 'PRODUCT' AND COLUMN_NAME = 'PRICE' AND DATA_TYPE = 'NUMERIC')
+    THEN 'ALTER TABLE product DROP COLUMN price' ELSE 'COMMIT' END;
+ALTER TABLE product ALTER COLUMN IF EXISTS price_minor RENAME TO price;
+ALTER TABLE product ALTER COLUMN price SET NOT NULL;
+
+EXECUTE IMMEDIATE CASE WHEN EXISTS (SELECT 1 FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_NAME = 'PROMO_CODE' AND COLUMN_NAME = 'AMOUNT' AND DATA_TYPE = 'NUMERIC')
+    THEN 'ALTER TABLE promo_code ADD COLUMN IF NOT EXISTS amount_minor BIGINT' ELSE 'COMMIT' END;
+EXECUTE IMMEDIATE CASE WHEN EXISTS (SELECT 1 FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_NAME = 'PROMO_CODE' AND COLUMN_NAME = 'AMOUNT' AND DATA_TYPE = 'NUMERIC')
+    THEN 'UPDATE promo_code SET amount_minor = CAST(amount * 100 AS BIGINT)' ELSE 'COMMIT' END;
+EXECUTE IMMEDIATE CASE WHEN EXISTS (SELECT 1 FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_NAME = 'PROMO_CODE' AND COLUMN_NAME = 'AMOUNT' AND DATA_TYPE = 'NUMERIC')
+    THEN 'ALTER TABLE promo_code DROP COLUMN amount' ELSE 'COMMIT' END;
+ALTER TABLE promo_code ALTER COLUMN IF EXISTS amount_minor RENAME TO amount;
+ALTER TABLE promo_code ALTER COLUMN amount SET NOT NULL;
+
+EXECUTE IMMEDIATE CASE WHEN EXISTS (SELECT 1 FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_NAME = 'PURCHASE' AND COLUMN_NAME = 'REGULAR_PRICE' AND DATA_TYPE = 'NUMERIC')
+    THEN 'ALTER TABLE purchase ADD COLUMN IF NOT EXISTS regular_price_minor BIGINT' ELSE 'COMMIT' END;
+EXECUTE IMMEDIATE CASE WHEN EXISTS (SELECT 1 FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_NAME = 'PURCHASE' AND COLUMN_NAME = 'REGULAR_PRICE' AND DATA_TYPE = 'NUMERIC')
+    THEN 'UPDATE purchase SET regular_price_minor = CAST(regular_price * 100 AS BIGINT)' ELSE 'COMMIT' END;
+EXECUTE IMMEDIATE CASE WHEN EXISTS (SELECT 1 FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_NAME = 'PURCHASE' AND COLUMN_NAME = 'REGULAR_PRICE' AND DATA_TYPE = 'NUMERIC')
+    THEN 'ALTER TABLE purchase DROP COLUMN regular_price' ELSE 'COMMIT' END;
+ALTER TABLE purchase ALTER COLUMN IF EXISTS regular_price_minor RENAME TO regular_price;
+ALTER TABLE purchase ALTER COLUMN regular_price SET NOT NULL;
+
+EXECUTE IMMEDIATE CASE WHEN EXISTS (SELECT 1 FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_NAME = 'PURCHASE' AND COLUMN_NAME = 'DISCOUNT' AND DATA_TYPE = 'NUMERIC')
+    THEN 'ALTER TABLE purchase ADD COLUMN IF NOT EXISTS discount_minor BIGINT' ELSE 'COMMIT' END;
+EXECUTE IMMEDIATE CASE WHEN EXISTS (SELECT 1 FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_NAME = 'PURCHASE' AND COLUMN_NAME = 'DISCOUNT' AND DATA_TYPE = 'NUMERIC')
+    THEN 'UPDATE purchase SET discount_minor = CAST(discount * 100 AS BIGINT)' ELSE 'COMMIT' END;
+EXECUTE IMMEDIATE CASE WHEN EXISTS (SELECT 1 FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_NAME = 'PURCHASE' AND COLUMN_NAME = 'DISCOUNT' AND DATA_TYPE = 'NUMERIC')
+    THEN 'ALTER TABLE purchase DROP COLUMN discount' ELSE 'COMMIT' END;
+ALTER TABLE purchase ALTER COLUMN IF EXISTS discount_minor RENAME TO discount;
+ALTER TABLE purchase ALTER COLUMN discount SET NOT NULL;
+
+EXECUTE IMMEDIATE CASE WHEN EXISTS (SELECT 1 FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_NAME = 'SALES_LEDGER_ENTRY' AND COLUMN_NAME = 'TOTAL_AMOUNT' AND DATA_TYPE = 'NUMERIC')
+    THEN 'ALTER TABLE sales_ledger_entry ADD COLUMN IF NOT EXISTS total_amount_minor BIGINT' ELSE 'COMMIT' END;
+EXECUTE IMMEDIATE CASE WHEN EXISTS (SELECT 1 FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_NAME = 'SALES_LEDGER_ENTRY' AND COLUMN_NAME = 'TOTAL_AMOUNT' AND DATA_TYPE = 'NUMERIC')
+    THEN 'UPDATE sales_ledger_entry SET total_amount_minor = CAST(total_amount * 100 AS BIGINT)' ELSE 'COMMIT' END;
+EXECUTE IMMEDIATE CASE WHEN EXISTS (SELECT 1 FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_NAME = 'SALES_LEDGER_ENTRY' AND COLUMN_NAME = 'TOTAL_AMOUNT' AND DATA_TYPE = 'NUMERIC')
+    THEN 'ALTER TABLE sales_ledger_entry DROP COLUMN total_amount' ELSE 'COMMIT' END;
+ALTER TABLE sales_ledger_entry ALTER COLUMN IF EXISTS total_amount_minor RENAME TO total_amount;
+ALTER TABLE sales_ledger_entry ALTER COLUMN total_amount SET NOT NULL;
+
+EXECUTE IMMEDIATE CASE WHEN EXISTS (SELECT 1 FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_NAME = 'SALES_LEDGER_ENTRY' AND COLUMN_NAME = 'TOTAL_DISCOUNT' AND DATA_TYPE = 'NUMERIC')
+    THEN 'ALTER TABLE sales_ledger_entry ADD COLUMN IF NOT EXISTS total_discount_minor BIGINT' ELSE 'COMMIT' END;
+EXECUTE IMMEDIATE CASE WHEN EXISTS (SELECT 1 FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_NAME = 'SALES_LEDGER_ENTRY' AND COLUMN_NAME = 'TOTAL_DISCOUNT' AND DATA_TYPE = 'NUMERIC')
+    THEN 'UPDATE sales_ledger_entry SET total_discount_minor = CAST(total_discount * 100 AS BIGINT)' ELSE 'COMMIT' END;
+EXECUTE IMMEDIATE CASE WHEN EXISTS (SELECT 1 FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_NAME = 'SALES_LEDGER_ENTRY' AND COLUMN_NAME = 'TOTAL_DISCOUNT' AND DATA_TYPE = 'NUMERIC')
+    THEN 'ALTER TABLE sales_ledger_entry DROP COLUMN total_discount' ELSE 'COMMIT' END;
+ALTER TABLE sales_ledger_entry ALTER COLUMN IF EXISTS total_discount_minor RENAME TO total_discount;
+ALTER TABLE sales_ledger_entry ALTER COLUMN total_discount SET NOT NULL;
@@ -0,0 +1,10 @@
+-- Adds the currency and promo code columns of purchases to a database created by an earlier version. Currency is
+-- copied from the purchased product, the promo code of old purchases is not known and stays empty and not redeemed.
+-- Indexes are created by the application on its next start.
+
+ALTER TABLE purchase ADD COLUMN IF NOT EXISTS currency VARCHAR(255);
+ALTER TABLE purchase ADD COLUMN IF NOT EXISTS code VARCHAR(255);
+ALTER TABLE purchase ADD COLUMN IF NOT EXISTS redeemed BOOLEAN DEFAULT FALSE NOT NULL;
+UPDATE purchase p SET currency = (SELECT pr.currency FROM product pr WHERE pr.product_id = p.product_id)
+WHERE currency IS NULL;
+ALTER TABLE purchase ALTER COLUMN currency SET NOT NULL;
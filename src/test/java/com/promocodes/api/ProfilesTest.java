@@ -0,0 +1,27 @@
+package com.promocodes.api;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Profiles only change the settings they are about, so durable keeps its file database with any other profile.
+@SpringBootTest(properties = "promocodes.data-dir=./target/profiles-test")
+@ActiveProfiles({"durable", "virtual-threads"})
+class ProfilesTest {
+
+    @Value("${spring.datasource.url}")
+    private String datasourceUrl;
+    @Value("${promocodes.reactive.r2dbc-url}")
+    private String r2dbcUrl;
+
+    @Test
+    void durableAndVirtualThreadsUseFileDatabaseWithLongerLockTimeout() {
+        assertThat(datasourceUrl).startsWith("jdbc:h2:file:./target/profiles-test/promocodes;CACHE_SIZE=131072")
+                .endsWith(";LOCK_TIMEOUT=10000");
+        assertThat(r2dbcUrl).startsWith("r2dbc:h2:file:///./target/profiles-test/promocodes;CACHE_SIZE=131072")
+                .endsWith(";LOCK_TIMEOUT=10000");
+    }
+}
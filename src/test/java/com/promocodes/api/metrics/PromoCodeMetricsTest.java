@@ -0,0 +1,65 @@
+package com.promocodes.api.metrics;
+
+import com.promocodes.api.exception.DuplicateUniqueValueException;
+import com.promocodes.api.exception.InvalidValueException;
+import com.promocodes.api.exception.ObjectNotFoundException;
+import com.promocodes.api.product.PriceQuoteReason;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PromoCodeMetricsTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private PromoCodeMetrics promoCodeMetrics;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        promoCodeMetrics = new PromoCodeMetrics(meterRegistry);
+    }
+
+    @Test
+    void outcomeOfMapsEveryPriceQuoteReasonToSeparateTag() {
+        assertThat(PromoCodeMetrics.outcomeOf(PriceQuoteReason.APPLIED)).isEqualTo(PromoCodeMetrics.APPLIED);
+        assertThat(PromoCodeMetrics.outcomeOf(PriceQuoteReason.EXPIRED)).isEqualTo(PromoCodeMetrics.EXPIRED);
+        assertThat(PromoCodeMetrics.outcomeOf(PriceQuoteReason.CURRENCY_MISMATCH)).isEqualTo(PromoCodeMetrics.CURRENCY_MISMATCH);
+        assertThat(PromoCodeMetrics.outcomeOf(PriceQuoteReason.EXHAUSTED)).isEqualTo(PromoCodeMetrics.EXHAUSTED);
+    }
+
+    @Test
+    void outcomeOfMapsApplicationExceptionsToTags() {
+        assertThat(PromoCodeMetrics.outcomeOf(new ObjectNotFoundException("test"))).isEqualTo(PromoCodeMetrics.NOT_FOUND);
+        assertThat(PromoCodeMetrics.outcomeOf(new DuplicateUniqueValueException("test"))).isEqualTo(PromoCodeMetrics.DUPLICATE);
+        assertThat(PromoCodeMetrics.outcomeOf(new InvalidValueException("test"))).isEqualTo(PromoCodeMetrics.INVALID);
+        assertThat(PromoCodeMetrics.outcomeOf(new IllegalStateException("test"))).isEqualTo(PromoCodeMetrics.ERROR);
+    }
+
+    @Test
+    void recordRedemptionExposesShareOfRedeemedAttemptsPerCode() {
+        // when
+        promoCodeMetrics.recordRedemption("Summer2024", true);
+        promoCodeMetrics.recordRedemption("Summer2024", true);
+        promoCodeMetrics.recordRedemption("Summer2024", true);
+        promoCodeMetrics.recordRedemption("Summer2024", false);
+
+        // then
+        assertThat(meterRegistry.get(PromoCodeMetrics.REDEMPTION_RATE).tag("code", "Summer2024").gauge().value())
+                .isEqualTo(0.75);
+    }
+
+    @Test
+    void recordRedemptionReportsCodesAboveLimitTogether() {
+        // when
+        for (int i = 0; i < PromoCodeMetrics.MAX_TRACKED_CODES + 10; i++)
+            promoCodeMetrics.recordRedemption("Code" + i, i % 2 == 0);
+
+        // then
+        assertThat(meterRegistry.find(PromoCodeMetrics.REDEMPTION_RATE).gauges().size())
+                .isEqualTo(PromoCodeMetrics.MAX_TRACKED_CODES + 1);
+        assertThat(meterRegistry.get(PromoCodeMetrics.REDEMPTION_RATE).tag("code", PromoCodeMetrics.OTHER_CODES).gauge().value())
+                .isEqualTo(0.5);
+    }
+}
@@ -0,0 +1,78 @@
+package com.promocodes.api.metrics;
+
+import com.promocodes.api.product.Product;
+import com.promocodes.api.product.ProductRepository;
+import com.promocodes.api.product.ProductService;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+class QueryCountFilterTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private ProductService productService;
+    @Autowired
+    private ProductRepository productRepository;
+
+    @AfterEach
+    void tearDown() {
+        productRepository.deleteAll();
+    }
+
+    @Test
+    void queryCountFilterRecordsStatementsExecutedPerRequestByUriPattern() throws Exception {
+        // given
+        productService.addProduct(Product.builder()
+                .name("Water")
+                .price(new BigDecimal("5.00"))
+                .currency("PLN")
+                .build());
+
+        // when
+        mockMvc.perform(get("/api/products").param("limit", "10"))
+                .andExpect(status().isOk());
+
+        // then
+        DistributionSummary queries = meterRegistry.get(QueryCountFilter.DB_QUERIES)
+                .tag("method", "GET")
+                .tag("uri", "/api/products")
+                .summary();
+
+        assertThat(queries.count()).isEqualTo(1);
+        assertThat(queries.totalAmount()).isEqualTo(1.0);
+    }
+
+    @Test
+    void prometheusEndpointExposesApplicationMetrics() throws Exception {
+        // given
+        mockMvc.perform(get("/api/purchases/report"))
+                .andExpect(status().isOk());
+
+        // when then
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("promocodes_sales_reports_seconds_count")))
+                .andExpect(content().string(containsString("promocodes_http_db_queries_count")));
+    }
+}
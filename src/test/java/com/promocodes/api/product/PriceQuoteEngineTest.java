@@ -0,0 +1,158 @@
+package com.promocodes.api.product;
+
+import com.promocodes.api.promocode.CodeType;
+import com.promocodes.api.promocode.PromoCodeSnapshot;
+import com.promocodes.api.utils.MinorUnits;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+class PriceQuoteEngineTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2024, 5, 18);
+
+    private final PriceQuoteEngine priceQuoteEngine = new PriceQuoteEngine();
+
+    @Test
+    void quoteAppliesQuantitativeAndPercentageDiscounts() {
+        // given
+        ProductSnapshot product = product("10.00", "PLN");
+
+        // when
+        PriceQuote quantitative = priceQuoteEngine.quote(product, promoCode("2.50", "PLN", CodeType.QUANTITATIVE, TODAY, 10), 0, TODAY);
+        PriceQuote percentage = priceQuoteEngine.quote(product, promoCode("25.00", "PLN", CodeType.PERCENTAGE, TODAY, 10), 9, TODAY);
+
+        // then
+        assertThat(quantitative).isEqualTo(new PriceQuote(money("7.50"), money("2.50"), PriceQuoteReason.APPLIED));
+        assertThat(percentage).isEqualTo(new PriceQuote(money("7.50"), money("2.50"), PriceQuoteReason.APPLIED));
+        assertThat(percentage.applied()).isTrue();
+        assertThat(percentage.warning()).isNull();
+    }
+
+    @Test
+    void quoteRoundsPriceHalfUpAndTakesDiscountFromRoundedPrice() {
+        // given
+        ProductSnapshot product = product("9.99", "PLN");
+        PromoCodeSnapshot promoCode = promoCode("15.00", "PLN", CodeType.PERCENTAGE, TODAY, 10);
+
+        // when
+        PriceQuote priceQuote = priceQuoteEngine.quote(product, promoCode, 0, TODAY);
+
+        // then
+        assertThat(priceQuote.price()).isEqualTo(money("8.49"));
+        assertThat(priceQuote.discount()).isEqualTo(money("1.50"));
+        assertThat(priceQuote.price() + priceQuote.discount()).isEqualTo(product.price());
+    }
+
+    @Test
+    void quoteNeverGoesBelowZero() {
+        // given
+        ProductSnapshot product = product("3.00", "PLN");
+        PromoCodeSnapshot promoCode = promoCode("5.00", "PLN", CodeType.QUANTITATIVE, TODAY, 10);
+
+        // when
+        PriceQuote priceQuote = priceQuoteEngine.quote(product, promoCode, 0, TODAY);
+
+        // then
+        assertThat(priceQuote).isEqualTo(new PriceQuote(0, money("3.00"), PriceQuoteReason.APPLIED));
+    }
+
+    @Test
+    void quoteReturnsRegularPriceWithReasonIfPromoCodeCannotBeApplied() {
+        // given
+        ProductSnapshot product = product("10.00", "PLN");
+
+        // when
+        PriceQuote expired = priceQuoteEngine.quote(product, promoCode("1.00", "PLN", CodeType.QUANTITATIVE, TODAY.minusDays(1), 10), 0, TODAY);
+        PriceQuote currencyMismatch = priceQuoteEngine.quote(product, promoCode("1.00", "EUR", CodeType.QUANTITATIVE, TODAY, 10), 0, TODAY);
+        PriceQuote exhausted = priceQuoteEngine.quote(product, promoCode("1.00", "PLN", CodeType.QUANTITATIVE, TODAY, 10), 10, TODAY);
+
+        // then
+        assertThat(expired).isEqualTo(new PriceQuote(product.price(), 0, PriceQuoteReason.EXPIRED));
+        assertThat(currencyMismatch).isEqualTo(new PriceQuote(product.price(), 0, PriceQuoteReason.CURRENCY_MISMATCH));
+        assertThat(exhausted).isEqualTo(new PriceQuote(product.price(), 0, PriceQuoteReason.EXHAUSTED));
+        assertThat(exhausted.applied()).isFalse();
+        assertThat(exhausted.warning()).isEqualTo("The number of possible uses of the promo code has been exhausted");
+    }
+
+    @Test
+    void quoteRecomputesDiscountPriceAfterProductOrPromoCodeChange() {
+        // given
+        ProductSnapshot product = product("10.00", "PLN");
+        ProductSnapshot updatedProduct = new ProductSnapshot(product.productId(), "Water", money("20.00"), "PLN");
+        PromoCodeSnapshot promoCode = promoCode("10.00", "PLN", CodeType.PERCENTAGE, TODAY, 10);
+        PromoCodeSnapshot recreatedPromoCode = promoCode("25.00", "PLN", CodeType.PERCENTAGE, TODAY, 10);
+
+        // when
+        PriceQuote beforeUpdate = priceQuoteEngine.quote(product, promoCode, 0, TODAY);
+        PriceQuote afterUpdate = priceQuoteEngine.quote(updatedProduct, promoCode, 0, TODAY);
+        PriceQuote afterCodeChange = priceQuoteEngine.quote(updatedProduct, recreatedPromoCode, 0, TODAY);
+
+        // then
+        assertThat(beforeUpdate.price()).isEqualTo(money("9.00"));
+        assertThat(afterUpdate.price()).isEqualTo(money("18.00"));
+        assertThat(afterCodeChange.price()).isEqualTo(money("15.00"));
+    }
+
+    @Test
+    void discountPriceMatchesBigDecimalArithmeticBitForBit() {
+        // given
+        Random random = new Random(42);
+        List<Long> prices = new ArrayList<>(List.of(1L, 49L, 50L, 99L, 100L, 101L, 999L, 1_000_000_00L, Long.MAX_VALUE / 100));
+        for (int i = 0; i < 300; i++)
+            prices.add(random.nextLong(1, 100_000_000_000L));
+
+        for (long price : prices) {
+            ProductSnapshot product = new ProductSnapshot(null, "Water", price, "PLN");
+
+            // every percentage from 0.01% to 150.00%, a random sample of quantitative amounts
+            for (long amount = 1; amount <= 150_00; amount++) {
+                PromoCodeSnapshot percentage = new PromoCodeSnapshot("P", TODAY, 1, amount, "PLN", CodeType.PERCENTAGE);
+                PromoCodeSnapshot quantitative = new PromoCodeSnapshot("Q", TODAY, 1, random.nextLong(1, price * 2 + 2), "PLN", CodeType.QUANTITATIVE);
+
+                // when then
+                assertThat(MinorUnits.toBigDecimal(PriceQuoteEngine.discountPrice(product, percentage)))
+                        .isEqualTo(bigDecimalDiscountPrice(product, percentage));
+                assertThat(MinorUnits.toBigDecimal(PriceQuoteEngine.discountPrice(product, quantitative)))
+                        .isEqualTo(bigDecimalDiscountPrice(product, quantitative));
+            }
+        }
+    }
+
+    // Discount price as computed before amounts were kept in minor units
+    private static BigDecimal bigDecimalDiscountPrice(ProductSnapshot product, PromoCodeSnapshot promoCode) {
+        BigDecimal price = MinorUnits.toBigDecimal(product.price());
+        BigDecimal amount = MinorUnits.toBigDecimal(promoCode.amount());
+        BigDecimal discountPrice;
+
+        if (promoCode.codeType() == CodeType.QUANTITATIVE)
+            discountPrice = price.subtract(amount);
+        else
+            discountPrice = price.subtract(price.multiply(amount.divide(new BigDecimal("100.00"), RoundingMode.HALF_UP)));
+
+        if (discountPrice.signum() < 0)
+            discountPrice = BigDecimal.ZERO;
+
+        return discountPrice.setScale(2, RoundingMode.HALF_UP);
+    }
+
+    private static long money(String amount) {
+        return MinorUnits.of(new BigDecimal(amount));
+    }
+
+    private static ProductSnapshot product(String price, String currency) {
+        return new ProductSnapshot(UUID.randomUUID(), "Water", money(price), currency);
+    }
+
+    private static PromoCodeSnapshot promoCode(String amount, String currency, CodeType codeType, LocalDate expireDate, long maxUsages) {
+        return new PromoCodeSnapshot("Summer2024", expireDate, maxUsages, money(amount), currency, codeType);
+    }
+}
@@ -0,0 +1,103 @@
+package com.promocodes.api.product;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@SpringBootTest
+class ProductCacheTest {
+
+    @Autowired
+    private ProductCache productCache;
+    @Autowired
+    private ProductService productService;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @SpyBean
+    private ProductRepository productRepository;
+
+    @AfterEach
+    void tearDown() {
+        productRepository.deleteAll();
+    }
+
+    @Test
+    void getProductReadsProductFromDatabaseOnlyOnce() {
+        // given
+        Product product = productService.addProduct(Product.builder()
+                .name("Water")
+                .price(new BigDecimal("2.50"))
+                .currency("PLN")
+                .build());
+
+        // when
+        ProductSnapshot first = productCache.getProduct(product.getProductId());
+        ProductSnapshot second = productCache.getProduct(product.getProductId());
+
+        // then
+        verify(productRepository, times(1)).findById(product.getProductId());
+
+        assertThat(first).isEqualTo(second);
+        assertThat(first.price()).isEqualTo(2_50);
+    }
+
+    @Test
+    void updateProductByIdEvictsCachedProduct() {
+        // given
+        Product product = productService.addProduct(Product.builder()
+                .name("Juice")
+                .price(new BigDecimal("2.50"))
+                .currency("PLN")
+                .build());
+        productCache.getProduct(product.getProductId());
+
+        // when
+        productService.updateProductById(product.getProductId(), Product.builder()
+                .name("Juice")
+                .price(new BigDecimal("3.00"))
+                .currency("EUR")
+                .build());
+        ProductSnapshot updated = productCache.getProduct(product.getProductId());
+
+        // then
+        assertThat(updated.price()).isEqualTo(3_00);
+        assertThat(updated.currency()).isEqualTo("EUR");
+    }
+
+    @Test
+    void updateProductByIdEvictsProductCachedBeforeCommit() {
+        // given
+        Product product = productService.addProduct(Product.builder()
+                .name("Tea")
+                .price(new BigDecimal("2.50"))
+                .currency("PLN")
+                .build());
+
+        // when
+        transactionTemplate.executeWithoutResult(status -> {
+            productService.updateProductById(product.getProductId(), Product.builder()
+                    .name("Tea")
+                    .price(new BigDecimal("3.00"))
+                    .currency("PLN")
+                    .build());
+
+            // another request misses the cache and reads the product as last committed
+            assertThat(CompletableFuture.supplyAsync(() -> productCache.getProduct(product.getProductId())).join()
+                    .price()).isEqualTo(2_50);
+        });
+        ProductSnapshot updated = productCache.getProduct(product.getProductId());
+
+        // then
+        assertThat(updated.price()).isEqualTo(3_00);
+    }
+}
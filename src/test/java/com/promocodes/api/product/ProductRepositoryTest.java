@@ -4,8 +4,10 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
 
 import java.math.BigDecimal;
+import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -48,4 +50,25 @@ class ProductRepositoryTest {
         //then
         assertThat(testProduct.isEmpty()).isTrue();
     }
-}
\ No newline at end of file
+
+    @Test
+    void findByNameGreaterThanOrderByNameAscReturnsNextPageOrderedByName() {
+        // given
+        for (String name : List.of("Water", "Coffee", "Juice", "Tea", "Milk"))
+            productRepository.save(Product.builder()
+                    .name(name)
+                    .price(new BigDecimal("2.50"))
+                    .currency("PLN")
+                    .build());
+
+        // when
+        List<Product> firstPage = productRepository.findAllByOrderByNameAsc(Limit.of(2));
+        List<Product> secondPage = productRepository.findByNameGreaterThanOrderByNameAsc(
+                firstPage.get(firstPage.size() - 1).getName(), Limit.of(2)
+        );
+
+        // then
+        assertThat(firstPage).extracting(Product::getName).containsExactly("Coffee", "Juice");
+        assertThat(secondPage).extracting(Product::getName).containsExactly("Milk", "Tea");
+    }
+}
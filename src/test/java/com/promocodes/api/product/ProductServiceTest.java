@@ -3,21 +3,32 @@ package com.promocodes.api.product;
 import com.promocodes.api.exception.DuplicateUniqueValueException;
 import com.promocodes.api.exception.InvalidValueException;
 import com.promocodes.api.exception.ObjectNotFoundException;
+import com.promocodes.api.metrics.PromoCodeMetrics;
 import com.promocodes.api.promocode.CodeType;
 import com.promocodes.api.promocode.PromoCode;
+import com.promocodes.api.promocode.PromoCodeCache;
 import com.promocodes.api.promocode.PromoCodeRepository;
+import com.promocodes.api.promocode.PromoCodeSnapshot;
+import com.promocodes.api.purchase.SalesLedgerService;
+import com.promocodes.api.utils.MinorUnits;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
@@ -34,10 +45,29 @@ class ProductServiceTest {
     private ProductRepository productRepository;
     @Mock
     private PromoCodeRepository promoCodeRepository;
+    @Mock
+    private SalesLedgerService salesLedgerService;
+    @Mock
+    private ProductCache productCache;
+    @Mock
+    private PromoCodeCache promoCodeCache;
+    @Mock
+    private EntityManager entityManager;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
 
     @BeforeEach
     void setUp() {
-        productService = new ProductService(productRepository, promoCodeRepository);
+        productService = new ProductService(
+                productRepository,
+                promoCodeRepository,
+                salesLedgerService,
+                productCache,
+                promoCodeCache,
+                entityManager,
+                new PriceQuoteEngine(),
+                new PromoCodeMetrics(meterRegistry)
+        );
     }
 
     @Test
@@ -58,6 +88,7 @@ class ProductServiceTest {
 
         verify(productRepository).findByName(productNameArgumentCaptor.capture());
         verify(productRepository).save(productArgumentCaptor.capture());
+        verify(salesLedgerService).openCurrencies();
 
         String capturedProductName = productNameArgumentCaptor.getValue();
         Product capturedProduct = productArgumentCaptor.getValue();
@@ -104,6 +135,25 @@ class ProductServiceTest {
         verify(productRepository, never()).save(any());
     }
 
+    @Test
+    void addProductThrowsInvalidArgumentExceptionIfProductPriceExceedsMaxAmount() {
+        // given
+        Product product = Product.builder()
+                .name("Water")
+                .price(new BigDecimal("10000000000.00"))
+                .currency("PLN")
+                .build();
+
+        // when
+
+        // then
+        assertThatThrownBy(() -> productService.addProduct(product))
+                .isInstanceOf(InvalidValueException.class)
+                .hasMessage("Product price must have at most two decimal points and must not exceed 9999999999.99");
+
+        verify(productRepository, never()).save(any());
+    }
+
     @Test
     void addProductThrowsDuplicateUniqueValueExceptionIfProductWithGivenNameAlreadyExists() {
         // given
@@ -130,14 +180,55 @@ class ProductServiceTest {
     }
 
     @Test
-    void getAllProductsInvokesFindAllMethod() {
+    void getProductsReturnsFirstPageIfCursorIsNotGiven() {
+        // when
+        productService.getProducts(null, 50);
+
+        // then
+        verify(productRepository).findAllByOrderByNameAsc(Limit.of(50));
+        verify(productRepository, never()).findByNameGreaterThanOrderByNameAsc(any(), any());
+        verify(productRepository, never()).findAll();
+    }
+
+    @Test
+    void getProductsReturnsPageAfterGivenCursor() {
+        // when
+        productService.getProducts("Water", 50);
+
+        // then
+        verify(productRepository).findByNameGreaterThanOrderByNameAsc("Water", Limit.of(50));
+        verify(productRepository, never()).findAllByOrderByNameAsc(any());
+    }
+
+    @Test
+    void getProductsThrowsInvalidValueExceptionIfPageSizeIsOutOfRange() {
+        // when
+
+        // then
+        assertThatThrownBy(() -> productService.getProducts(null, 0))
+                .isInstanceOf(InvalidValueException.class);
+        assertThatThrownBy(() -> productService.getProducts(null, ProductService.MAX_PAGE_SIZE + 1))
+                .isInstanceOf(InvalidValueException.class);
+
+        verify(productRepository, never()).findAllByOrderByNameAsc(any());
+    }
+
+    @Test
+    void streamAllProductsPassesEachProductToConsumerAndDetachesIt() {
         // given
+        Product first = Product.builder().name("Juice").build();
+        Product second = Product.builder().name("Water").build();
+        given(productRepository.streamAllByOrderByNameAsc()).willReturn(Stream.of(first, second));
 
         // when
-        productService.getAllProducts();
+        List<Product> consumed = new ArrayList<>();
+        productService.streamAllProducts(consumed::add);
 
         // then
-        verify(productRepository).findAll();
+        verify(entityManager).detach(first);
+        verify(entityManager).detach(second);
+
+        assertThat(consumed).isEqualTo(List.of(first, second));
     }
 
     @Test
@@ -173,6 +264,8 @@ class ProductServiceTest {
         assertThat(capturedProduct.getDescription()).isEqualTo(product.getDescription());
         assertThat(capturedProduct.getPrice()).isEqualTo(product.getPrice());
         assertThat(capturedProduct.getCurrency()).isEqualTo(product.getCurrency());
+
+        verify(productCache).evictProduct(productId);
     }
 
     @Test
@@ -299,26 +392,28 @@ class ProductServiceTest {
                 .codeType(CodeType.QUANTITATIVE)
                 .build();
 
-        given(productRepository.findById(productId)).willReturn(Optional.of(product));
-        given(promoCodeRepository.findById(code)).willReturn(Optional.of(promoCode));
+        given(productCache.getProduct(productId)).willReturn(ProductSnapshot.of(product));
+        given(promoCodeCache.getPromoCode(code)).willReturn(PromoCodeSnapshot.of(promoCode));
+        given(promoCodeRepository.getTotalUsages(code)).willReturn(promoCode.getTotalUsages());
 
         // when
-        Map<String, String> returnedDiscountMap = productService.getProductDiscountPrice(productId, code);
+        PriceQuote returnedPriceQuote = productService.getProductDiscountPrice(productId, code);
 
         // then
         ArgumentCaptor<UUID> productIdArgumentCaptor = ArgumentCaptor.forClass(UUID.class);
         ArgumentCaptor<String> promoCodeIdArgumentCaptor = ArgumentCaptor.forClass(String.class);
 
-        verify(productRepository).findById(productIdArgumentCaptor.capture());
-        verify(promoCodeRepository).findById(promoCodeIdArgumentCaptor.capture());
+        verify(productCache).getProduct(productIdArgumentCaptor.capture());
+        verify(promoCodeCache).getPromoCode(promoCodeIdArgumentCaptor.capture());
 
         UUID capturedProductId = productIdArgumentCaptor.getValue();
         String capturedPromoCodeId = promoCodeIdArgumentCaptor.getValue();
 
         assertThat(capturedProductId).isEqualTo(productId);
         assertThat(capturedPromoCodeId).isEqualTo(code);
-        assertThat(returnedDiscountMap.get("discountPrice")).isEqualTo("5.00");
-        assertThat(returnedDiscountMap.get("warning")).isNull();
+        assertThat(returnedPriceQuote.price()).isEqualTo(5_00);
+        assertThat(returnedPriceQuote.discount()).isEqualTo(5_00);
+        assertThat(returnedPriceQuote.reason()).isEqualTo(PriceQuoteReason.APPLIED);
     }
 
     @Test
@@ -343,26 +438,27 @@ class ProductServiceTest {
                 .codeType(CodeType.PERCENTAGE)
                 .build();
 
-        given(productRepository.findById(productId)).willReturn(Optional.of(product));
-        given(promoCodeRepository.findById(code)).willReturn(Optional.of(promoCode));
+        given(productCache.getProduct(productId)).willReturn(ProductSnapshot.of(product));
+        given(promoCodeCache.getPromoCode(code)).willReturn(PromoCodeSnapshot.of(promoCode));
+        given(promoCodeRepository.getTotalUsages(code)).willReturn(promoCode.getTotalUsages());
 
         // when
-        Map<String, String> returnedDiscountMap = productService.getProductDiscountPrice(productId, code);
+        PriceQuote returnedPriceQuote = productService.getProductDiscountPrice(productId, code);
 
         // then
         ArgumentCaptor<UUID> productIdArgumentCaptor = ArgumentCaptor.forClass(UUID.class);
         ArgumentCaptor<String> promoCodeIdArgumentCaptor = ArgumentCaptor.forClass(String.class);
 
-        verify(productRepository).findById(productIdArgumentCaptor.capture());
-        verify(promoCodeRepository).findById(promoCodeIdArgumentCaptor.capture());
+        verify(productCache).getProduct(productIdArgumentCaptor.capture());
+        verify(promoCodeCache).getPromoCode(promoCodeIdArgumentCaptor.capture());
 
         UUID capturedProductId = productIdArgumentCaptor.getValue();
         String capturedPromoCodeId = promoCodeIdArgumentCaptor.getValue();
 
         assertThat(capturedProductId).isEqualTo(productId);
         assertThat(capturedPromoCodeId).isEqualTo(code);
-        assertThat(returnedDiscountMap.get("discountPrice")).isEqualTo("7.50");
-        assertThat(returnedDiscountMap.get("warning")).isNull();
+        assertThat(returnedPriceQuote.price()).isEqualTo(7_50);
+        assertThat(returnedPriceQuote.reason()).isEqualTo(PriceQuoteReason.APPLIED);
     }
 
     @Test
@@ -371,7 +467,8 @@ class ProductServiceTest {
         UUID productId = UUID.randomUUID();
         String code = "Summer2024";
 
-        given(productRepository.findById(productId)).willReturn(Optional.empty());
+        given(productCache.getProduct(productId))
+                .willThrow(new ObjectNotFoundException("Product with id = " + productId + " does not exist"));
 
         // when
 
@@ -381,8 +478,8 @@ class ProductServiceTest {
         assertThatThrownBy(() -> productService.getProductDiscountPrice(productId, code))
                 .isInstanceOf(ObjectNotFoundException.class);
 
-        verify(productRepository).findById(productIdArgumentCaptor.capture());
-        verify(promoCodeRepository, never()).findById(any());
+        verify(productCache).getProduct(productIdArgumentCaptor.capture());
+        verify(promoCodeCache, never()).getPromoCode(any());
 
         UUID capturedProductId = productIdArgumentCaptor.getValue();
 
@@ -396,8 +493,9 @@ class ProductServiceTest {
         UUID productId = UUID.randomUUID();
         String code = "Summer2024";
 
-        given(productRepository.findById(productId)).willReturn(Optional.of(Product.builder().productId(productId).build()));
-        given(promoCodeRepository.findById(code)).willReturn(Optional.empty());
+        given(productCache.getProduct(productId)).willReturn(ProductSnapshot.of(Product.builder().productId(productId).price(new BigDecimal("5.00")).build()));
+        given(promoCodeCache.getPromoCode(code))
+                .willThrow(new ObjectNotFoundException("Promo code: '" + code + "' does not exists"));
 
         // when
 
@@ -408,8 +506,8 @@ class ProductServiceTest {
         assertThatThrownBy(() -> productService.getProductDiscountPrice(productId, code))
                 .isInstanceOf(ObjectNotFoundException.class);
 
-        verify(productRepository).findById(productIdArgumentCaptor.capture());
-        verify(promoCodeRepository).findById(promoCodeIdArgumentCaptor.capture());
+        verify(productCache).getProduct(productIdArgumentCaptor.capture());
+        verify(promoCodeCache).getPromoCode(promoCodeIdArgumentCaptor.capture());
 
         UUID capturedProductId = productIdArgumentCaptor.getValue();
         String capturedPromoCodeId = promoCodeIdArgumentCaptor.getValue();
@@ -440,26 +538,27 @@ class ProductServiceTest {
                 .codeType(CodeType.PERCENTAGE)
                 .build();
 
-        given(productRepository.findById(productId)).willReturn(Optional.of(product));
-        given(promoCodeRepository.findById(code)).willReturn(Optional.of(promoCode));
+        given(productCache.getProduct(productId)).willReturn(ProductSnapshot.of(product));
+        given(promoCodeCache.getPromoCode(code)).willReturn(PromoCodeSnapshot.of(promoCode));
+        given(promoCodeRepository.getTotalUsages(code)).willReturn(promoCode.getTotalUsages());
 
         // when
-        Map<String, String> returnedDiscountMap = productService.getProductDiscountPrice(productId, code);
+        PriceQuote returnedPriceQuote = productService.getProductDiscountPrice(productId, code);
 
         // then
         ArgumentCaptor<UUID> productIdArgumentCaptor = ArgumentCaptor.forClass(UUID.class);
         ArgumentCaptor<String> promoCodeIdArgumentCaptor = ArgumentCaptor.forClass(String.class);
 
-        verify(productRepository).findById(productIdArgumentCaptor.capture());
-        verify(promoCodeRepository).findById(promoCodeIdArgumentCaptor.capture());
+        verify(productCache).getProduct(productIdArgumentCaptor.capture());
+        verify(promoCodeCache).getPromoCode(promoCodeIdArgumentCaptor.capture());
 
         UUID capturedProductId = productIdArgumentCaptor.getValue();
         String capturedPromoCodeId = promoCodeIdArgumentCaptor.getValue();
 
         assertThat(capturedProductId).isEqualTo(productId);
         assertThat(capturedPromoCodeId).isEqualTo(code);
-        assertThat(returnedDiscountMap.get("discountPrice")).isEqualTo("7.50");
-        assertThat(returnedDiscountMap.get("warning")).isNull();
+        assertThat(returnedPriceQuote.price()).isEqualTo(7_50);
+        assertThat(returnedPriceQuote.reason()).isEqualTo(PriceQuoteReason.APPLIED);
     }
 
     @Test
@@ -484,26 +583,26 @@ class ProductServiceTest {
                 .codeType(CodeType.PERCENTAGE)
                 .build();
 
-        given(productRepository.findById(productId)).willReturn(Optional.of(product));
-        given(promoCodeRepository.findById(code)).willReturn(Optional.of(promoCode));
+        given(productCache.getProduct(productId)).willReturn(ProductSnapshot.of(product));
+        given(promoCodeCache.getPromoCode(code)).willReturn(PromoCodeSnapshot.of(promoCode));
 
         // when
-        Map<String, String> returnedDiscountMap = productService.getProductDiscountPrice(productId, code);
+        PriceQuote returnedPriceQuote = productService.getProductDiscountPrice(productId, code);
 
         // then
         ArgumentCaptor<UUID> productIdArgumentCaptor = ArgumentCaptor.forClass(UUID.class);
         ArgumentCaptor<String> promoCodeIdArgumentCaptor = ArgumentCaptor.forClass(String.class);
 
-        verify(productRepository).findById(productIdArgumentCaptor.capture());
-        verify(promoCodeRepository).findById(promoCodeIdArgumentCaptor.capture());
+        verify(productCache).getProduct(productIdArgumentCaptor.capture());
+        verify(promoCodeCache).getPromoCode(promoCodeIdArgumentCaptor.capture());
 
         UUID capturedProductId = productIdArgumentCaptor.getValue();
         String capturedPromoCodeId = promoCodeIdArgumentCaptor.getValue();
 
         assertThat(capturedProductId).isEqualTo(productId);
         assertThat(capturedPromoCodeId).isEqualTo(code);
-        assertThat(returnedDiscountMap.get("discountPrice")).isEqualTo(product.getPrice().toString());
-        assertThat(returnedDiscountMap.get("warning")).isNotNull();
+        assertThat(returnedPriceQuote.price()).isEqualTo(MinorUnits.of(product.getPrice()));
+        assertThat(returnedPriceQuote.reason()).isEqualTo(PriceQuoteReason.EXPIRED);
     }
 
     @Test
@@ -528,26 +627,26 @@ class ProductServiceTest {
                 .codeType(CodeType.PERCENTAGE)
                 .build();
 
-        given(productRepository.findById(productId)).willReturn(Optional.of(product));
-        given(promoCodeRepository.findById(code)).willReturn(Optional.of(promoCode));
+        given(productCache.getProduct(productId)).willReturn(ProductSnapshot.of(product));
+        given(promoCodeCache.getPromoCode(code)).willReturn(PromoCodeSnapshot.of(promoCode));
 
         // when
-        Map<String, String> returnedDiscountMap = productService.getProductDiscountPrice(productId, code);
+        PriceQuote returnedPriceQuote = productService.getProductDiscountPrice(productId, code);
 
         // then
         ArgumentCaptor<UUID> productIdArgumentCaptor = ArgumentCaptor.forClass(UUID.class);
         ArgumentCaptor<String> promoCodeIdArgumentCaptor = ArgumentCaptor.forClass(String.class);
 
-        verify(productRepository).findById(productIdArgumentCaptor.capture());
-        verify(promoCodeRepository).findById(promoCodeIdArgumentCaptor.capture());
+        verify(productCache).getProduct(productIdArgumentCaptor.capture());
+        verify(promoCodeCache).getPromoCode(promoCodeIdArgumentCaptor.capture());
 
         UUID capturedProductId = productIdArgumentCaptor.getValue();
         String capturedPromoCodeId = promoCodeIdArgumentCaptor.getValue();
 
         assertThat(capturedProductId).isEqualTo(productId);
         assertThat(capturedPromoCodeId).isEqualTo(code);
-        assertThat(returnedDiscountMap.get("discountPrice")).isEqualTo(product.getPrice().toString());
-        assertThat(returnedDiscountMap.get("warning")).isNotNull();
+        assertThat(returnedPriceQuote.price()).isEqualTo(MinorUnits.of(product.getPrice()));
+        assertThat(returnedPriceQuote.reason()).isEqualTo(PriceQuoteReason.CURRENCY_MISMATCH);
     }
 
     @Test
@@ -572,26 +671,27 @@ class ProductServiceTest {
                 .codeType(CodeType.PERCENTAGE)
                 .build();
 
-        given(productRepository.findById(productId)).willReturn(Optional.of(product));
-        given(promoCodeRepository.findById(code)).willReturn(Optional.of(promoCode));
+        given(productCache.getProduct(productId)).willReturn(ProductSnapshot.of(product));
+        given(promoCodeCache.getPromoCode(code)).willReturn(PromoCodeSnapshot.of(promoCode));
+        given(promoCodeRepository.getTotalUsages(code)).willReturn(promoCode.getTotalUsages());
 
         // when
-        Map<String, String> returnedDiscountMap = productService.getProductDiscountPrice(productId, code);
+        PriceQuote returnedPriceQuote = productService.getProductDiscountPrice(productId, code);
 
         // then
         ArgumentCaptor<UUID> productIdArgumentCaptor = ArgumentCaptor.forClass(UUID.class);
         ArgumentCaptor<String> promoCodeIdArgumentCaptor = ArgumentCaptor.forClass(String.class);
 
-        verify(productRepository).findById(productIdArgumentCaptor.capture());
-        verify(promoCodeRepository).findById(promoCodeIdArgumentCaptor.capture());
+        verify(productCache).getProduct(productIdArgumentCaptor.capture());
+        verify(promoCodeCache).getPromoCode(promoCodeIdArgumentCaptor.capture());
 
         UUID capturedProductId = productIdArgumentCaptor.getValue();
         String capturedPromoCodeId = promoCodeIdArgumentCaptor.getValue();
 
         assertThat(capturedProductId).isEqualTo(productId);
         assertThat(capturedPromoCodeId).isEqualTo(code);
-        assertThat(returnedDiscountMap.get("discountPrice")).isEqualTo(product.getPrice().toString());
-        assertThat(returnedDiscountMap.get("warning")).isNotNull();
+        assertThat(returnedPriceQuote.price()).isEqualTo(MinorUnits.of(product.getPrice()));
+        assertThat(returnedPriceQuote.reason()).isEqualTo(PriceQuoteReason.EXHAUSTED);
     }
 
     @Test
@@ -616,25 +716,104 @@ class ProductServiceTest {
                 .codeType(CodeType.QUANTITATIVE)
                 .build();
 
-        given(productRepository.findById(productId)).willReturn(Optional.of(product));
-        given(promoCodeRepository.findById(code)).willReturn(Optional.of(promoCode));
+        given(productCache.getProduct(productId)).willReturn(ProductSnapshot.of(product));
+        given(promoCodeCache.getPromoCode(code)).willReturn(PromoCodeSnapshot.of(promoCode));
+        given(promoCodeRepository.getTotalUsages(code)).willReturn(promoCode.getTotalUsages());
 
         // when
-        Map<String, String> returnedDiscountMap = productService.getProductDiscountPrice(productId, code);
+        PriceQuote returnedPriceQuote = productService.getProductDiscountPrice(productId, code);
 
         // then
         ArgumentCaptor<UUID> productIdArgumentCaptor = ArgumentCaptor.forClass(UUID.class);
         ArgumentCaptor<String> promoCodeIdArgumentCaptor = ArgumentCaptor.forClass(String.class);
 
-        verify(productRepository).findById(productIdArgumentCaptor.capture());
-        verify(promoCodeRepository).findById(promoCodeIdArgumentCaptor.capture());
+        verify(productCache).getProduct(productIdArgumentCaptor.capture());
+        verify(promoCodeCache).getPromoCode(promoCodeIdArgumentCaptor.capture());
 
         UUID capturedProductId = productIdArgumentCaptor.getValue();
         String capturedPromoCodeId = promoCodeIdArgumentCaptor.getValue();
 
         assertThat(capturedProductId).isEqualTo(productId);
         assertThat(capturedPromoCodeId).isEqualTo(code);
-        assertThat(returnedDiscountMap.get("discountPrice")).isEqualTo("0.00");
-        assertThat(returnedDiscountMap.get("warning")).isNull();
+        assertThat(returnedPriceQuote.price()).isEqualTo(0);
+        assertThat(returnedPriceQuote.reason()).isEqualTo(PriceQuoteReason.APPLIED);
+    }
+
+    @Test
+    void quoteProductsLooksUpPromoCodeOnceAndConsumesUsagesLineByLine() {
+        // given
+        UUID waterId = UUID.randomUUID();
+        UUID juiceId = UUID.randomUUID();
+        String code = "Summer2024";
+
+        Product water = Product.builder()
+                .productId(waterId)
+                .name("Water")
+                .price(new BigDecimal("10.00"))
+                .currency("PLN")
+                .build();
+        Product juice = Product.builder()
+                .productId(juiceId)
+                .name("Juice")
+                .price(new BigDecimal("4.00"))
+                .currency("PLN")
+                .build();
+
+        PromoCode promoCode = PromoCode.builder()
+                .code(code)
+                .expireDate(LocalDate.now().plusYears(2))
+                .currency("PLN")
+                .amount(new BigDecimal("25.00"))
+                .maxUsages(100)
+                .totalUsages(98)
+                .codeType(CodeType.PERCENTAGE)
+                .build();
+
+        given(productRepository.findAllById(Set.of(waterId, juiceId))).willReturn(List.of(water, juice));
+        given(promoCodeCache.getPromoCode(code)).willReturn(PromoCodeSnapshot.of(promoCode));
+        given(promoCodeRepository.getTotalUsages(code)).willReturn(promoCode.getTotalUsages());
+
+        // when
+        List<ProductQuote> productQuotes = productService.quoteProducts(List.of(waterId, juiceId, waterId), code);
+
+        // then
+        verify(productRepository).findAllById(Set.of(waterId, juiceId));
+        verify(promoCodeCache).getPromoCode(code);
+        verify(promoCodeRepository).getTotalUsages(code);
+
+        assertThat(productQuotes.size()).isEqualTo(3);
+        assertThat(productQuotes.get(0).product().productId()).isEqualTo(waterId);
+        assertThat(productQuotes.get(0).priceQuote())
+                .isEqualTo(new PriceQuote(7_50, 2_50, PriceQuoteReason.APPLIED));
+        assertThat(productQuotes.get(1).product().productId()).isEqualTo(juiceId);
+        assertThat(productQuotes.get(1).priceQuote())
+                .isEqualTo(new PriceQuote(3_00, 1_00, PriceQuoteReason.APPLIED));
+        assertThat(productQuotes.get(2).priceQuote())
+                .isEqualTo(new PriceQuote(10_00, 0, PriceQuoteReason.EXHAUSTED));
+    }
+
+    @Test
+    void quoteProductsThrowsObjectNotFoundExceptionIfAnyProductDoesNotExist() {
+        // given
+        UUID waterId = UUID.randomUUID();
+        UUID unknownId = UUID.randomUUID();
+        Product water = Product.builder()
+                .productId(waterId)
+                .name("Water")
+                .price(new BigDecimal("10.00"))
+                .currency("PLN")
+                .build();
+
+        given(productRepository.findAllById(Set.of(waterId, unknownId))).willReturn(List.of(water));
+
+        // when
+
+        // then
+        assertThatThrownBy(() -> productService.quoteProducts(List.of(waterId, unknownId), "Summer2024"))
+                .isInstanceOf(ObjectNotFoundException.class)
+                .hasMessage("Product with id = " + unknownId + " does not exist");
+
+        verify(promoCodeCache, never()).getPromoCode(any());
+        verify(promoCodeRepository, never()).getTotalUsages(any());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,132 @@
+package com.promocodes.api.promocode;
+
+import com.promocodes.api.exception.ObjectNotFoundException;
+import com.promocodes.api.metrics.QueryCounter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+class PromoCodeFilterTest {
+
+    private static final int CODES = 500;
+
+    @Autowired
+    private PromoCodeFilter promoCodeFilter;
+    @Autowired
+    private PromoCodeCache promoCodeCache;
+    @Autowired
+    private PromoCodeService promoCodeService;
+    @Autowired
+    private PromoCodeRepository promoCodeRepository;
+
+    @AfterEach
+    void tearDown() {
+        promoCodeRepository.deleteAll();
+        promoCodeCache.evictPromoCode("Summer2024");
+        promoCodeCache.evictPromoCode("Winter2024");
+    }
+
+    @Test
+    void getPromoCodeRejectsUnknownCodeWithoutQuery() {
+        // given
+        QueryCounter.start();
+
+        // when
+
+        // then
+        assertThatThrownBy(() -> promoCodeCache.getPromoCode("Unknown2024"))
+                .isInstanceOf(ObjectNotFoundException.class)
+                .hasMessage("Promo code: 'Unknown2024' does not exists");
+        assertThat(QueryCounter.stop()).isZero();
+    }
+
+    @Test
+    void getPromoCodeLooksUpCodeFoundMissingOnlyOnce() {
+        // given
+        promoCodeFilter.add("Winter2024");
+
+        // when
+        QueryCounter.start();
+        assertThatThrownBy(() -> promoCodeCache.getPromoCode("Winter2024"))
+                .isInstanceOf(ObjectNotFoundException.class);
+        assertThatThrownBy(() -> promoCodeCache.getPromoCode("Winter2024"))
+                .isInstanceOf(ObjectNotFoundException.class);
+        int statements = QueryCounter.stop();
+
+        // then
+        assertThat(statements).isEqualTo(1);
+    }
+
+    @Test
+    void getPromoCodeFindsCodeAddedAfterItWasFoundMissing() {
+        // given
+        promoCodeFilter.markMissing("Summer2024");
+
+        // when
+        promoCodeService.addPromoCode(promoCode("Summer2024"));
+
+        // then
+        assertThat(promoCodeCache.getPromoCode("Summer2024").code()).isEqualTo("Summer2024");
+    }
+
+    @Test
+    void loadFindsCodesSavedPastPromoCodeService() {
+        // given
+        promoCodeRepository.save(promoCode("Winter2024"));
+
+        // when
+        promoCodeFilter.load();
+
+        // then
+        assertThat(promoCodeFilter.mightExist("Winter2024")).isTrue();
+        assertThat(promoCodeCache.getPromoCode("Winter2024").code()).isEqualTo("Winter2024");
+    }
+
+    @Test
+    void codesAddedWhileFilterIsLoadedAreNotLost() throws Exception {
+        // given
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        AtomicBoolean adding = new AtomicBoolean(true);
+        Future<?> loads = executor.submit(() -> {
+            while (adding.get())
+                promoCodeFilter.load();
+        });
+
+        // when
+        for (int i = 0; i < CODES; i++)
+            promoCodeService.addPromoCode(promoCode("Loaded" + i));
+
+        adding.set(false);
+        loads.get(60, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        // then
+        for (int i = 0; i < CODES; i++)
+            assertThat(promoCodeFilter.mightExist("Loaded" + i)).isTrue();
+    }
+
+    private PromoCode promoCode(String code) {
+        return PromoCode.builder()
+                .code(code)
+                .expireDate(LocalDate.now().plusYears(2))
+                .currency("PLN")
+                .amount(new BigDecimal("1.00"))
+                .maxUsages(10)
+                .totalUsages(0)
+                .codeType(CodeType.QUANTITATIVE)
+                .build();
+    }
+}
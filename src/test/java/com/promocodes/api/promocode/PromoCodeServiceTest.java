@@ -3,23 +3,35 @@ package com.promocodes.api.promocode;
 import com.promocodes.api.exception.DuplicateUniqueValueException;
 import com.promocodes.api.exception.InvalidValueException;
 import com.promocodes.api.exception.ObjectNotFoundException;
+import com.promocodes.api.metrics.PromoCodeMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.sql.SQLException;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.BDDMockito.given;
-import static org.mockito.Mockito.never;
-import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 class PromoCodeServiceTest {
@@ -28,10 +40,21 @@ class PromoCodeServiceTest {
 
     @Mock
     private PromoCodeRepository promoCodeRepository;
+    @Mock
+    private PromoCodeCache promoCodeCache;
+    @Mock
+    private PromoCodeFilter promoCodeFilter;
+    @Mock
+    private EntityManager entityManager;
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
 
     @BeforeEach
     void setUp() {
-        promoCodeService = new PromoCodeService(promoCodeRepository);
+        promoCodeService = new PromoCodeService(promoCodeRepository, promoCodeCache, promoCodeFilter, entityManager, transactionTemplate,
+                new PromoCodeMetrics(meterRegistry));
     }
 
     @Test
@@ -55,6 +78,7 @@ class PromoCodeServiceTest {
 
         verify(promoCodeRepository).findById(promoCodeIdCaptor.capture());
         verify(promoCodeRepository).save(promoCodeCaptor.capture());
+        verify(promoCodeCache).evictPromoCode(promoCode.getCode());
 
         String capturedPromoCodeId = promoCodeIdCaptor.getValue();
         PromoCode capturedPromoCode = promoCodeCaptor.getValue();
@@ -137,14 +161,223 @@ class PromoCodeServiceTest {
     }
 
     @Test
-    void getAllPromoCodesInvokesFindAllMethod() {
+    void generatePromoCodesPersistsRequestedNumberOfUniqueCodesWithSharedTerms() {
+        // given
+        executeTransactionCallbacks();
+        PromoCode terms = PromoCode.builder()
+                .expireDate(LocalDate.now().plusYears(2))
+                .currency("PLN")
+                .amount(new BigDecimal("25.00"))
+                .maxUsages(1)
+                .codeType(CodeType.PERCENTAGE)
+                .build();
+
+        // when
+        int generated = promoCodeService.generatePromoCodes("Summer", 2500, 8, "ABCDEFGHJKLMNPQRSTUVWXYZ23456789", terms);
+
+        // then
+        ArgumentCaptor<PromoCode> promoCodeCaptor = ArgumentCaptor.forClass(PromoCode.class);
+
+        verify(entityManager, times(2500)).persist(promoCodeCaptor.capture());
+        verify(promoCodeRepository, times(3)).findExistingCodes(any());
+        verify(entityManager, times(3)).flush();
+        verify(promoCodeRepository, never()).save(any());
+
+        List<PromoCode> capturedPromoCodes = promoCodeCaptor.getAllValues();
+
+        assertThat(generated).isEqualTo(2500);
+        assertThat(new HashSet<>(capturedPromoCodes.stream().map(PromoCode::getCode).toList()).size()).isEqualTo(2500);
+
+        for (PromoCode p : capturedPromoCodes) {
+            assertThat(p.getCode()).matches("^Summer[A-Z2-9]{8}$");
+            assertThat(p.getExpireDate()).isEqualTo(terms.getExpireDate());
+            assertThat(p.getAmount()).isEqualTo(terms.getAmount());
+            assertThat(p.getCurrency()).isEqualTo(terms.getCurrency());
+            assertThat(p.getMaxUsages()).isEqualTo(terms.getMaxUsages());
+            assertThat(p.getTotalUsages()).isEqualTo(0);
+            assertThat(p.getCodeType()).isEqualTo(terms.getCodeType());
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void generatePromoCodesSkipsCodesThatAlreadyExist() {
+        // given
+        executeTransactionCallbacks();
+        PromoCode terms = PromoCode.builder()
+                .expireDate(LocalDate.now().plusYears(2))
+                .currency("PLN")
+                .amount(new BigDecimal("25.00"))
+                .maxUsages(1)
+                .codeType(CodeType.QUANTITATIVE)
+                .build();
+        List<String> existingCodes = new ArrayList<>();
+        given(promoCodeRepository.findExistingCodes(any()))
+                .willAnswer(invocation -> {
+                    String existingCode = ((Collection<String>) invocation.getArgument(0)).iterator().next();
+                    existingCodes.add(existingCode);
+                    return List.of(existingCode);
+                })
+                .willReturn(List.of());
+
+        // when
+        int generated = promoCodeService.generatePromoCodes("", 10, 6, "abcdef", terms);
+
+        // then
+        ArgumentCaptor<PromoCode> promoCodeCaptor = ArgumentCaptor.forClass(PromoCode.class);
+
+        verify(entityManager, times(10)).persist(promoCodeCaptor.capture());
+        verify(promoCodeRepository, times(2)).findExistingCodes(any());
+
+        assertThat(generated).isEqualTo(10);
+        assertThat(promoCodeCaptor.getAllValues().stream().map(PromoCode::getCode).noneMatch(existingCodes::contains))
+                .isTrue();
+    }
+
+    @Test
+    void generatePromoCodesDrawsChunkAgainIfCodeWasAddedMeanwhile() {
+        // given
+        PromoCode terms = PromoCode.builder()
+                .expireDate(LocalDate.now().plusYears(2))
+                .currency("PLN")
+                .amount(new BigDecimal("25.00"))
+                .maxUsages(1)
+                .codeType(CodeType.QUANTITATIVE)
+                .build();
+        given(transactionTemplate.execute(any()))
+                .willThrow(codeAddedMeanwhile())
+                .willAnswer(invocation -> ((TransactionCallback<?>) invocation.getArgument(0)).doInTransaction(null));
+
+        // when
+        int generated = promoCodeService.generatePromoCodes("Summer", 10, 8, "ABCDEFGH", terms);
+
+        // then
+        assertThat(generated).isEqualTo(10);
+        verify(transactionTemplate, times(2)).execute(any());
+        verify(entityManager, times(10)).persist(any());
+        verify(promoCodeFilter, times(1)).addAll(any());
+    }
+
+    @Test
+    void generatePromoCodesKeepsCommittedChunksIfLaterChunkKeepsColliding() {
+        // given
+        PromoCode terms = PromoCode.builder()
+                .expireDate(LocalDate.now().plusYears(2))
+                .currency("PLN")
+                .amount(new BigDecimal("25.00"))
+                .maxUsages(1)
+                .codeType(CodeType.QUANTITATIVE)
+                .build();
+        given(transactionTemplate.execute(any()))
+                .willAnswer(invocation -> ((TransactionCallback<?>) invocation.getArgument(0)).doInTransaction(null))
+                .willThrow(codeAddedMeanwhile());
+
+        // when
+
+        // then
+        assertThatThrownBy(() -> promoCodeService.generatePromoCodes("Summer", 1500, 8, "ABCDEFGH", terms))
+                .isInstanceOf(DuplicateUniqueValueException.class)
+                .hasMessage("Generated promo codes kept colliding with codes added meanwhile, 1000 of 1500 codes were created");
+        verify(transactionTemplate, times(4)).execute(any());
+        verify(entityManager, times(1000)).persist(any());
+        verify(promoCodeFilter, times(1)).addAll(any());
+    }
+
+    @Test
+    void generatePromoCodesThrowsInvalidValueExceptionIfCodeLengthIsOutOfRange() {
+        // given
+        PromoCode terms = PromoCode.builder().amount(new BigDecimal("25.00")).build();
+
+        // when
+
+        // then
+        assertThatThrownBy(() -> promoCodeService.generatePromoCodes("Summer2024Campaign", 100, 8, "ABC", terms))
+                .isInstanceOf(InvalidValueException.class);
+        assertThatThrownBy(() -> promoCodeService.generatePromoCodes("", 1, 2, "ABC", terms))
+                .isInstanceOf(InvalidValueException.class);
+
+        verify(entityManager, never()).persist(any());
+    }
+
+    @Test
+    void generatePromoCodesThrowsInvalidValueExceptionIfAlphabetAllowsTooFewUniqueCodes() {
+        // given
+        PromoCode terms = PromoCode.builder().amount(new BigDecimal("25.00")).build();
+
+        // when
+
+        // then
+        assertThatThrownBy(() -> promoCodeService.generatePromoCodes("Summer", 1000, 3, "AAAB", terms))
+                .isInstanceOf(InvalidValueException.class);
+
+        verify(promoCodeRepository, never()).findExistingCodes(any());
+        verify(entityManager, never()).persist(any());
+    }
+
+    @Test
+    void generatePromoCodesThrowsInvalidValueExceptionIfAmountIsNotPositive() {
+        // given
+        PromoCode terms = PromoCode.builder().amount(new BigDecimal("0.00")).build();
+
+        // when
+
+        // then
+        assertThatThrownBy(() -> promoCodeService.generatePromoCodes("Summer", 10, 8, "ABC", terms))
+                .isInstanceOf(InvalidValueException.class);
+
+        verify(entityManager, never()).persist(any());
+    }
+
+    @Test
+    void getPromoCodesReturnsFirstPageIfCursorIsNotGiven() {
+        // when
+        promoCodeService.getPromoCodes(null, 50);
+
+        // then
+        verify(promoCodeRepository).findAllByOrderByCodeAsc(Limit.of(50));
+        verify(promoCodeRepository, never()).findByCodeGreaterThanOrderByCodeAsc(any(), any());
+        verify(promoCodeRepository, never()).findAll();
+    }
+
+    @Test
+    void getPromoCodesReturnsPageAfterGivenCursor() {
+        // when
+        promoCodeService.getPromoCodes("Summer2024", 50);
+
+        // then
+        verify(promoCodeRepository).findByCodeGreaterThanOrderByCodeAsc("Summer2024", Limit.of(50));
+        verify(promoCodeRepository, never()).findAllByOrderByCodeAsc(any());
+    }
+
+    @Test
+    void getPromoCodesThrowsInvalidValueExceptionIfPageSizeIsOutOfRange() {
+        // when
+
+        // then
+        assertThatThrownBy(() -> promoCodeService.getPromoCodes(null, 0))
+                .isInstanceOf(InvalidValueException.class);
+        assertThatThrownBy(() -> promoCodeService.getPromoCodes(null, PromoCodeService.MAX_PAGE_SIZE + 1))
+                .isInstanceOf(InvalidValueException.class);
+
+        verify(promoCodeRepository, never()).findAllByOrderByCodeAsc(any());
+    }
+
+    @Test
+    void streamAllPromoCodesPassesEachPromoCodeToConsumerAndDetachesIt() {
         // given
+        PromoCode first = PromoCode.builder().code("Autumn2024").build();
+        PromoCode second = PromoCode.builder().code("Summer2024").build();
+        given(promoCodeRepository.streamAllByOrderByCodeAsc()).willReturn(Stream.of(first, second));
 
         // when
-        promoCodeService.getAllPromoCodes();
+        List<PromoCode> consumed = new ArrayList<>();
+        promoCodeService.streamAllPromoCodes(consumed::add);
 
         // then
-        verify(promoCodeRepository).findAll();
+        verify(entityManager).detach(first);
+        verify(entityManager).detach(second);
+
+        assertThat(consumed).isEqualTo(List.of(first, second));
     }
 
     @Test
@@ -189,4 +422,14 @@ class PromoCodeServiceTest {
 
         assertThat(capturedPromoCodeId).isEqualTo(code);
     }
-}
\ No newline at end of file
+
+    private static ConstraintViolationException codeAddedMeanwhile() {
+        return new ConstraintViolationException("Unique index or primary key violation",
+                new SQLException("Unique index or primary key violation"), "PRIMARY_KEY");
+    }
+
+    private void executeTransactionCallbacks() {
+        given(transactionTemplate.execute(any()))
+                .willAnswer(invocation -> ((TransactionCallback<?>) invocation.getArgument(0)).doInTransaction(null));
+    }
+}
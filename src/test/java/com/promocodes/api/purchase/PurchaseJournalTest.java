@@ -0,0 +1,96 @@
+package com.promocodes.api.purchase;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PurchaseJournalTest {
+
+    private static final UUID PRODUCT_ID = UUID.randomUUID();
+    private static final LocalDateTime TIMESTAMP = LocalDateTime.of(2024, 5, 10, 12, 30, 15, 123_000_000);
+
+    @TempDir
+    private Path dir;
+
+    @Test
+    void replayReturnsAppendedPurchasesAfterReopening() throws IOException {
+        // given
+        Path path = dir.resolve("purchases.journal");
+        List<JournaledPurchase> purchases = List.of(
+                new JournaledPurchase(1, PRODUCT_ID, TIMESTAMP, 500, 100, "PLN", "Summer2024", true),
+                new JournaledPurchase(2, PRODUCT_ID, TIMESTAMP, 500, 0, "PLN", null, false)
+        );
+
+        try (PurchaseJournal journal = new PurchaseJournal(path)) {
+            journal.append(purchases.subList(0, 1));
+            journal.append(purchases.subList(1, 2));
+        }
+
+        // when
+        List<JournaledPurchase> replayed;
+
+        try (PurchaseJournal journal = new PurchaseJournal(path)) {
+            replayed = journal.replay();
+        }
+
+        // then
+        assertThat(replayed).isEqualTo(purchases);
+    }
+
+    @Test
+    void replayCutsOffTornRecordAndKeepsAppendingAfterLastCompleteOne() throws IOException {
+        // given
+        Path path = dir.resolve("purchases.journal");
+        JournaledPurchase first = new JournaledPurchase(1, PRODUCT_ID, TIMESTAMP, 500, 0, "PLN", null, false);
+        JournaledPurchase second = new JournaledPurchase(2, PRODUCT_ID, TIMESTAMP, 350, 0, "EUR", null, false);
+
+        try (PurchaseJournal journal = new PurchaseJournal(path)) {
+            journal.append(List.of(first));
+        }
+
+        long completeSize = Files.size(path);
+        Files.write(path, new byte[]{0, 0, 0, 60, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        // when
+        List<JournaledPurchase> replayed;
+
+        try (PurchaseJournal journal = new PurchaseJournal(path)) {
+            replayed = journal.replay();
+            assertThat(journal.size()).isEqualTo(completeSize);
+            journal.append(List.of(second));
+        }
+
+        // then
+        assertThat(replayed).containsExactly(first);
+
+        try (PurchaseJournal journal = new PurchaseJournal(path)) {
+            assertThat(journal.replay()).containsExactly(first, second);
+        }
+    }
+
+    @Test
+    void truncateRemovesAllPurchases() throws IOException {
+        // given
+        Path path = dir.resolve("purchases.journal");
+
+        try (PurchaseJournal journal = new PurchaseJournal(path)) {
+            journal.append(List.of(new JournaledPurchase(1, PRODUCT_ID, TIMESTAMP, 500, 0, "PLN", null, false)));
+
+            // when
+            journal.truncate();
+
+            // then
+            assertThat(journal.size()).isZero();
+            assertThat(journal.replay()).isEmpty();
+        }
+    }
+}
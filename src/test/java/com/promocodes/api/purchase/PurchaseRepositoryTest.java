@@ -0,0 +1,278 @@
+package com.promocodes.api.purchase;
+
+import com.promocodes.api.metrics.MetricsConfig;
+import com.promocodes.api.metrics.QueryCounter;
+import com.promocodes.api.product.Product;
+import com.promocodes.api.product.ProductRepository;
+import com.promocodes.api.purchase.dto.CurrencySalesReportDto;
+import com.promocodes.api.utils.MinorUnits;
+import org.hibernate.Hibernate;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@Import(MetricsConfig.class)
+class PurchaseRepositoryTest {
+
+    @Autowired
+    private PurchaseRepository purchaseRepository;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    private static final LocalDateTime NOON = LocalDateTime.of(2024, 5, 18, 12, 0);
+
+    @AfterEach
+    void tearDown() {
+        purchaseRepository.deleteAll();
+        productRepository.deleteAll();
+    }
+
+    @Test
+    void getCurrencySalesReportAggregatesPurchasesByProductCurrency() {
+        // given
+        Product water = saveProduct("Water", "PLN");
+        Product juice = saveProduct("Juice", "PLN");
+        Product coffee = saveProduct("Coffee", "EUR");
+        Product tea = saveProduct("Tea", "USD");
+
+        savePurchase(water, "5.50", "1.50");
+        savePurchase(juice, "10.35", "0.00");
+        savePurchase(water, "7.00", "3.20");
+        savePurchase(coffee, "20.00", "0.00");
+        savePurchase(tea, "10.00", "2.75");
+        savePurchase(tea, "7.00", "0.00");
+
+        // when
+        List<CurrencySalesReportDto> report = purchaseRepository.getCurrencySalesReport();
+
+        // then
+        assertThat(report).containsExactlyInAnyOrder(
+                new CurrencySalesReportDto("PLN", "18.15", "4.70", 3),
+                new CurrencySalesReportDto("EUR", "20.00", "0.00", 1),
+                new CurrencySalesReportDto("USD", "14.25", "2.75", 2)
+        );
+    }
+
+    @Test
+    void getCurrencySalesReportReturnsEmptyListIfThereAreNoPurchases() {
+        // when
+        List<CurrencySalesReportDto> report = purchaseRepository.getCurrencySalesReport();
+
+        // then
+        assertThat(report).isEmpty();
+    }
+
+    @Test
+    void getCurrencySalesReportInTimeRangeAggregatesOnlyPurchasesInRange() {
+        // given
+        Product water = saveProduct("Water", "PLN");
+        Product coffee = saveProduct("Coffee", "EUR");
+
+        savePurchase(water, "5.50", "1.50", null, NOON.minusSeconds(1));
+        savePurchase(water, "7.00", "3.20", null, NOON);
+        savePurchase(coffee, "20.00", "0.00", null, NOON.plusMinutes(59));
+        savePurchase(water, "10.00", "0.00", null, NOON.plusHours(1));
+
+        // when
+        List<CurrencySalesReportDto> report = purchaseRepository.getCurrencySalesReport(NOON, NOON.plusHours(1));
+
+        // then
+        assertThat(report).containsExactlyInAnyOrder(
+                new CurrencySalesReportDto("PLN", "3.80", "3.20", 1),
+                new CurrencySalesReportDto("EUR", "20.00", "0.00", 1)
+        );
+    }
+
+    @Test
+    void findAllByCodeInTimeRangeReturnsPurchasesWithGivenCodeOrderedByTimestamp() {
+        // given
+        Product water = saveProduct("Water", "PLN");
+
+        Purchase second = savePurchase(water, "5.00", "1.00", "Summer2024", NOON.plusMinutes(2));
+        Purchase first = savePurchase(water, "5.00", "1.00", "Summer2024", NOON.plusMinutes(1));
+        savePurchase(water, "5.00", "0.00", "Summer2024", NOON.plusMinutes(3));
+        savePurchase(water, "5.00", "0.50", "Winter2024", NOON.plusMinutes(1));
+        savePurchase(water, "5.00", "0.00", null, NOON.plusMinutes(1));
+        savePurchase(water, "5.00", "1.00", "Summer2024", NOON.minusMinutes(1));
+
+        // when
+        List<PurchaseSummary> purchases = purchaseRepository.findAllByCodeInTimeRange(
+                "Summer2024", NOON, NOON.plusHours(1), Limit.of(2));
+        long count = purchaseRepository.countByCodeInTimeRange("Summer2024", NOON, NOON.plusHours(1));
+
+        // then
+        assertThat(purchases.stream().map(PurchaseSummary::purchaseId).toList())
+                .isEqualTo(List.of(first.getPurchaseId(), second.getPurchaseId()));
+        assertThat(count).isEqualTo(3);
+    }
+
+    @Test
+    void getPromoCodeSalesByHourAggregatesPurchasesWithGivenCodeByHour() {
+        // given
+        Product water = saveProduct("Water", "PLN");
+        Product coffee = saveProduct("Coffee", "EUR");
+
+        savePurchase(water, "5.00", "1.00", "Summer2024", NOON.plusMinutes(10));
+        savePurchase(water, "7.00", "1.40", "Summer2024", NOON.plusMinutes(50));
+        savePurchase(coffee, "3.00", "0.00", "Summer2024", NOON.plusMinutes(20));
+        savePurchase(water, "0.50", "0.00", "Summer2024", true, NOON.plusMinutes(30));
+        savePurchase(water, "5.00", "1.00", "Summer2024", NOON.plusHours(2));
+        savePurchase(water, "5.00", "0.50", "Winter2024", NOON.plusMinutes(10));
+        savePurchase(water, "5.00", "1.00", "Summer2024", NOON.plusDays(1));
+
+        // when
+        List<PromoCodeSales> sales = purchaseRepository.getPromoCodeSalesByHour("Summer2024", NOON, NOON.plusDays(1));
+
+        // then
+        assertThat(sales).containsExactly(
+                new PromoCodeSales(NOON, 4, 3, 240, 1010),
+                new PromoCodeSales(NOON.plusHours(2), 1, 1, 100, 400)
+        );
+    }
+
+    @Test
+    void findAllByProductAndByCurrencyInTimeRangeReturnPurchasesInRange() {
+        // given
+        Product water = saveProduct("Water", "PLN");
+        Product juice = saveProduct("Juice", "PLN");
+        Product coffee = saveProduct("Coffee", "EUR");
+
+        Purchase waterInRange = savePurchase(water, "5.00", "0.00", null, NOON);
+        Purchase juiceInRange = savePurchase(juice, "5.00", "0.00", null, NOON.plusMinutes(1));
+        savePurchase(water, "5.00", "0.00", null, NOON.plusHours(2));
+        savePurchase(coffee, "5.00", "0.00", null, NOON);
+
+        // when
+        List<PurchaseSummary> productPurchases = purchaseRepository.findAllByProductInTimeRange(
+                water.getProductId(), NOON, NOON.plusHours(1), Limit.of(100));
+        List<PurchaseSummary> currencyPurchases = purchaseRepository.findAllByCurrencyInTimeRange(
+                "PLN", NOON, NOON.plusHours(1), Limit.of(100));
+        List<PurchaseSummary> allPurchases = purchaseRepository.findAllInTimeRange(NOON, NOON.plusHours(1), Limit.of(100));
+
+        // then
+        assertThat(productPurchases).containsExactly(new PurchaseSummary(
+                waterInRange.getPurchaseId(), NOON, water.getProductId(), "PLN", 5_00, 0, null));
+        assertThat(currencyPurchases.stream().map(PurchaseSummary::purchaseId).toList())
+                .isEqualTo(List.of(waterInRange.getPurchaseId(), juiceInRange.getPurchaseId()));
+        assertThat(allPurchases.size()).isEqualTo(3);
+    }
+
+    @Test
+    void findAllLoadsPurchasesWithoutLookingUpTheirProducts() {
+        // given
+        Product water = saveProduct("Water", "PLN");
+        Product coffee = saveProduct("Coffee", "EUR");
+
+        savePurchase(water, "5.00", "0.00");
+        savePurchase(coffee, "3.50", "0.00");
+        testEntityManager.flush();
+        testEntityManager.clear();
+
+        // when
+        QueryCounter.start();
+        List<Purchase> purchases = purchaseRepository.findAll();
+        int statements = QueryCounter.stop();
+
+        // then
+        assertThat(statements).isEqualTo(1);
+        assertThat(purchases.size()).isEqualTo(2);
+        assertThat(purchases).noneMatch(p -> Hibernate.isInitialized(p.getProduct()));
+    }
+
+    @Test
+    void timeRangeQueriesAreServedByIndexes() {
+        // given
+        String inRange = "\"TIMESTAMP\" >= TIMESTAMP '2024-05-18 12:00:00' AND \"TIMESTAMP\" < TIMESTAMP '2024-05-18 13:00:00'";
+
+        // when
+        String byTime = explain("SELECT * FROM purchase WHERE " + inRange);
+        String byProduct = explain("SELECT * FROM purchase WHERE product_id = RANDOM_UUID() AND " + inRange);
+        String byCurrency = explain("SELECT * FROM purchase WHERE currency = 'PLN' AND " + inRange);
+        String byCode = explain("SELECT * FROM purchase WHERE code = 'Summer2024' AND " + inRange);
+
+        // then
+        assertThat(byTime).contains("IDX_PURCHASE_TIMESTAMP");
+        assertThat(byProduct).contains("IDX_PURCHASE_PRODUCT_TIMESTAMP");
+        assertThat(byCurrency).contains("IDX_PURCHASE_CURRENCY_TIMESTAMP");
+        assertThat(byCode).contains("IDX_PURCHASE_CODE_SALES");
+    }
+
+    @Test
+    void migrationCopiesCurrencyOfProductToExistingPurchases() {
+        // given
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:purchase-migration;DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate oldJdbcTemplate = new JdbcTemplate(dataSource);
+        oldJdbcTemplate.execute("CREATE TABLE product (product_id UUID PRIMARY KEY, currency VARCHAR(255))");
+        oldJdbcTemplate.execute("CREATE TABLE purchase (purchase_id UUID PRIMARY KEY, product_id UUID)");
+        oldJdbcTemplate.update("INSERT INTO product VALUES ('7c1d6f1e-2f4b-4d5c-9b7e-0c2a8d3f4e51', 'EUR')");
+        oldJdbcTemplate.update("INSERT INTO purchase VALUES (RANDOM_UUID(), '7c1d6f1e-2f4b-4d5c-9b7e-0c2a8d3f4e51')");
+
+        // when
+        new ResourceDatabasePopulator(new ClassPathResource("db/purchase-currency-code.sql")).execute(dataSource);
+
+        // then
+        Map<String, Object> purchase = oldJdbcTemplate.queryForMap("SELECT currency, code, redeemed FROM purchase");
+
+        assertThat(purchase.get("CURRENCY")).isEqualTo("EUR");
+        assertThat(purchase.get("CODE")).isNull();
+        assertThat(purchase.get("REDEEMED")).isEqualTo(false);
+
+        oldJdbcTemplate.execute("DROP ALL OBJECTS");
+    }
+
+    private String explain(String sql) {
+        return jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class);
+    }
+
+    private Product saveProduct(String name, String currency) {
+        return productRepository.save(Product.builder()
+                .name(name)
+                .price(new BigDecimal("1.00"))
+                .currency(currency)
+                .build());
+    }
+
+    private void savePurchase(Product product, String regularPrice, String discount) {
+        savePurchase(product, regularPrice, discount, null, LocalDateTime.now());
+    }
+
+    // purchases with a code are redeemed when discounted, unless told otherwise
+    private Purchase savePurchase(Product product, String regularPrice, String discount, String code,
+                                  LocalDateTime timestamp) {
+        return savePurchase(product, regularPrice, discount, code,
+                code != null && MinorUnits.of(new BigDecimal(discount)) > 0, timestamp);
+    }
+
+    private Purchase savePurchase(Product product, String regularPrice, String discount, String code,
+                                  boolean redeemed, LocalDateTime timestamp) {
+        return purchaseRepository.save(Purchase.builder()
+                .product(product)
+                .timestamp(timestamp)
+                .regularPrice(MinorUnits.of(new BigDecimal(regularPrice)))
+                .discount(MinorUnits.of(new BigDecimal(discount)))
+                .currency(product.getCurrency())
+                .code(code)
+                .redeemed(redeemed)
+                .build());
+    }
+}
@@ -0,0 +1,207 @@
+package com.promocodes.api.purchase;
+
+import com.promocodes.api.product.Product;
+import com.promocodes.api.product.ProductRepository;
+import com.promocodes.api.product.ProductService;
+import com.promocodes.api.promocode.CodeType;
+import com.promocodes.api.promocode.PromoCode;
+import com.promocodes.api.promocode.PromoCodeRepository;
+import com.promocodes.api.promocode.PromoCodeService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class PurchaseServiceConcurrencyTest {
+
+    private static final int THREADS = 32;
+    private static final int PURCHASES = 2000;
+    private static final long MAX_USAGES = 150;
+
+    @Autowired
+    private PurchaseService purchaseService;
+    @Autowired
+    private ProductService productService;
+    @Autowired
+    private PromoCodeService promoCodeService;
+    @Autowired
+    private SalesLedgerService salesLedgerService;
+    @Autowired
+    private PurchaseRepository purchaseRepository;
+    @Autowired
+    private SalesLedgerRepository salesLedgerRepository;
+    @Autowired
+    private SalesRollupRepository salesRollupRepository;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private PromoCodeRepository promoCodeRepository;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @AfterEach
+    void tearDown() {
+        purchaseRepository.deleteAll();
+        salesLedgerRepository.deleteAll();
+        salesRollupRepository.deleteAll();
+        promoCodeRepository.deleteAll();
+        productRepository.deleteAll();
+    }
+
+    @Test
+    void addPurchaseNeverRedeemsPromoCodeMoreThanMaxUsagesUnderConcurrentLoad() throws Exception {
+        // given
+        Product product = productService.addProduct(Product.builder()
+                .name("Water")
+                .price(new BigDecimal("5.00"))
+                .currency("PLN")
+                .build());
+        PromoCode promoCode = promoCodeService.addPromoCode(PromoCode.builder()
+                .code("Summer2024")
+                .expireDate(LocalDate.now().plusYears(2))
+                .currency("PLN")
+                .amount(new BigDecimal("1.00"))
+                .maxUsages(MAX_USAGES)
+                .totalUsages(0)
+                .codeType(CodeType.QUANTITATIVE)
+                .build());
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+
+        // when
+        for (int i = 0; i < PURCHASES; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                purchaseService.addPurchase(product.getProductId(), promoCode.getCode());
+                return null;
+            }));
+        }
+        start.countDown();
+
+        for (Future<?> future : futures)
+            future.get(60, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        // then
+        List<Purchase> purchases = purchaseRepository.findAll();
+        long discountedPurchases = purchases.stream()
+                .filter(p -> p.getDiscount() > 0)
+                .count();
+
+        assertThat(promoCodeRepository.findById(promoCode.getCode()).get().getTotalUsages()).isEqualTo(MAX_USAGES);
+        assertThat(purchases.size()).isEqualTo(PURCHASES);
+        assertThat(discountedPurchases).isEqualTo(MAX_USAGES);
+        assertThat(salesLedgerService.checkConsistency().consistent()).isTrue();
+        assertThat(purchaseService.getPurchaseReport(
+                LocalDateTime.now().minusDays(1), LocalDateTime.now().plusDays(1), ReportBucket.HOUR)
+                .stream()
+                .mapToLong(CurrencySales::noOfPurchases)
+                .sum()).isEqualTo(PURCHASES);
+    }
+
+    @Test
+    void recordPurchaseWaitsForRollupsBeingOpened() throws Exception {
+        // given
+        salesLedgerRepository.save(new SalesLedgerEntry("PLN", 0, 0, 0));
+        LocalDateTime now = LocalDateTime.now();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        // when
+        Future<?> purchase = transactionTemplate.execute(status -> {
+            // opened rows stay uncommitted until the purchase has reached them
+            salesLedgerService.openRollups();
+
+            Future<?> recorded = executor.submit(() -> salesLedgerService.recordPurchase("PLN", now, 5_00, 1_25));
+
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+
+            return recorded;
+        });
+
+        purchase.get(60, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        // then
+        LocalDateTime hour = ReportBucket.HOUR.truncate(now);
+        LocalDateTime day = ReportBucket.DAY.truncate(now);
+
+        assertThat(salesRollupRepository.getCurrencySales(ReportBucket.HOUR, hour, hour.plusHours(1))).containsExactly(
+                new CurrencySales("PLN", hour, 3_75, 1_25, 1)
+        );
+        assertThat(salesRollupRepository.getCurrencySales(ReportBucket.DAY, day, day.plusDays(1))).containsExactly(
+                new CurrencySales("PLN", day, 3_75, 1_25, 1)
+        );
+    }
+
+    @Test
+    void addPurchasesNeverRedeemsPromoCodeMoreThanMaxUsagesUnderConcurrentBatches() throws Exception {
+        // given
+        Product product = productService.addProduct(Product.builder()
+                .name("Water")
+                .price(new BigDecimal("5.00"))
+                .currency("PLN")
+                .build());
+        PromoCode promoCode = promoCodeService.addPromoCode(PromoCode.builder()
+                .code("Summer2024")
+                .expireDate(LocalDate.now().plusYears(2))
+                .currency("PLN")
+                .amount(new BigDecimal("1.00"))
+                .maxUsages(MAX_USAGES)
+                .totalUsages(0)
+                .codeType(CodeType.QUANTITATIVE)
+                .build());
+
+        int batchSize = PURCHASES / THREADS;
+        List<PurchaseItem> batch = Collections.nCopies(batchSize, new PurchaseItem(product.getProductId(), promoCode.getCode()));
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<List<PurchaseOutcome>>> futures = new ArrayList<>();
+
+        // when
+        for (int i = 0; i < THREADS; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                return purchaseService.addPurchases(batch);
+            }));
+        }
+        start.countDown();
+
+        long warnings = 0;
+        for (Future<List<PurchaseOutcome>> future : futures)
+            warnings += future.get(60, TimeUnit.SECONDS).stream()
+                    .filter(o -> o.warning() != null)
+                    .count();
+        executor.shutdown();
+
+        // then
+        List<Purchase> purchases = purchaseRepository.findAll();
+        long discountedPurchases = purchases.stream()
+                .filter(p -> p.getDiscount() > 0)
+                .count();
+
+        assertThat(promoCodeRepository.findById(promoCode.getCode()).get().getTotalUsages()).isEqualTo(MAX_USAGES);
+        assertThat(purchases.size()).isEqualTo(batchSize * THREADS);
+        assertThat(discountedPurchases).isEqualTo(MAX_USAGES);
+        assertThat(warnings).isEqualTo(batchSize * THREADS - MAX_USAGES);
+        assertThat(salesLedgerService.checkConsistency().consistent()).isTrue();
+    }
+}
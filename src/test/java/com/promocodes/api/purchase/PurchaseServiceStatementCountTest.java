@@ -0,0 +1,126 @@
+package com.promocodes.api.purchase;
+
+import com.promocodes.api.metrics.QueryCounter;
+import com.promocodes.api.product.Product;
+import com.promocodes.api.product.ProductCache;
+import com.promocodes.api.product.ProductRepository;
+import com.promocodes.api.product.ProductService;
+import com.promocodes.api.promocode.CodeType;
+import com.promocodes.api.promocode.PromoCode;
+import com.promocodes.api.promocode.PromoCodeCache;
+import com.promocodes.api.promocode.PromoCodeRepository;
+import com.promocodes.api.promocode.PromoCodeService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Locks in the SQL statements of a single purchase: the promo code usage update, the purchase insert, the ledger
+// update and one update of the hour and day rollups, plus at most one read of the product and of the promo code
+// when they are not cached.
+@SpringBootTest
+class PurchaseServiceStatementCountTest {
+
+    @Autowired
+    private PurchaseService purchaseService;
+    @Autowired
+    private ProductService productService;
+    @Autowired
+    private PromoCodeService promoCodeService;
+    @Autowired
+    private ProductCache productCache;
+    @Autowired
+    private PromoCodeCache promoCodeCache;
+    @Autowired
+    private PurchaseRepository purchaseRepository;
+    @Autowired
+    private SalesLedgerRepository salesLedgerRepository;
+    @Autowired
+    private SalesRollupRepository salesRollupRepository;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private PromoCodeRepository promoCodeRepository;
+
+    private Product product;
+    private PromoCode promoCode;
+
+    @BeforeEach
+    void setUp() {
+        product = productService.addProduct(Product.builder()
+                .name("Water")
+                .price(new BigDecimal("5.00"))
+                .currency("PLN")
+                .build());
+        promoCode = promoCodeService.addPromoCode(PromoCode.builder()
+                .code("Summer2024")
+                .expireDate(LocalDate.now().plusYears(2))
+                .currency("PLN")
+                .amount(new BigDecimal("1.00"))
+                .maxUsages(10)
+                .totalUsages(0)
+                .codeType(CodeType.QUANTITATIVE)
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        purchaseRepository.deleteAll();
+        salesLedgerRepository.deleteAll();
+        salesRollupRepository.deleteAll();
+        promoCodeRepository.deleteAll();
+        productRepository.deleteAll();
+        productCache.evictProduct(product.getProductId());
+        promoCodeCache.evictPromoCode(promoCode.getCode());
+    }
+
+    @Test
+    void addPurchaseWithPromoCodeExecutesFourStatementsWhenProductAndPromoCodeAreCached() {
+        // given
+        purchaseService.addPurchase(product.getProductId(), promoCode.getCode());
+
+        // when
+        QueryCounter.start();
+        purchaseService.addPurchase(product.getProductId(), promoCode.getCode());
+        int statements = QueryCounter.stop();
+
+        // then
+        assertThat(statements).isEqualTo(4);
+        assertThat(promoCodeRepository.getTotalUsages(promoCode.getCode())).isEqualTo(2);
+    }
+
+    @Test
+    void addPurchaseWithPromoCodeReadsProductAndPromoCodeOnceWhenTheyAreNotCached() {
+        // given
+        productCache.evictProduct(product.getProductId());
+        promoCodeCache.evictPromoCode(promoCode.getCode());
+
+        // when
+        QueryCounter.start();
+        purchaseService.addPurchase(product.getProductId(), promoCode.getCode());
+        int statements = QueryCounter.stop();
+
+        // then
+        assertThat(statements).isEqualTo(6);
+    }
+
+    @Test
+    void addPurchaseWithoutPromoCodeExecutesThreeStatementsWhenProductIsCached() {
+        // given
+        purchaseService.addPurchase(product.getProductId(), null);
+
+        // when
+        QueryCounter.start();
+        purchaseService.addPurchase(product.getProductId(), null);
+        int statements = QueryCounter.stop();
+
+        // then
+        assertThat(statements).isEqualTo(3);
+    }
+}
@@ -1,13 +1,22 @@
 package com.promocodes.api.purchase;
 
+import com.promocodes.api.exception.InvalidValueException;
 import com.promocodes.api.exception.ObjectNotFoundException;
+import com.promocodes.api.metrics.PromoCodeMetrics;
+import com.promocodes.api.product.PriceQuoteEngine;
+import com.promocodes.api.product.PriceQuoteReason;
 import com.promocodes.api.product.Product;
+import com.promocodes.api.product.ProductCache;
 import com.promocodes.api.product.ProductRepository;
-import com.promocodes.api.product.ProductService;
+import com.promocodes.api.product.ProductSnapshot;
 import com.promocodes.api.promocode.CodeType;
 import com.promocodes.api.promocode.PromoCode;
+import com.promocodes.api.promocode.PromoCodeCache;
 import com.promocodes.api.promocode.PromoCodeRepository;
+import com.promocodes.api.promocode.PromoCodeSnapshot;
 import com.promocodes.api.purchase.dto.CurrencySalesReportDto;
+import com.promocodes.api.utils.MinorUnits;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -17,11 +26,14 @@ import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.*;
 
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
@@ -37,7 +49,13 @@ class PurchaseServiceTest {
     @Mock
     private PromoCodeRepository promoCodeRepository;
     @Mock
-    private ProductService productService;
+    private SalesLedgerService salesLedgerService;
+    @Mock
+    private ProductCache productCache;
+    @Mock
+    private PromoCodeCache promoCodeCache;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
 
     @BeforeEach
     void setUp() {
@@ -45,7 +63,11 @@ class PurchaseServiceTest {
                 purchaseRepository,
                 productRepository,
                 promoCodeRepository,
-                productService
+                new PriceQuoteEngine(),
+                salesLedgerService,
+                productCache,
+                promoCodeCache,
+                new PromoCodeMetrics(meterRegistry)
         );
     }
 
@@ -60,7 +82,8 @@ class PurchaseServiceTest {
                         .currency("PLN")
                         .build();
 
-        given(productRepository.findById(productId)).willReturn(Optional.of(product));
+        given(productCache.getProduct(productId)).willReturn(ProductSnapshot.of(product));
+        given(productRepository.getReferenceById(productId)).willReturn(product);
 
         // when
         purchaseService.addPurchase(productId, null);
@@ -69,10 +92,9 @@ class PurchaseServiceTest {
         ArgumentCaptor<UUID> productIdArgumentCaptor = ArgumentCaptor.forClass(UUID.class);
         ArgumentCaptor<Purchase> purchaseArgumentCaptor = ArgumentCaptor.forClass(Purchase.class);
 
-        verify(productRepository).findById(productIdArgumentCaptor.capture());
-        verify(promoCodeRepository, never()).findById(any());
-        verify(productService, never()).getProductDiscountPrice(any(), any());
-        verify(promoCodeRepository, never()).save(any());
+        verify(productCache).getProduct(productIdArgumentCaptor.capture());
+        verify(promoCodeCache, never()).getPromoCode(any());
+        verify(promoCodeRepository, never()).redeemPromoCode(any());
         verify(purchaseRepository).save(purchaseArgumentCaptor.capture());
 
         UUID capturedProductId = productIdArgumentCaptor.getValue();
@@ -80,8 +102,10 @@ class PurchaseServiceTest {
 
         assertThat(capturedProductId).isEqualTo(productId);
         assertThat(capturedPurchase.getProduct().getProductId()).isEqualTo(productId);
-        assertThat(capturedPurchase.getRegularPrice()).isEqualTo(product.getPrice());
-        assertThat(capturedPurchase.getDiscount()).isEqualTo(BigDecimal.ZERO);
+        assertThat(capturedPurchase.getRegularPrice()).isEqualTo(MinorUnits.of(product.getPrice()));
+        assertThat(capturedPurchase.getDiscount()).isEqualTo(0);
+        assertThat(capturedPurchase.getCurrency()).isEqualTo("PLN");
+        assertThat(capturedPurchase.getCode()).isNull();
         assertThat(capturedPurchase.getTimestamp().toLocalDate()).isEqualTo(LocalDate.now());
     }
 
@@ -105,9 +129,10 @@ class PurchaseServiceTest {
                 .totalUsages(10)
                 .codeType(CodeType.PERCENTAGE)
                 .build();
-        given(productRepository.findById(productId)).willReturn(Optional.of(product));
-        given(promoCodeRepository.findById(promoCode.getCode())).willReturn(Optional.of(promoCode));
-        given(productService.getProductDiscountPrice(productId, promoCode.getCode())).willReturn(Map.of("discountPrice", "3.75"));
+        given(productCache.getProduct(productId)).willReturn(ProductSnapshot.of(product));
+        given(productRepository.getReferenceById(productId)).willReturn(product);
+        given(promoCodeCache.getPromoCode(promoCode.getCode())).willReturn(PromoCodeSnapshot.of(promoCode));
+        given(promoCodeRepository.redeemPromoCode(promoCode.getCode())).willReturn(1);
 
         // when
         purchaseService.addPurchase(productId, promoCode.getCode());
@@ -115,32 +140,30 @@ class PurchaseServiceTest {
         // then
         ArgumentCaptor<UUID> productIdArgumentCaptor1 = ArgumentCaptor.forClass(UUID.class);
         ArgumentCaptor<String> promoCodeIdArgumentCaptor1 = ArgumentCaptor.forClass(String.class);
-        ArgumentCaptor<UUID> productIdArgumentCaptor2 = ArgumentCaptor.forClass(UUID.class);
         ArgumentCaptor<String> promoCodeIdArgumentCaptor2 = ArgumentCaptor.forClass(String.class);
-        ArgumentCaptor<PromoCode> promoCodeArgumentCaptor = ArgumentCaptor.forClass(PromoCode.class);
         ArgumentCaptor<Purchase> purchaseArgumentCaptor = ArgumentCaptor.forClass(Purchase.class);
 
-        verify(productRepository).findById(productIdArgumentCaptor1.capture());
-        verify(promoCodeRepository).findById(promoCodeIdArgumentCaptor1.capture());
-        verify(productService).getProductDiscountPrice(productIdArgumentCaptor2.capture(), promoCodeIdArgumentCaptor2.capture());
-        verify(promoCodeRepository).save(promoCodeArgumentCaptor.capture());
+        verify(productCache).getProduct(productIdArgumentCaptor1.capture());
+        verify(promoCodeCache).getPromoCode(promoCodeIdArgumentCaptor1.capture());
+        verify(promoCodeRepository).redeemPromoCode(promoCodeIdArgumentCaptor2.capture());
         verify(purchaseRepository).save(purchaseArgumentCaptor.capture());
 
         UUID capturedProductId1 = productIdArgumentCaptor1.getValue();
         String capturedPromoCodeId1 = promoCodeIdArgumentCaptor1.getValue();
-        UUID capturedProductId2 = productIdArgumentCaptor2.getValue();
         String capturedPromoCodeId2 = promoCodeIdArgumentCaptor2.getValue();
-        PromoCode capturedPromoCode = promoCodeArgumentCaptor.getValue();
         Purchase capturedPurchase = purchaseArgumentCaptor.getValue();
 
         assertThat(capturedProductId1).isEqualTo(productId);
         assertThat(capturedPromoCodeId1).isEqualTo(promoCode.getCode());
-        assertThat(capturedProductId2).isEqualTo(productId);
         assertThat(capturedPromoCodeId2).isEqualTo(promoCode.getCode());
-        assertThat(capturedPromoCode.getTotalUsages()).isEqualTo(11);
         assertThat(capturedPurchase.getProduct().getProductId()).isEqualTo(productId);
-        assertThat(capturedPurchase.getRegularPrice()).isEqualTo(product.getPrice());
-        assertThat(capturedPurchase.getDiscount()).isEqualTo(new BigDecimal("1.25"));
+        assertThat(capturedPurchase.getRegularPrice()).isEqualTo(MinorUnits.of(product.getPrice()));
+        assertThat(capturedPurchase.getDiscount()).isEqualTo(1_25);
+        assertThat(capturedPurchase.getCurrency()).isEqualTo("PLN");
+        assertThat(capturedPurchase.getCode()).isEqualTo(promoCode.getCode());
+        assertThat(capturedPurchase.isRedeemed()).isTrue();
+
+        verify(salesLedgerService).recordPurchase("PLN", capturedPurchase.getTimestamp(), 5_00, 1_25);
         assertThat(capturedPurchase.getTimestamp().toLocalDate()).isEqualTo(LocalDate.now());
     }
 
@@ -163,10 +186,9 @@ class PurchaseServiceTest {
                 .totalUsages(10)
                 .codeType(CodeType.PERCENTAGE)
                 .build();
-        given(productRepository.findById(productId)).willReturn(Optional.of(product));
-        given(promoCodeRepository.findById(promoCode.getCode())).willReturn(Optional.of(promoCode));
-        given(productService.getProductDiscountPrice(productId, promoCode.getCode()))
-                .willReturn(Map.of("discountPrice", "5.00", "warning", "test"));
+        given(productCache.getProduct(productId)).willReturn(ProductSnapshot.of(product));
+        given(productRepository.getReferenceById(productId)).willReturn(product);
+        given(promoCodeCache.getPromoCode(promoCode.getCode())).willReturn(PromoCodeSnapshot.of(promoCode));
 
         // when
         purchaseService.addPurchase(productId, promoCode.getCode());
@@ -174,37 +196,75 @@ class PurchaseServiceTest {
         // then
         ArgumentCaptor<UUID> productIdArgumentCaptor1 = ArgumentCaptor.forClass(UUID.class);
         ArgumentCaptor<String> promoCodeIdArgumentCaptor1 = ArgumentCaptor.forClass(String.class);
-        ArgumentCaptor<UUID> productIdArgumentCaptor2 = ArgumentCaptor.forClass(UUID.class);
-        ArgumentCaptor<String> promoCodeIdArgumentCaptor2 = ArgumentCaptor.forClass(String.class);
         ArgumentCaptor<Purchase> purchaseArgumentCaptor = ArgumentCaptor.forClass(Purchase.class);
 
-        verify(productRepository).findById(productIdArgumentCaptor1.capture());
-        verify(promoCodeRepository).findById(promoCodeIdArgumentCaptor1.capture());
-        verify(productService).getProductDiscountPrice(productIdArgumentCaptor2.capture(), promoCodeIdArgumentCaptor2.capture());
-        verify(promoCodeRepository, never()).save(any());
+        verify(productCache).getProduct(productIdArgumentCaptor1.capture());
+        verify(promoCodeCache).getPromoCode(promoCodeIdArgumentCaptor1.capture());
+        verify(promoCodeRepository, never()).redeemPromoCode(any());
         verify(purchaseRepository).save(purchaseArgumentCaptor.capture());
 
         UUID capturedProductId1 = productIdArgumentCaptor1.getValue();
         String capturedPromoCodeId1 = promoCodeIdArgumentCaptor1.getValue();
-        UUID capturedProductId2 = productIdArgumentCaptor2.getValue();
-        String capturedPromoCodeId2 = promoCodeIdArgumentCaptor2.getValue();
         Purchase capturedPurchase = purchaseArgumentCaptor.getValue();
 
         assertThat(capturedProductId1).isEqualTo(productId);
         assertThat(capturedPromoCodeId1).isEqualTo(promoCode.getCode());
-        assertThat(capturedProductId2).isEqualTo(productId);
-        assertThat(capturedPromoCodeId2).isEqualTo(promoCode.getCode());
         assertThat(capturedPurchase.getProduct().getProductId()).isEqualTo(productId);
-        assertThat(capturedPurchase.getRegularPrice()).isEqualTo(product.getPrice());
-        assertThat(capturedPurchase.getDiscount()).isEqualTo(BigDecimal.ZERO);
+        assertThat(capturedPurchase.getRegularPrice()).isEqualTo(MinorUnits.of(product.getPrice()));
+        assertThat(capturedPurchase.getDiscount()).isEqualTo(0);
         assertThat(capturedPurchase.getTimestamp().toLocalDate()).isEqualTo(LocalDate.now());
     }
 
+    @Test
+    void addPurchaseInsertsNewPurchaseWithoutDiscountIfPromoCodeUsagesRunOutBeforeRedemption() {
+        // given
+        UUID productId = UUID.randomUUID();
+        Product product = Product.builder()
+                .productId(productId)
+                .name("Water")
+                .price(new BigDecimal("5.00"))
+                .currency("PLN")
+                .build();
+        PromoCode promoCode = PromoCode.builder()
+                .code("Summer2024")
+                .expireDate(LocalDate.now().plusYears(2))
+                .currency("PLN")
+                .amount(new BigDecimal("25.00"))
+                .maxUsages(100)
+                .totalUsages(99)
+                .codeType(CodeType.PERCENTAGE)
+                .build();
+        given(productCache.getProduct(productId)).willReturn(ProductSnapshot.of(product));
+        given(productRepository.getReferenceById(productId)).willReturn(product);
+        given(promoCodeCache.getPromoCode(promoCode.getCode())).willReturn(PromoCodeSnapshot.of(promoCode));
+        given(promoCodeRepository.redeemPromoCode(promoCode.getCode())).willReturn(0);
+
+        // when
+        purchaseService.addPurchase(productId, promoCode.getCode());
+
+        // then
+        ArgumentCaptor<Purchase> purchaseArgumentCaptor = ArgumentCaptor.forClass(Purchase.class);
+
+        verify(promoCodeRepository).redeemPromoCode(promoCode.getCode());
+        verify(purchaseRepository).save(purchaseArgumentCaptor.capture());
+
+        Purchase capturedPurchase = purchaseArgumentCaptor.getValue();
+
+        assertThat(capturedPurchase.getRegularPrice()).isEqualTo(MinorUnits.of(product.getPrice()));
+        assertThat(capturedPurchase.getDiscount()).isEqualTo(0);
+        assertThat(capturedPurchase.isRedeemed()).isFalse();
+        assertThat(meterRegistry.get(PromoCodeMetrics.PURCHASES).tag("outcome", PromoCodeMetrics.EXHAUSTED).timer().count())
+                .isEqualTo(1);
+        assertThat(meterRegistry.get(PromoCodeMetrics.REDEMPTION_RATE).tag("code", promoCode.getCode()).gauge().value())
+                .isEqualTo(0.0);
+    }
+
     @Test
     void addPurchaseThrowsObjectNotFoundExceptionIfProductWithGivenIdDoesNotExist() {
         // given
         UUID productId = UUID.randomUUID();
-        given(productRepository.findById(productId)).willReturn(Optional.empty());
+        given(productCache.getProduct(productId))
+                .willThrow(new ObjectNotFoundException("Product with id = " + productId + " does not exist"));
 
         // when
 
@@ -214,15 +274,17 @@ class PurchaseServiceTest {
 
         ArgumentCaptor<UUID> productIdArgumentCaptor = ArgumentCaptor.forClass(UUID.class);
 
-        verify(productRepository).findById(productIdArgumentCaptor.capture());
-        verify(promoCodeRepository, never()).findById(any());
-        verify(productService, never()).getProductDiscountPrice(any(), any());
-        verify(promoCodeRepository, never()).save(any());
+        verify(productCache).getProduct(productIdArgumentCaptor.capture());
+        verify(promoCodeCache, never()).getPromoCode(any());
+        verify(promoCodeRepository, never()).redeemPromoCode(any());
         verify(purchaseRepository, never()).save(any());
+        verify(salesLedgerService, never()).recordPurchase(any(), any(), anyLong(), anyLong());
 
         UUID capturedProductId = productIdArgumentCaptor.getValue();
 
         assertThat(capturedProductId).isEqualTo(productId);
+        assertThat(meterRegistry.get(PromoCodeMetrics.PURCHASES).tag("outcome", PromoCodeMetrics.NOT_FOUND).timer().count())
+                .isEqualTo(1);
     }
 
     @Test
@@ -230,8 +292,10 @@ class PurchaseServiceTest {
         // given
         UUID productId = UUID.randomUUID();
         String code = "Summer2024";
-        given(productRepository.findById(productId)).willReturn(Optional.of(Product.builder().productId(productId).build()));
-        given(promoCodeRepository.findById(code)).willReturn(Optional.empty());
+        given(productCache.getProduct(productId))
+                .willReturn(ProductSnapshot.of(Product.builder().productId(productId).price(new BigDecimal("5.00")).build()));
+        given(promoCodeCache.getPromoCode(code))
+                .willThrow(new ObjectNotFoundException("Promo code: '" + code + "' does not exists"));
 
         // when
 
@@ -243,11 +307,11 @@ class PurchaseServiceTest {
         ArgumentCaptor<String> promoCodeIdArgumentCaptor = ArgumentCaptor.forClass(String.class);
 
 
-        verify(productRepository).findById(productIdArgumentCaptor.capture());
-        verify(promoCodeRepository).findById(promoCodeIdArgumentCaptor.capture());
-        verify(productService, never()).getProductDiscountPrice(any(), any());
-        verify(promoCodeRepository, never()).save(any());
+        verify(productCache).getProduct(productIdArgumentCaptor.capture());
+        verify(promoCodeCache).getPromoCode(promoCodeIdArgumentCaptor.capture());
+        verify(promoCodeRepository, never()).redeemPromoCode(any());
         verify(purchaseRepository, never()).save(any());
+        verify(salesLedgerService, never()).recordPurchase(any(), any(), anyLong(), anyLong());
 
         UUID capturedProductId = productIdArgumentCaptor.getValue();
         String capturedPromoCodeId = promoCodeIdArgumentCaptor.getValue();
@@ -257,68 +321,189 @@ class PurchaseServiceTest {
     }
 
     @Test
-    void getPurchaseReportReturnsReport() {
+    void getPurchaseReportReturnsAggregatedCurrencySalesReport() {
         // given
-        List<Purchase> purchases = Arrays.asList(
-                Purchase.builder().
-                        regularPrice(new BigDecimal("5.50"))
-                        .discount(new BigDecimal("1.5"))
-                        .product(Product.builder().currency("PLN").build())
-                        .build(),
-                Purchase.builder().
-                        regularPrice(new BigDecimal("10.35"))
-                        .discount(new BigDecimal("0.00"))
-                        .product(Product.builder().currency("PLN").build())
-                        .build(),
-                Purchase.builder().
-                        regularPrice(new BigDecimal("7.00"))
-                        .discount(new BigDecimal("3.20"))
-                        .product(Product.builder().currency("PLN").build())
-                        .build(),
-                Purchase.builder().
-                        regularPrice(new BigDecimal("20.00"))
-                        .discount(new BigDecimal("0.00"))
-                        .product(Product.builder().currency("EUR").build())
-                        .build(),
-                Purchase.builder().
-                        regularPrice(new BigDecimal("10.00"))
-                        .discount(new BigDecimal("2.75"))
-                        .product(Product.builder().currency("USD").build())
-                        .build(),
-                Purchase.builder().
-                        regularPrice(new BigDecimal("7.00"))
-                        .discount(new BigDecimal("0.00"))
-                        .product(Product.builder().currency("USD").build())
-                        .build()
+        List<CurrencySalesReportDto> currencySalesReport = List.of(
+                new CurrencySalesReportDto("PLN", "18.15", "4.70", 3),
+                new CurrencySalesReportDto("USD", "14.25", "2.75", 2)
         );
-        given(purchaseRepository.findAll()).willReturn(purchases);
+        given(salesLedgerService.getCurrencySalesReport()).willReturn(currencySalesReport);
 
         // when
         List<CurrencySalesReportDto> report = purchaseService.getPurchaseReport();
 
         // then
-        verify(purchaseRepository).findAll();
-
-        assertThat(report.size()).isEqualTo(3);
-
-        for (CurrencySalesReportDto csrd : report) {
-            switch (csrd.currency()){
-                case "PLN" -> {
-                    assertThat(csrd.totalAmount()).isEqualTo("18.15");
-                    assertThat(csrd.totalDiscount()).isEqualTo("4.70");
-                    assertThat(csrd.noOfPurchases()).isEqualTo(3);
-                }
-                case "EUR" -> {
-                    assertThat(csrd.totalAmount()).isEqualTo("20.00");
-                    assertThat(csrd.totalDiscount()).isEqualTo("0.00");
-                    assertThat(csrd.noOfPurchases()).isEqualTo(1);
-                }
-                case "USD" -> {
-                    assertThat(csrd.totalAmount()).isEqualTo("14.25");
-                    assertThat(csrd.totalDiscount()).isEqualTo("2.75");
-                    assertThat(csrd.noOfPurchases()).isEqualTo(2);
-                }
-            }
-        }
+        verify(salesLedgerService).getCurrencySalesReport();
+        verify(purchaseRepository, never()).findAll();
+        verify(purchaseRepository, never()).getCurrencySalesReport();
+
+        assertThat(report).isEqualTo(currencySalesReport);
+    }
+
+    @Test
+    void getPurchaseReportWidensRangeToWholeBucketsAndReadsRollups() {
+        // given
+        LocalDateTime from = LocalDateTime.of(2024, 5, 1, 10, 30);
+        LocalDateTime to = LocalDateTime.of(2024, 5, 3, 8, 0);
+        List<CurrencySales> currencySales = List.of(
+                new CurrencySales("PLN", LocalDateTime.of(2024, 5, 1, 0, 0), 8_75, 1_25, 2)
+        );
+
+        given(salesLedgerService.getCurrencySales(
+                LocalDateTime.of(2024, 5, 1, 0, 0), LocalDateTime.of(2024, 5, 4, 0, 0), ReportBucket.DAY))
+                .willReturn(currencySales);
+
+        // when
+        List<CurrencySales> report = purchaseService.getPurchaseReport(from, to, ReportBucket.DAY);
+
+        // then
+        verify(purchaseRepository, never()).findAll();
+
+        assertThat(report).isEqualTo(currencySales);
+    }
+
+    @Test
+    void getPromoCodeReportFoldsHourlySalesIntoGivenBuckets() {
+        // given
+        LocalDateTime from = LocalDateTime.of(2024, 5, 1, 0, 0);
+        LocalDateTime to = from.plusMonths(1);
+        PromoCodeSnapshot promoCode = new PromoCodeSnapshot(
+                "Summer2024", LocalDate.of(2024, 12, 31), 100, 100, "PLN", CodeType.QUANTITATIVE);
+
+        given(promoCodeCache.getPromoCode("Summer2024")).willReturn(promoCode);
+        given(purchaseRepository.getPromoCodeSalesByHour("Summer2024", from, to)).willReturn(List.of(
+                new PromoCodeSales(from.plusHours(9), 2, 2, 200, 800),
+                new PromoCodeSales(from.plusHours(17), 2, 1, 100, 400),
+                new PromoCodeSales(from.plusDays(3).plusHours(12), 1, 0, 0, 0)
+        ));
+
+        // when
+        PromoCodeReport report = purchaseService.getPromoCodeReport("Summer2024", from, to, ReportBucket.DAY);
+
+        // then
+        assertThat(report).isEqualTo(new PromoCodeReport("Summer2024", "PLN", List.of(
+                new PromoCodeSales(from, 4, 3, 300, 1200),
+                new PromoCodeSales(from.plusDays(3), 1, 0, 0, 0)
+        )));
+    }
+
+    @Test
+    void getPromoCodeReportThrowsInvalidValueExceptionIfRangeIsEmpty() {
+        // given
+        LocalDateTime from = LocalDateTime.of(2024, 5, 1, 0, 0);
+
+        // when
+
+        // then
+        assertThatThrownBy(() -> purchaseService.getPromoCodeReport("Summer2024", from, from, ReportBucket.DAY))
+                .isInstanceOf(InvalidValueException.class)
+                .hasMessage("Report start must be before its end");
+        verify(purchaseRepository, never()).getPromoCodeSalesByHour(any(), any(), any());
+    }
+
+    @Test
+    void getPromoCodeReportThrowsObjectNotFoundExceptionIfPromoCodeDoesNotExist() {
+        // given
+        LocalDateTime from = LocalDateTime.of(2024, 5, 1, 0, 0);
+
+        given(promoCodeCache.getPromoCode("Summer2024"))
+                .willThrow(new ObjectNotFoundException("Promo code: 'Summer2024' does not exists"));
+
+        // when
+
+        // then
+        assertThatThrownBy(() -> purchaseService.getPromoCodeReport("Summer2024", from, from.plusDays(1), ReportBucket.DAY))
+                .isInstanceOf(ObjectNotFoundException.class);
+        verify(purchaseRepository, never()).getPromoCodeSalesByHour(any(), any(), any());
+    }
+
+    @Test
+    void addPurchasesPricesValidItemsAndRejectsItemsWithUnknownProductOrPromoCode() {
+        // given
+        UUID productId = UUID.randomUUID();
+        UUID unknownProductId = UUID.randomUUID();
+        Product product = Product.builder()
+                .productId(productId)
+                .name("Water")
+                .price(new BigDecimal("5.00"))
+                .currency("PLN")
+                .build();
+        PromoCode promoCode = PromoCode.builder()
+                .code("Summer2024")
+                .expireDate(LocalDate.now().plusYears(2))
+                .currency("PLN")
+                .amount(new BigDecimal("25.00"))
+                .maxUsages(100)
+                .totalUsages(10)
+                .codeType(CodeType.PERCENTAGE)
+                .build();
+        List<PurchaseItem> items = List.of(
+                new PurchaseItem(productId, promoCode.getCode()),
+                new PurchaseItem(unknownProductId, null),
+                new PurchaseItem(productId, "Winter2024"),
+                new PurchaseItem(productId, null)
+        );
+
+        given(productRepository.findAllById(Set.of(productId, unknownProductId))).willReturn(List.of(product));
+        given(promoCodeRepository.findAllForUpdate(Set.of(promoCode.getCode(), "Winter2024"))).willReturn(List.of(promoCode));
+
+        // when
+        List<PurchaseOutcome> outcomes = purchaseService.addPurchases(items);
+
+        // then
+        ArgumentCaptor<List<Purchase>> purchasesArgumentCaptor = ArgumentCaptor.forClass(List.class);
+
+        verify(purchaseRepository).saveAll(purchasesArgumentCaptor.capture());
+        verify(purchaseRepository, never()).save(any());
+
+        List<Purchase> capturedPurchases = purchasesArgumentCaptor.getValue();
+
+        verify(salesLedgerService).recordPurchases("PLN", capturedPurchases.get(0).getTimestamp(), 8_75, 1_25, 2);
+
+        assertThat(outcomes.size()).isEqualTo(4);
+        assertThat(outcomes.get(0)).isEqualTo(PurchaseOutcome.created(5_00, 1_25, null));
+        assertThat(outcomes.get(1).created()).isFalse();
+        assertThat(outcomes.get(1).error()).isEqualTo("Product with id = " + unknownProductId + " does not exist");
+        assertThat(outcomes.get(2).created()).isFalse();
+        assertThat(outcomes.get(2).error()).isEqualTo("Promo code: 'Winter2024' does not exists");
+        assertThat(outcomes.get(3)).isEqualTo(PurchaseOutcome.created(5_00, 0, null));
+        assertThat(capturedPurchases.size()).isEqualTo(2);
+        assertThat(capturedPurchases.get(0).getDiscount()).isEqualTo(1_25);
+        assertThat(capturedPurchases.get(1).getDiscount()).isEqualTo(0);
+        assertThat(promoCode.getTotalUsages()).isEqualTo(11);
+    }
+
+    @Test
+    void addPurchasesAddsPurchaseWithoutDiscountAndWarningIfPromoCodeIsNotApplicable() {
+        // given
+        UUID productId = UUID.randomUUID();
+        Product product = Product.builder()
+                .productId(productId)
+                .name("Water")
+                .price(new BigDecimal("5.00"))
+                .currency("PLN")
+                .build();
+        PromoCode promoCode = PromoCode.builder()
+                .code("Summer2024")
+                .expireDate(LocalDate.now().plusYears(2))
+                .currency("EUR")
+                .amount(new BigDecimal("1.00"))
+                .maxUsages(100)
+                .totalUsages(10)
+                .codeType(CodeType.QUANTITATIVE)
+                .build();
+        String warning = PriceQuoteReason.CURRENCY_MISMATCH.getWarning();
+
+        given(productRepository.findAllById(Set.of(productId))).willReturn(List.of(product));
+        given(promoCodeRepository.findAllForUpdate(Set.of(promoCode.getCode()))).willReturn(List.of(promoCode));
+
+        // when
+        List<PurchaseOutcome> outcomes = purchaseService.addPurchases(List.of(new PurchaseItem(productId, promoCode.getCode())));
+
+        // then
+        verify(salesLedgerService).recordPurchases(eq("PLN"), any(), eq(5_00L), eq(0L), eq(1L));
+
+        assertThat(outcomes.get(0)).isEqualTo(PurchaseOutcome.created(5_00, 0, warning));
+        assertThat(promoCode.getTotalUsages()).isEqualTo(10);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,110 @@
+package com.promocodes.api.purchase;
+
+import com.promocodes.api.product.Product;
+import com.promocodes.api.product.ProductRepository;
+import com.promocodes.api.product.ProductService;
+import com.promocodes.api.promocode.CodeType;
+import com.promocodes.api.promocode.PromoCode;
+import com.promocodes.api.promocode.PromoCodeRepository;
+import com.promocodes.api.promocode.PromoCodeService;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Purchases of one promo code from many virtual threads contend on the same rows, so threads park inside the
+// persistence stack. A virtual thread that parks while holding a monitor pins its carrier thread, which under load
+// stalls every other request scheduled on that carrier.
+@SpringBootTest
+class PurchaseServiceVirtualThreadTest {
+
+    private static final int THREADS = 32;
+    private static final int PURCHASES_PER_THREAD = 10;
+
+    @Autowired
+    private PurchaseService purchaseService;
+    @Autowired
+    private ProductService productService;
+    @Autowired
+    private PromoCodeService promoCodeService;
+    @Autowired
+    private PurchaseRepository purchaseRepository;
+    @Autowired
+    private SalesLedgerRepository salesLedgerRepository;
+    @Autowired
+    private SalesRollupRepository salesRollupRepository;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private PromoCodeRepository promoCodeRepository;
+
+    @AfterEach
+    void tearDown() {
+        purchaseRepository.deleteAll();
+        salesLedgerRepository.deleteAll();
+        salesRollupRepository.deleteAll();
+        promoCodeRepository.deleteAll();
+        productRepository.deleteAll();
+    }
+
+    @Test
+    void addPurchaseDoesNotPinCarrierThreadsWhenCalledFromVirtualThreads() throws Exception {
+        // given
+        Product product = productService.addProduct(Product.builder()
+                .name("Water")
+                .price(new BigDecimal("5.00"))
+                .currency("PLN")
+                .build());
+        PromoCode promoCode = promoCodeService.addPromoCode(PromoCode.builder()
+                .code("Summer2024")
+                .expireDate(LocalDate.now().plusYears(2))
+                .currency("PLN")
+                .amount(new BigDecimal("1.00"))
+                .maxUsages(THREADS * PURCHASES_PER_THREAD)
+                .totalUsages(0)
+                .codeType(CodeType.QUANTITATIVE)
+                .build());
+
+        List<RecordedEvent> pinnedEvents = new CopyOnWriteArrayList<>();
+        List<Future<?>> futures = new ArrayList<>();
+
+        try (RecordingStream recording = new RecordingStream()) {
+            recording.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ZERO).withStackTrace();
+            recording.onEvent("jdk.VirtualThreadPinned", pinnedEvents::add);
+            recording.startAsync();
+
+            // when
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int i = 0; i < THREADS; i++) {
+                    futures.add(executor.submit(() -> {
+                        for (int j = 0; j < PURCHASES_PER_THREAD; j++)
+                            purchaseService.addPurchase(product.getProductId(), promoCode.getCode());
+                        return null;
+                    }));
+                }
+
+                for (Future<?> future : futures)
+                    future.get(60, TimeUnit.SECONDS);
+            }
+
+            recording.stop();
+        }
+
+        // then
+        assertThat(pinnedEvents)
+                .as(() -> "Pinned virtual threads: " + pinnedEvents.stream().map(e -> e.getStackTrace().toString()).toList())
+                .isEmpty();
+        assertThat(purchaseRepository.count()).isEqualTo(THREADS * PURCHASES_PER_THREAD);
+    }
+}
@@ -0,0 +1,114 @@
+package com.promocodes.api.purchase;
+
+import com.promocodes.api.product.Product;
+import com.promocodes.api.product.ProductRepository;
+import com.promocodes.api.purchase.dto.CurrencySalesReportDto;
+import com.promocodes.api.utils.MinorUnits;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+class SalesLedgerRepositoryTest {
+
+    @Autowired
+    private SalesLedgerRepository salesLedgerRepository;
+    @Autowired
+    private PurchaseRepository purchaseRepository;
+    @Autowired
+    private ProductRepository productRepository;
+
+    @AfterEach
+    void tearDown() {
+        salesLedgerRepository.deleteAll();
+        purchaseRepository.deleteAll();
+        productRepository.deleteAll();
+    }
+
+    @Test
+    void addPurchaseIncrementsLedgerEntryOfGivenCurrency() {
+        // given
+        salesLedgerRepository.save(SalesLedgerEntry.builder()
+                .currency("PLN")
+                .totalAmount(10_00)
+                .totalDiscount(1_00)
+                .noOfPurchases(2)
+                .build());
+
+        // when
+        int updated = salesLedgerRepository.addPurchase("PLN", 3_75, 1_25);
+        int notUpdated = salesLedgerRepository.addPurchase("USD", 3_75, 1_25);
+
+        // then
+        assertThat(updated).isEqualTo(1);
+        assertThat(notUpdated).isEqualTo(0);
+        assertThat(salesLedgerRepository.getCurrencySalesReport()).containsExactly(
+                new CurrencySalesReportDto("PLN", "13.75", "2.25", 3)
+        );
+    }
+
+    @Test
+    void insertMissingCurrenciesOpensEmptyEntriesHiddenFromReport() {
+        // given
+        saveProduct("Water", "PLN");
+        saveProduct("Juice", "PLN");
+        saveProduct("Coffee", "EUR");
+
+        // when
+        int inserted = salesLedgerRepository.insertMissingCurrencies();
+        int insertedAgain = salesLedgerRepository.insertMissingCurrencies();
+
+        // then
+        assertThat(inserted).isEqualTo(2);
+        assertThat(insertedAgain).isEqualTo(0);
+        assertThat(salesLedgerRepository.findAll().size()).isEqualTo(2);
+        assertThat(salesLedgerRepository.getCurrencySalesReport()).isEmpty();
+    }
+
+    @Test
+    void insertFromPurchasesRebuildsLedgerMatchingPurchases() {
+        // given
+        Product water = saveProduct("Water", "PLN");
+        Product tea = saveProduct("Tea", "USD");
+
+        savePurchase(water, "5.50", "1.50");
+        savePurchase(water, "7.00", "3.20");
+        savePurchase(tea, "10.00", "2.75");
+
+        // when
+        salesLedgerRepository.insertFromPurchases();
+        List<CurrencySalesReportDto> report = salesLedgerRepository.getCurrencySalesReport();
+
+        // then
+        assertThat(report).containsExactlyInAnyOrderElementsOf(purchaseRepository.getCurrencySalesReport());
+        assertThat(report).containsExactlyInAnyOrder(
+                new CurrencySalesReportDto("PLN", "7.80", "4.70", 2),
+                new CurrencySalesReportDto("USD", "7.25", "2.75", 1)
+        );
+    }
+
+    private Product saveProduct(String name, String currency) {
+        return productRepository.save(Product.builder()
+                .name(name)
+                .price(new BigDecimal("1.00"))
+                .currency(currency)
+                .build());
+    }
+
+    private void savePurchase(Product product, String regularPrice, String discount) {
+        purchaseRepository.save(Purchase.builder()
+                .product(product)
+                .timestamp(LocalDateTime.now())
+                .regularPrice(MinorUnits.of(new BigDecimal(regularPrice)))
+                .discount(MinorUnits.of(new BigDecimal(discount)))
+                .currency(product.getCurrency())
+                .build());
+    }
+}
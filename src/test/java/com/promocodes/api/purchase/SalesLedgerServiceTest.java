@@ -0,0 +1,255 @@
+package com.promocodes.api.purchase;
+
+import com.promocodes.api.purchase.dto.CurrencySalesReportDto;
+import com.promocodes.api.purchase.dto.SalesLedgerConsistencyDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SalesLedgerServiceTest {
+
+    private SalesLedgerService salesLedgerService;
+    @Mock
+    private SalesLedgerRepository salesLedgerRepository;
+    @Mock
+    private SalesRollupRepository salesRollupRepository;
+    @Mock
+    private PurchaseRepository purchaseRepository;
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private static final LocalDateTime NOON = LocalDateTime.of(2024, 5, 18, 12, 0);
+
+    @BeforeEach
+    void setUp() {
+        salesLedgerService = new SalesLedgerService(
+                salesLedgerRepository, salesRollupRepository, purchaseRepository, transactionTemplate);
+    }
+
+    @Test
+    void recordPurchaseIncrementsExistingLedgerEntry() {
+        // given
+        given(salesLedgerRepository.addPurchase("PLN", 3_75, 1_25)).willReturn(1);
+
+        // when
+        salesLedgerService.recordPurchase("PLN", NOON.plusMinutes(15), 5_00, 1_25);
+
+        // then
+        verify(salesLedgerRepository).addPurchase("PLN", 3_75, 1_25);
+        verify(salesLedgerRepository, never()).save(any());
+    }
+
+    @Test
+    void recordPurchasesIncrementsExistingLedgerEntryByWholeBatch() {
+        // given
+        given(salesLedgerRepository.addPurchases("PLN", 8_75, 1_25, 2)).willReturn(1);
+
+        // when
+        salesLedgerService.recordPurchases("PLN", NOON.plusMinutes(15), 8_75, 1_25, 2);
+
+        // then
+        verify(salesLedgerRepository).addPurchases("PLN", 8_75, 1_25, 2);
+        verify(salesLedgerRepository, never()).save(any());
+    }
+
+    @Test
+    void recordPurchaseInsertsLedgerEntryIfCurrencyHasNoEntryYet() {
+        // given
+        given(salesLedgerRepository.addPurchase("PLN", 3_75, 1_25)).willReturn(0);
+
+        // when
+        salesLedgerService.recordPurchase("PLN", NOON.plusMinutes(15), 5_00, 1_25);
+
+        // then
+        ArgumentCaptor<SalesLedgerEntry> salesLedgerEntryArgumentCaptor = ArgumentCaptor.forClass(SalesLedgerEntry.class);
+
+        verify(salesLedgerRepository).save(salesLedgerEntryArgumentCaptor.capture());
+
+        SalesLedgerEntry capturedSalesLedgerEntry = salesLedgerEntryArgumentCaptor.getValue();
+
+        assertThat(capturedSalesLedgerEntry.getCurrency()).isEqualTo("PLN");
+        assertThat(capturedSalesLedgerEntry.getTotalAmount()).isEqualTo(3_75);
+        assertThat(capturedSalesLedgerEntry.getTotalDiscount()).isEqualTo(1_25);
+        assertThat(capturedSalesLedgerEntry.getNoOfPurchases()).isEqualTo(1);
+    }
+
+    @Test
+    void getCurrencySalesReportReadsLedgerInsteadOfPurchases() {
+        // when
+        salesLedgerService.getCurrencySalesReport();
+
+        // then
+        verify(salesLedgerRepository).getCurrencySalesReport();
+        verify(purchaseRepository, never()).getCurrencySalesReport();
+        verify(purchaseRepository, never()).findAll();
+    }
+
+    @Test
+    void rebuildFromPurchasesReplacesLedgerWithAggregatedPurchases() {
+        // given
+        given(transactionTemplate.execute(any())).willAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+
+        // when
+        salesLedgerService.rebuildFromPurchases();
+
+        // then
+        InOrder inOrder = inOrder(salesLedgerRepository);
+
+        inOrder.verify(salesLedgerRepository).deleteAllInBatch();
+        inOrder.verify(salesLedgerRepository).insertFromPurchases();
+        inOrder.verify(salesLedgerRepository).insertMissingCurrencies();
+        inOrder.verify(salesLedgerRepository).getCurrencySalesReport();
+
+        InOrder rollupInOrder = inOrder(salesRollupRepository);
+
+        rollupInOrder.verify(salesRollupRepository).deleteAllInBatch();
+        rollupInOrder.verify(salesRollupRepository).insertHoursFromPurchases();
+        rollupInOrder.verify(salesRollupRepository).insertDaysFromHours();
+    }
+
+    @Test
+    void rebuildFromPurchasesOpensRollupsAfterCommit() {
+        // given
+        given(transactionTemplate.execute(any())).willAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+
+        // when
+        salesLedgerService.rebuildFromPurchases();
+
+        // then
+        InOrder inOrder = inOrder(transactionTemplate, salesLedgerRepository);
+
+        inOrder.verify(transactionTemplate).execute(any());
+        inOrder.verify(salesLedgerRepository).getCurrencies();
+    }
+
+    @Test
+    void openRollupsOpensCurrentAndNextHourAndDayOfEachCurrencyWhileHoldingItsLedgerEntry() {
+        // given
+        given(salesLedgerRepository.getCurrencies()).willReturn(List.of("EUR", "PLN"));
+        doAnswer(invocation -> {
+            invocation.<Consumer<?>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+
+        // when
+        salesLedgerService.openRollups();
+
+        // then
+        InOrder inOrder = inOrder(transactionTemplate, salesLedgerRepository, salesRollupRepository);
+
+        for (String currency : List.of("EUR", "PLN")) {
+            inOrder.verify(transactionTemplate).executeWithoutResult(any());
+            inOrder.verify(salesLedgerRepository).lockCurrency(currency);
+            inOrder.verify(salesRollupRepository, times(4)).insertMissingCurrency(any(), any(), eq(currency));
+        }
+        verify(salesRollupRepository, times(4)).insertMissingCurrency(eq(ReportBucket.HOUR.name()), any(), any());
+        verify(salesRollupRepository, times(4)).insertMissingCurrency(eq(ReportBucket.DAY.name()), any(), any());
+    }
+
+    @Test
+    void recordPurchasesIncrementsHourAndDayRollupsOfPurchaseTime() {
+        // given
+        given(salesLedgerRepository.addPurchases("PLN", 8_75, 1_25, 2)).willReturn(1);
+        given(salesRollupRepository.addPurchases(NOON, NOON.withHour(0), "PLN", 8_75, 1_25, 2)).willReturn(2);
+
+        // when
+        salesLedgerService.recordPurchases("PLN", NOON.plusMinutes(15), 8_75, 1_25, 2);
+
+        // then
+        verify(salesRollupRepository).addPurchases(NOON, NOON.withHour(0), "PLN", 8_75, 1_25, 2);
+        verify(salesRollupRepository, never()).insertMissingCurrency(any(), any(), any());
+    }
+
+    @Test
+    void recordPurchaseOpensRollupEntriesAndRollsUpAgainIfBucketIsNotOpenYet() {
+        // given
+        given(salesLedgerRepository.addPurchase("PLN", 3_75, 1_25)).willReturn(1);
+        given(salesRollupRepository.addPurchases(NOON, NOON.withHour(0), "PLN", 3_75, 1_25, 1)).willReturn(0, 2);
+
+        // when
+        salesLedgerService.recordPurchase("PLN", NOON.plusMinutes(15), 5_00, 1_25);
+
+        // then
+        InOrder inOrder = inOrder(salesRollupRepository);
+
+        inOrder.verify(salesRollupRepository).addPurchases(NOON, NOON.withHour(0), "PLN", 3_75, 1_25, 1);
+        inOrder.verify(salesRollupRepository).insertMissingCurrency(ReportBucket.HOUR.name(), NOON, "PLN");
+        inOrder.verify(salesRollupRepository).insertMissingCurrency(ReportBucket.DAY.name(), NOON.withHour(0), "PLN");
+        inOrder.verify(salesRollupRepository).addPurchases(NOON, NOON.withHour(0), "PLN", 3_75, 1_25, 1);
+        verify(salesRollupRepository, never()).save(any());
+    }
+
+    @Test
+    void getCurrencySalesSumsUpMonthsFromDayRollups() {
+        // given
+        LocalDateTime from = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+        // when
+        salesLedgerService.getCurrencySales(from, from.plusYears(1), ReportBucket.MONTH);
+        salesLedgerService.getCurrencySales(from, from.plusDays(1), ReportBucket.HOUR);
+
+        // then
+        verify(salesRollupRepository).getMonthlyCurrencySales(from, from.plusYears(1));
+        verify(salesRollupRepository).getCurrencySales(ReportBucket.HOUR, from, from.plusDays(1));
+        verify(purchaseRepository, never()).findAll();
+    }
+
+    @Test
+    void checkConsistencyReturnsConsistentIfLedgerMatchesPurchases() {
+        // given
+        given(salesLedgerRepository.getCurrencySalesReport()).willReturn(List.of(
+                new CurrencySalesReportDto("PLN", "18.15", "4.70", 3),
+                new CurrencySalesReportDto("USD", "14.25", "2.75", 2)
+        ));
+        given(purchaseRepository.getCurrencySalesReport()).willReturn(List.of(
+                new CurrencySalesReportDto("USD", "14.25", "2.75", 2),
+                new CurrencySalesReportDto("PLN", "18.15", "4.70", 3)
+        ));
+
+        // when
+        SalesLedgerConsistencyDto consistency = salesLedgerService.checkConsistency();
+
+        // then
+        assertThat(consistency.consistent()).isTrue();
+        assertThat(consistency.mismatchedCurrencies()).isEmpty();
+    }
+
+    @Test
+    void checkConsistencyReturnsMismatchedCurrenciesIfLedgerDiffersFromPurchases() {
+        // given
+        given(salesLedgerRepository.getCurrencySalesReport()).willReturn(List.of(
+                new CurrencySalesReportDto("PLN", "18.15", "4.70", 3),
+                new CurrencySalesReportDto("USD", "14.25", "2.75", 2)
+        ));
+        given(purchaseRepository.getCurrencySalesReport()).willReturn(List.of(
+                new CurrencySalesReportDto("PLN", "23.15", "4.70", 4),
+                new CurrencySalesReportDto("USD", "14.25", "2.75", 2),
+                new CurrencySalesReportDto("EUR", "20.00", "0.00", 1)
+        ));
+
+        // when
+        SalesLedgerConsistencyDto consistency = salesLedgerService.checkConsistency();
+
+        // then
+        assertThat(consistency.consistent()).isFalse();
+        assertThat(consistency.mismatchedCurrencies()).containsExactly("EUR", "PLN");
+    }
+}
@@ -0,0 +1,166 @@
+package com.promocodes.api.purchase;
+
+import com.promocodes.api.product.Product;
+import com.promocodes.api.product.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+class SalesRollupRepositoryTest {
+
+    @Autowired
+    private SalesRollupRepository salesRollupRepository;
+    @Autowired
+    private SalesLedgerRepository salesLedgerRepository;
+    @Autowired
+    private PurchaseRepository purchaseRepository;
+    @Autowired
+    private ProductRepository productRepository;
+
+    private static final LocalDateTime NOON = LocalDateTime.of(2024, 5, 18, 12, 0);
+    private static final LocalDateTime MIDNIGHT = NOON.withHour(0);
+
+    @AfterEach
+    void tearDown() {
+        salesRollupRepository.deleteAll();
+        salesLedgerRepository.deleteAll();
+        purchaseRepository.deleteAll();
+        productRepository.deleteAll();
+    }
+
+    @Test
+    void addPurchasesIncrementsOnlyGivenHourAndDayOfGivenCurrency() {
+        // given
+        saveRollupEntry(ReportBucket.HOUR, MIDNIGHT, "PLN", 5_00);
+        saveRollupEntry(ReportBucket.HOUR, NOON, "PLN", 5_00);
+        saveRollupEntry(ReportBucket.HOUR, NOON.plusHours(1), "PLN", 5_00);
+        saveRollupEntry(ReportBucket.DAY, MIDNIGHT, "PLN", 5_00);
+        saveRollupEntry(ReportBucket.DAY, MIDNIGHT.plusDays(1), "PLN", 5_00);
+
+        // when
+        int updated = salesRollupRepository.addPurchases(NOON, MIDNIGHT, "PLN", 3_75, 1_25, 1);
+        int notUpdated = salesRollupRepository.addPurchases(NOON, MIDNIGHT, "USD", 3_75, 1_25, 1);
+
+        // then
+        assertThat(updated).isEqualTo(2);
+        assertThat(notUpdated).isEqualTo(0);
+        assertThat(salesRollupRepository.getCurrencySales(ReportBucket.HOUR, MIDNIGHT, MIDNIGHT.plusDays(1))).containsExactly(
+                new CurrencySales("PLN", MIDNIGHT, 5_00, 0, 1),
+                new CurrencySales("PLN", NOON, 8_75, 1_25, 2),
+                new CurrencySales("PLN", NOON.plusHours(1), 5_00, 0, 1)
+        );
+        assertThat(salesRollupRepository.getCurrencySales(ReportBucket.DAY, MIDNIGHT, MIDNIGHT.plusDays(2))).containsExactly(
+                new CurrencySales("PLN", MIDNIGHT, 8_75, 1_25, 2),
+                new CurrencySales("PLN", MIDNIGHT.plusDays(1), 5_00, 0, 1)
+        );
+    }
+
+    @Test
+    void addPurchasesUpdatesNothingIfOnlyOneOfBucketsIsOpen() {
+        // given
+        saveRollupEntry(ReportBucket.DAY, MIDNIGHT, "PLN", 5_00);
+
+        // when
+        int updated = salesRollupRepository.addPurchases(NOON, MIDNIGHT, "PLN", 3_75, 1_25, 1);
+
+        // then
+        assertThat(updated).isEqualTo(0);
+        assertThat(salesRollupRepository.getCurrencySales(ReportBucket.DAY, MIDNIGHT, MIDNIGHT.plusDays(1))).containsExactly(
+                new CurrencySales("PLN", MIDNIGHT, 5_00, 0, 1)
+        );
+    }
+
+    @Test
+    void insertMissingCurrencyOpensBucketOfLedgerCurrencyOnce() {
+        // given
+        salesLedgerRepository.save(new SalesLedgerEntry("PLN", 0, 0, 0));
+        salesLedgerRepository.save(new SalesLedgerEntry("EUR", 0, 0, 0));
+        saveRollupEntry(ReportBucket.HOUR, NOON, "PLN", 5_00);
+
+        // when
+        int inserted = salesRollupRepository.insertMissingCurrency(ReportBucket.HOUR.name(), NOON, "EUR");
+        int insertedAgain = salesRollupRepository.insertMissingCurrency(ReportBucket.HOUR.name(), NOON, "EUR");
+        int insertedOpen = salesRollupRepository.insertMissingCurrency(ReportBucket.HOUR.name(), NOON, "PLN");
+        int insertedWithoutLedger = salesRollupRepository.insertMissingCurrency(ReportBucket.HOUR.name(), NOON, "USD");
+
+        // then
+        assertThat(inserted).isEqualTo(1);
+        assertThat(insertedAgain).isEqualTo(0);
+        assertThat(insertedOpen).isEqualTo(0);
+        assertThat(insertedWithoutLedger).isEqualTo(0);
+        assertThat(salesRollupRepository.findAll().size()).isEqualTo(2);
+        assertThat(salesRollupRepository.getCurrencySales(ReportBucket.HOUR, NOON, NOON.plusHours(1))).containsExactly(
+                new CurrencySales("PLN", NOON, 5_00, 0, 1)
+        );
+    }
+
+    @Test
+    void rollupsBuiltFromPurchasesAreReportedByHourDayAndMonth() {
+        // given
+        Product water = saveProduct("Water", "PLN");
+        Product coffee = saveProduct("Coffee", "EUR");
+
+        savePurchase(water, 5_00, 1_25, NOON.plusMinutes(10));
+        savePurchase(water, 5_00, 0, NOON.plusMinutes(50));
+        savePurchase(water, 5_00, 0, NOON.plusHours(3));
+        savePurchase(coffee, 3_50, 0, NOON);
+        savePurchase(water, 5_00, 0, NOON.plusDays(1));
+        savePurchase(water, 5_00, 0, NOON.plusMonths(1));
+
+        // when
+        salesRollupRepository.insertHoursFromPurchases();
+        salesRollupRepository.insertDaysFromHours();
+
+        List<CurrencySales> hours = salesRollupRepository.getCurrencySales(ReportBucket.HOUR, MIDNIGHT, MIDNIGHT.plusDays(1));
+        List<CurrencySales> days = salesRollupRepository.getCurrencySales(ReportBucket.DAY, MIDNIGHT, MIDNIGHT.plusDays(7));
+        List<CurrencySales> months = salesRollupRepository.getMonthlyCurrencySales(
+                MIDNIGHT.withDayOfMonth(1), MIDNIGHT.withDayOfMonth(1).plusMonths(2));
+
+        // then
+        assertThat(hours).containsExactly(
+                new CurrencySales("EUR", NOON, 3_50, 0, 1),
+                new CurrencySales("PLN", NOON, 8_75, 1_25, 2),
+                new CurrencySales("PLN", NOON.plusHours(3), 5_00, 0, 1)
+        );
+        assertThat(days).containsExactly(
+                new CurrencySales("EUR", MIDNIGHT, 3_50, 0, 1),
+                new CurrencySales("PLN", MIDNIGHT, 13_75, 1_25, 3),
+                new CurrencySales("PLN", MIDNIGHT.plusDays(1), 5_00, 0, 1)
+        );
+        assertThat(months).containsExactly(
+                new CurrencySales("EUR", MIDNIGHT.withDayOfMonth(1), 3_50, 0, 1),
+                new CurrencySales("PLN", MIDNIGHT.withDayOfMonth(1), 18_75, 1_25, 4),
+                new CurrencySales("PLN", MIDNIGHT.withDayOfMonth(1).plusMonths(1), 5_00, 0, 1)
+        );
+    }
+
+    private void saveRollupEntry(ReportBucket bucket, LocalDateTime start, String currency, long amount) {
+        salesRollupRepository.save(new SalesRollupEntry(bucket, start, currency, amount, 0, 1));
+    }
+
+    private Product saveProduct(String name, String currency) {
+        return productRepository.save(Product.builder()
+                .name(name)
+                .price(new BigDecimal("1.00"))
+                .currency(currency)
+                .build());
+    }
+
+    private void savePurchase(Product product, long regularPrice, long discount, LocalDateTime timestamp) {
+        purchaseRepository.save(Purchase.builder()
+                .product(product)
+                .timestamp(timestamp)
+                .regularPrice(regularPrice)
+                .discount(discount)
+                .currency(product.getCurrency())
+                .build());
+    }
+}
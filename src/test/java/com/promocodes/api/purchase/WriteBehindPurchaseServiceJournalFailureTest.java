@@ -0,0 +1,135 @@
+package com.promocodes.api.purchase;
+
+import com.promocodes.api.metrics.PromoCodeMetrics;
+import com.promocodes.api.product.PriceQuoteEngine;
+import com.promocodes.api.product.Product;
+import com.promocodes.api.product.ProductCache;
+import com.promocodes.api.product.ProductSnapshot;
+import com.promocodes.api.promocode.CodeType;
+import com.promocodes.api.promocode.PromoCode;
+import com.promocodes.api.promocode.PromoCodeCache;
+import com.promocodes.api.promocode.PromoCodeRepository;
+import com.promocodes.api.promocode.PromoCodeSnapshot;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+// The writer is mocked to fail the way it does when the journal cannot be written: after the supplier has run, with
+// the purchase handed to undo.
+@ExtendWith(MockitoExtension.class)
+class WriteBehindPurchaseServiceJournalFailureTest {
+
+    private WriteBehindPurchaseService writeBehindPurchaseService;
+
+    @Mock
+    private PurchaseWriter purchaseWriter;
+    @Mock
+    private PromoCodeRepository promoCodeRepository;
+    @Mock
+    private ProductCache productCache;
+    @Mock
+    private PromoCodeCache promoCodeCache;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final UUID productId = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        writeBehindPurchaseService = new WriteBehindPurchaseService(
+                purchaseWriter,
+                promoCodeRepository,
+                new PriceQuoteEngine(),
+                productCache,
+                promoCodeCache,
+                new PromoCodeMetrics(new SimpleMeterRegistry()),
+                new TransactionTemplate(transactionManager)
+        );
+
+        given(productCache.getProduct(productId)).willReturn(ProductSnapshot.of(Product.builder()
+                .productId(productId)
+                .name("Water")
+                .price(new BigDecimal("5.00"))
+                .currency("PLN")
+                .build()));
+        given(purchaseWriter.write(any(), any())).willAnswer(invocation -> {
+            Supplier<JournaledPurchase> purchase = invocation.getArgument(0);
+            Consumer<JournaledPurchase> undo = invocation.getArgument(1);
+
+            undo.accept(purchase.get());
+            throw new UncheckedIOException("Purchase could not be journaled", new IOException("No space left on device"));
+        });
+    }
+
+    @Test
+    void addPurchaseGivesBackPromoCodeUsageWhenPurchaseCouldNotBeJournaled() {
+        // given
+        given(promoCodeCache.getPromoCode("Summer2024")).willReturn(PromoCodeSnapshot.of(PromoCode.builder()
+                .code("Summer2024")
+                .expireDate(LocalDate.now().plusYears(2))
+                .currency("PLN")
+                .amount(new BigDecimal("1.00"))
+                .maxUsages(10)
+                .codeType(CodeType.QUANTITATIVE)
+                .build()));
+        given(promoCodeRepository.redeemPromoCode("Summer2024")).willReturn(1);
+
+        // when
+
+        // then
+        assertThatThrownBy(() -> writeBehindPurchaseService.addPurchase(productId, "Summer2024"))
+                .isInstanceOf(UncheckedIOException.class)
+                .hasMessage("Purchase could not be journaled");
+        verify(promoCodeRepository).releasePromoCode("Summer2024");
+    }
+
+    @Test
+    void addPurchaseGivesBackPromoCodeUsageWhenDiscountRoundedToZeroCouldNotBeJournaled() {
+        // given
+        given(promoCodeCache.getPromoCode("Summer2024")).willReturn(PromoCodeSnapshot.of(PromoCode.builder()
+                .code("Summer2024")
+                .expireDate(LocalDate.now().plusYears(2))
+                .currency("PLN")
+                .amount(new BigDecimal("0.25"))
+                .maxUsages(10)
+                .codeType(CodeType.PERCENTAGE)
+                .build()));
+        given(promoCodeRepository.redeemPromoCode("Summer2024")).willReturn(1);
+
+        // when
+
+        // then
+        assertThatThrownBy(() -> writeBehindPurchaseService.addPurchase(productId, "Summer2024"))
+                .isInstanceOf(UncheckedIOException.class);
+        verify(promoCodeRepository).releasePromoCode("Summer2024");
+    }
+
+    @Test
+    void addPurchaseWithoutPromoCodeGivesBackNothingWhenPurchaseCouldNotBeJournaled() {
+        // when
+
+        // then
+        assertThatThrownBy(() -> writeBehindPurchaseService.addPurchase(productId, null))
+                .isInstanceOf(UncheckedIOException.class);
+        verify(promoCodeRepository, never()).releasePromoCode(any());
+    }
+}
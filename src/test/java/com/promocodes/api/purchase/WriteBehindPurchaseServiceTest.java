@@ -0,0 +1,316 @@
+package com.promocodes.api.purchase;
+
+import com.promocodes.api.exception.TooManyRequestsException;
+import com.promocodes.api.metrics.PromoCodeMetrics;
+import com.promocodes.api.product.Product;
+import com.promocodes.api.product.ProductRepository;
+import com.promocodes.api.product.ProductService;
+import com.promocodes.api.promocode.CodeType;
+import com.promocodes.api.promocode.PromoCode;
+import com.promocodes.api.promocode.PromoCodeRepository;
+import com.promocodes.api.promocode.PromoCodeService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.doThrow;
+
+// Stopping the writer drains the queue and stores every journaled batch, which is the point where the tests look at
+// the database.
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:write-behind",
+        "promocodes.write-behind.max-attempts=2"
+})
+@ActiveProfiles("write-behind")
+class WriteBehindPurchaseServiceTest {
+
+    private static final Path JOURNAL = Path.of("target", "write-behind", UUID.randomUUID() + ".journal");
+    private static final Path DEAD_LETTERS = Path.of("target", "write-behind", UUID.randomUUID() + ".dead");
+    private static final int THREADS = 8;
+    private static final int PURCHASES = 200;
+    private static final int MAX_USAGES = 50;
+
+    @Autowired
+    private WriteBehindPurchaseService writeBehindPurchaseService;
+    @Autowired
+    private PurchaseWriter purchaseWriter;
+    @Autowired
+    private ProductService productService;
+    @Autowired
+    private PromoCodeService promoCodeService;
+    @SpyBean
+    private SalesLedgerService salesLedgerService;
+    @Autowired
+    private PurchaseRepository purchaseRepository;
+    @Autowired
+    private SalesLedgerRepository salesLedgerRepository;
+    @Autowired
+    private SalesRollupRepository salesRollupRepository;
+    @Autowired
+    private PurchaseJournalCheckpointRepository checkpointRepository;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private PromoCodeRepository promoCodeRepository;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @DynamicPropertySource
+    static void journalProperties(DynamicPropertyRegistry registry) {
+        registry.add("promocodes.write-behind.journal", JOURNAL::toString);
+        registry.add("promocodes.write-behind.dead-letter", DEAD_LETTERS::toString);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (Files.isDirectory(DEAD_LETTERS))
+            Files.delete(DEAD_LETTERS);
+
+        if (!purchaseWriter.isRunning())
+            purchaseWriter.start();
+
+        purchaseRepository.deleteAll();
+        salesLedgerRepository.deleteAll();
+        salesRollupRepository.deleteAll();
+        checkpointRepository.deleteAll();
+        promoCodeRepository.deleteAll();
+        productRepository.deleteAll();
+    }
+
+    @Test
+    void addPurchaseStoresEveryAcknowledgedPurchaseOnceWithLedgerAndPromoCodeUsages() throws Exception {
+        // given
+        Product product = addProduct();
+        PromoCode promoCode = addPromoCode(MAX_USAGES);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+
+        // when
+        for (int i = 0; i < PURCHASES; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                writeBehindPurchaseService.addPurchase(product.getProductId(), promoCode.getCode());
+                return null;
+            }));
+        }
+        start.countDown();
+
+        for (Future<?> future : futures)
+            future.get(60, TimeUnit.SECONDS);
+        executor.shutdown();
+        purchaseWriter.stop();
+
+        // then
+        List<Purchase> purchases = purchaseRepository.findAll();
+        long discountedPurchases = purchases.stream()
+                .filter(p -> p.getDiscount() > 0)
+                .count();
+
+        assertThat(promoCodeRepository.findById(promoCode.getCode()).get().getTotalUsages()).isEqualTo(MAX_USAGES);
+        assertThat(purchases.size()).isEqualTo(PURCHASES);
+        assertThat(discountedPurchases).isEqualTo(MAX_USAGES);
+        assertThat(salesLedgerService.checkConsistency().consistent()).isTrue();
+        assertThat(salesLedgerService.getCurrencySales(
+                LocalDateTime.now().minusDays(1), LocalDateTime.now().plusDays(1), ReportBucket.HOUR)
+                .stream()
+                .mapToLong(CurrencySales::noOfPurchases)
+                .sum()).isEqualTo(PURCHASES);
+    }
+
+    @Test
+    void startStoresJournaledPurchasesAfterCheckpointOnly() throws Exception {
+        // given
+        Product product = addProduct();
+        writeBehindPurchaseService.addPurchase(product.getProductId(), null);
+        purchaseWriter.stop();
+
+        long lastStored = checkpointRepository.findAll().getFirst().getLastSequence();
+
+        try (PurchaseJournal journal = new PurchaseJournal(JOURNAL)) {
+            journal.append(List.of(
+                    new JournaledPurchase(lastStored, product.getProductId(), LocalDateTime.now(), 500, 0, "PLN", null, false),
+                    new JournaledPurchase(lastStored + 1, product.getProductId(), LocalDateTime.now(), 500, 0, "PLN", null, false)
+            ));
+        }
+
+        // when
+        purchaseWriter.start();
+
+        // then
+        assertThat(purchaseRepository.count()).isEqualTo(2);
+        assertThat(checkpointRepository.findAll().getFirst().getLastSequence()).isEqualTo(lastStored + 1);
+        assertThat(salesLedgerService.checkConsistency().consistent()).isTrue();
+    }
+
+    @Test
+    void startStoresBatchThatFailedWhileStoppingTogetherWithLaterBatches() throws Exception {
+        // given
+        Product product = addProduct();
+        CountDownLatch storing = new CountDownLatch(1);
+
+        doAnswer(invocation -> {
+            storing.countDown();
+
+            while (purchaseWriter.isRunning())
+                Thread.sleep(10);
+
+            throw new IllegalStateException("Database is down");
+        }).doCallRealMethod().when(salesLedgerService).recordPurchases(anyString(), any(), anyLong(), anyLong(), anyLong());
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        Future<?> first = executor.submit(() -> writeBehindPurchaseService.addPurchase(product.getProductId(), null));
+        storing.await(10, TimeUnit.SECONDS);
+        Future<?> second = executor.submit(() -> writeBehindPurchaseService.addPurchase(product.getProductId(), null));
+
+        while (meterRegistry.get(PromoCodeMetrics.PURCHASES_QUEUED).gauge().value() < 1)
+            Thread.sleep(10);
+
+        purchaseWriter.stop();
+        first.get(10, TimeUnit.SECONDS);
+        second.get(10, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        // when
+        purchaseWriter.start();
+
+        // then
+        assertThat(purchaseRepository.count()).isEqualTo(2);
+        assertThat(salesLedgerService.checkConsistency().consistent()).isTrue();
+    }
+
+    @Test
+    void batchThatKeepsFailingIsMovedToDeadLettersAndStoredOnNextStart() throws Exception {
+        // given
+        Product product = addProduct();
+        PromoCode promoCode = addPromoCode(MAX_USAGES);
+
+        doThrow(new IllegalStateException("Broken purchase"))
+                .when(salesLedgerService).recordPurchases(anyString(), any(), anyLong(), anyLong(), anyLong());
+
+        writeBehindPurchaseService.addPurchase(product.getProductId(), promoCode.getCode());
+
+        while (meterRegistry.get(PromoCodeMetrics.PURCHASES_DEAD_LETTERED).counter().count() < 1)
+            Thread.sleep(10);
+
+        doCallRealMethod()
+                .when(salesLedgerService).recordPurchases(anyString(), any(), anyLong(), anyLong(), anyLong());
+        purchaseWriter.stop();
+
+        // when
+        purchaseWriter.start();
+        writeBehindPurchaseService.addPurchase(product.getProductId(), null);
+        purchaseWriter.stop();
+
+        // then
+        List<JournaledPurchase> deadLetters;
+
+        try (PurchaseJournal journal = new PurchaseJournal(DEAD_LETTERS)) {
+            deadLetters = journal.replay();
+        }
+
+        assertThat(deadLetters).isEmpty();
+        assertThat(purchaseRepository.count()).isEqualTo(2);
+        assertThat(purchaseRepository.findAll())
+                .filteredOn(p -> promoCode.getCode().equals(p.getCode()))
+                .hasSize(1);
+        assertThat(promoCodeRepository.findById(promoCode.getCode()).get().getTotalUsages()).isEqualTo(1);
+        assertThat(salesLedgerService.checkConsistency().consistent()).isTrue();
+    }
+
+    @Test
+    void writerThatCanNeitherStoreNorDeadLetterBatchIsDownAndRejectsPurchasesUntilBatchIsStored() throws Exception {
+        // given
+        Product product = addProduct();
+        PromoCode promoCode = addPromoCode(MAX_USAGES);
+
+        doThrow(new IllegalStateException("Database is down"))
+                .when(salesLedgerService).recordPurchases(anyString(), any(), anyLong(), anyLong(), anyLong());
+        Files.delete(DEAD_LETTERS);
+        Files.createDirectory(DEAD_LETTERS);
+
+        writeBehindPurchaseService.addPurchase(product.getProductId(), null);
+
+        while (purchaseWriter.health().getStatus().equals(Status.UP))
+            Thread.sleep(10);
+
+        // when
+
+        // then
+        assertThatThrownBy(() -> writeBehindPurchaseService.addPurchase(product.getProductId(), promoCode.getCode()))
+                .isInstanceOf(TooManyRequestsException.class)
+                .hasMessage("Purchases cannot be stored at the moment, try again later");
+        assertThat(promoCodeRepository.findById(promoCode.getCode()).get().getTotalUsages()).isZero();
+
+        doCallRealMethod()
+                .when(salesLedgerService).recordPurchases(anyString(), any(), anyLong(), anyLong(), anyLong());
+
+        while (purchaseWriter.health().getStatus().equals(Status.DOWN))
+            Thread.sleep(10);
+
+        purchaseWriter.stop();
+
+        assertThat(purchaseRepository.count()).isEqualTo(1);
+        assertThat(salesLedgerService.checkConsistency().consistent()).isTrue();
+    }
+
+    @Test
+    void addPurchaseIsRejectedWithoutRedeemingPromoCodeWhenWriterTakesNoMorePurchases() {
+        // given
+        Product product = addProduct();
+        PromoCode promoCode = addPromoCode(MAX_USAGES);
+        purchaseWriter.stop();
+
+        // when
+
+        // then
+        assertThatThrownBy(() -> writeBehindPurchaseService.addPurchase(product.getProductId(), promoCode.getCode()))
+                .isInstanceOf(TooManyRequestsException.class)
+                .hasMessage("Too many purchases are waiting to be written, try again later");
+        assertThat(promoCodeRepository.findById(promoCode.getCode()).get().getTotalUsages()).isZero();
+        assertThat(purchaseRepository.count()).isZero();
+    }
+
+    private Product addProduct() {
+        return productService.addProduct(Product.builder()
+                .name("Water")
+                .price(new BigDecimal("5.00"))
+                .currency("PLN")
+                .build());
+    }
+
+    private PromoCode addPromoCode(int maxUsages) {
+        return promoCodeService.addPromoCode(PromoCode.builder()
+                .code("Summer2024")
+                .expireDate(LocalDate.now().plusYears(2))
+                .currency("PLN")
+                .amount(new BigDecimal("1.00"))
+                .maxUsages(maxUsages)
+                .totalUsages(0)
+                .codeType(CodeType.QUANTITATIVE)
+                .build());
+    }
+}
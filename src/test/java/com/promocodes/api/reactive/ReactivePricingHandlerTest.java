@@ -0,0 +1,194 @@
+package com.promocodes.api.reactive;
+
+import com.promocodes.api.product.Product;
+import com.promocodes.api.product.ProductRepository;
+import com.promocodes.api.product.ProductService;
+import com.promocodes.api.product.dto.ProductDtoMapper;
+import com.promocodes.api.promocode.CodeType;
+import com.promocodes.api.promocode.PromoCode;
+import com.promocodes.api.promocode.PromoCodeRepository;
+import com.promocodes.api.promocode.PromoCodeService;
+import com.promocodes.api.purchase.CurrencySales;
+import com.promocodes.api.purchase.PurchaseRepository;
+import com.promocodes.api.purchase.ReportBucket;
+import com.promocodes.api.purchase.SalesLedgerRepository;
+import com.promocodes.api.purchase.SalesLedgerService;
+import com.promocodes.api.purchase.SalesRollupRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {
+                "spring.datasource.url=jdbc:h2:mem:reactive",
+                "promocodes.reactive.r2dbc-url=r2dbc:h2:mem:///reactive"
+        }
+)
+@ActiveProfiles("reactive")
+class ReactivePricingHandlerTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+    @Autowired
+    private ProductService productService;
+    @Autowired
+    private PromoCodeService promoCodeService;
+    @Autowired
+    private SalesLedgerService salesLedgerService;
+    @Autowired
+    private PurchaseRepository purchaseRepository;
+    @Autowired
+    private SalesLedgerRepository salesLedgerRepository;
+    @Autowired
+    private SalesRollupRepository salesRollupRepository;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private PromoCodeRepository promoCodeRepository;
+
+    @AfterEach
+    void tearDown() {
+        purchaseRepository.deleteAll();
+        salesLedgerRepository.deleteAll();
+        salesRollupRepository.deleteAll();
+        promoCodeRepository.deleteAll();
+        productRepository.deleteAll();
+    }
+
+    @Test
+    void getProductDiscountPriceGivesSameAnswersAsServletStack() {
+        // given
+        Product product = addProduct("Water", "3.75", "PLN");
+        addPromoCode("PERCENT20", "20.00", "PLN", CodeType.PERCENTAGE, LocalDate.now().plusDays(10), 5);
+        addPromoCode("EURO1", "1.00", "EUR", CodeType.QUANTITATIVE, LocalDate.now().plusDays(10), 5);
+        addPromoCode("EXPIRED", "1.00", "PLN", CodeType.QUANTITATIVE, LocalDate.now().minusDays(1), 5);
+        addPromoCode("USEDUP", "1.00", "PLN", CodeType.QUANTITATIVE, LocalDate.now().plusDays(10), 0);
+
+        for (String code : new String[]{"PERCENT20", "EURO1", "EXPIRED", "USEDUP"}) {
+            // when
+            Map<String, String> reactive = webTestClient.get()
+                    .uri("/api/products/{id}?code={code}", product.getProductId(), code)
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBody(new ParameterizedTypeReference<Map<String, String>>() {})
+                    .returnResult()
+                    .getResponseBody();
+
+            // then
+            assertThat(reactive).isEqualTo(ProductDtoMapper.mapPriceQuoteToDiscountPriceMap(
+                    productService.getProductDiscountPrice(product.getProductId(), code)));
+        }
+    }
+
+    @Test
+    void addPurchaseRedeemsPromoCodeAtMostMaxUsagesTimesAndUpdatesLedger() {
+        // given
+        int purchases = 50;
+        Product product = addProduct("Water", "5.00", "PLN");
+        addPromoCode("SUMMER", "1.50", "PLN", CodeType.QUANTITATIVE, LocalDate.now().plusDays(10), 20);
+
+        // when
+        Flux.range(0, purchases)
+                .flatMap(i -> webTestClient.post()
+                        .uri("/api/purchases?productId={id}&code=SUMMER", product.getProductId())
+                        .exchange()
+                        .returnResult(Void.class)
+                        .getResponseBody()
+                        .then(), 16)
+                .blockLast();
+
+        // then
+        assertThat(purchaseRepository.count()).isEqualTo(purchases);
+        assertThat(promoCodeRepository.getTotalUsages("SUMMER")).isEqualTo(20);
+        assertThat(salesLedgerService.getCurrencySalesReport().get(0).totalDiscount()).isEqualTo("30.00");
+        assertThat(salesLedgerService.getCurrencySalesReport().get(0).totalAmount()).isEqualTo("220.00");
+        assertThat(salesLedgerService.checkConsistency().consistent()).isTrue();
+        assertThat(salesLedgerService.getCurrencySales(
+                LocalDate.now().minusDays(1).atStartOfDay(), LocalDate.now().plusDays(1).atStartOfDay(), ReportBucket.DAY)
+                .stream()
+                .mapToLong(CurrencySales::totalAmount)
+                .sum()).isEqualTo(220_00);
+        assertThat(salesLedgerService.getCurrencySales(
+                LocalDate.now().minusDays(1).atStartOfDay(), LocalDate.now().plusDays(1).atStartOfDay(), ReportBucket.HOUR)
+                .stream()
+                .mapToLong(CurrencySales::noOfPurchases)
+                .sum()).isEqualTo(purchases);
+    }
+
+    @Test
+    void addPurchaseReturnsCreatedWithoutPromoCode() {
+        // given
+        Product product = addProduct("Water", "5.00", "PLN");
+
+        // when then
+        webTestClient.post()
+                .uri("/api/purchases?productId={id}", product.getProductId())
+                .exchange()
+                .expectStatus().isCreated();
+
+        assertThat(purchaseRepository.count()).isEqualTo(1);
+    }
+
+    @Test
+    void unknownProductOrPromoCodeReturnsProblemDetail() {
+        // given
+        Product product = addProduct("Water", "5.00", "PLN");
+        UUID unknownId = UUID.randomUUID();
+
+        // when then
+        webTestClient.post()
+                .uri("/api/purchases?productId={id}", unknownId)
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.NOT_FOUND)
+                .expectBody()
+                .jsonPath("$.title").isEqualTo("Not Found")
+                .jsonPath("$.detail").isEqualTo("Product with id = " + unknownId + " does not exist");
+
+        webTestClient.get()
+                .uri("/api/products/{id}?code=UNKNOWN", product.getProductId())
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.NOT_FOUND)
+                .expectBody()
+                .jsonPath("$.detail").isEqualTo("Promo code: 'UNKNOWN' does not exists");
+
+        webTestClient.post()
+                .uri("/api/purchases?productId=not-a-uuid")
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        assertThat(purchaseRepository.count()).isZero();
+    }
+
+    private Product addProduct(String name, String price, String currency) {
+        return productService.addProduct(Product.builder()
+                .name(name)
+                .price(new BigDecimal(price))
+                .currency(currency)
+                .build());
+    }
+
+    private void addPromoCode(String code, String amount, String currency, CodeType codeType, LocalDate expireDate, long maxUsages) {
+        promoCodeService.addPromoCode(PromoCode.builder()
+                .code(code)
+                .amount(new BigDecimal(amount))
+                .currency(currency)
+                .codeType(codeType)
+                .expireDate(expireDate)
+                .maxUsages(maxUsages)
+                .build());
+    }
+}
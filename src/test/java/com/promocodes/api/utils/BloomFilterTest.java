@@ -0,0 +1,55 @@
+package com.promocodes.api.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BloomFilterTest {
+
+    private static final int CODES = 100_000;
+
+    @Test
+    void mightContainIsTrueForEveryAddedValue() {
+        // given
+        BloomFilter filter = new BloomFilter(CODES, 0.01);
+
+        // when
+        for (int i = 0; i < CODES; i++)
+            filter.add("CODE" + i);
+
+        // then
+        for (int i = 0; i < CODES; i++)
+            assertThat(filter.mightContain("CODE" + i)).isTrue();
+    }
+
+    @Test
+    void mightContainIsFalseForAlmostAllValuesNotAddedAtExpectedSize() {
+        // given
+        BloomFilter filter = new BloomFilter(CODES, 0.01);
+
+        for (int i = 0; i < CODES; i++)
+            filter.add("CODE" + i);
+
+        // when
+        int falsePositives = 0;
+
+        for (int i = CODES; i < 2 * CODES; i++)
+            if (filter.mightContain("CODE" + i))
+                falsePositives++;
+
+        // then
+        assertThat((double) falsePositives / CODES).isLessThan(0.015);
+    }
+
+    @Test
+    void emptyFilterContainsNothing() {
+        // given
+        BloomFilter filter = new BloomFilter(0, 0.01);
+
+        // when
+        boolean contains = filter.mightContain("Summer2024");
+
+        // then
+        assertThat(contains).isFalse();
+    }
+}
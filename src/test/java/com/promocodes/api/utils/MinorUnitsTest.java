@@ -0,0 +1,96 @@
+package com.promocodes.api.utils;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MinorUnitsTest {
+
+    @Test
+    void ofAndToBigDecimalRoundTripAmountsWithTwoDecimalPoints() {
+        // given
+        Random random = new Random(42);
+
+        for (int i = 0; i < 100_000; i++) {
+            BigDecimal amount = BigDecimal.valueOf(random.nextLong(), 2);
+
+            // when
+            long minorUnits = MinorUnits.of(amount);
+
+            // then
+            assertThat(MinorUnits.toBigDecimal(minorUnits)).isEqualTo(amount);
+            assertThat(MoneyFormatter.format(minorUnits)).isEqualTo(MoneyFormatter.format(amount));
+        }
+
+        assertThat(MinorUnits.of(new BigDecimal("12.5"))).isEqualTo(1250);
+        assertThat(MinorUnits.of(new BigDecimal("3"))).isEqualTo(300);
+    }
+
+    @Test
+    void ofRejectsAmountsThatDoNotFit() {
+        assertThat(MinorUnits.fits(new BigDecimal("0.01"))).isTrue();
+        assertThat(MinorUnits.fits(new BigDecimal("1.500"))).isTrue();
+        assertThat(MinorUnits.fits(new BigDecimal("1E+3"))).isTrue();
+        assertThat(MinorUnits.fits(MinorUnits.MAX)).isTrue();
+        assertThat(MinorUnits.fits(new BigDecimal("0.005"))).isFalse();
+        assertThat(MinorUnits.fits(MinorUnits.MAX.add(new BigDecimal("0.01")))).isFalse();
+
+        assertThatThrownBy(() -> MinorUnits.of(new BigDecimal("0.005"))).isInstanceOf(ArithmeticException.class);
+        assertThatThrownBy(() -> MinorUnits.of(new BigDecimal("92233720368547758.08"))).isInstanceOf(ArithmeticException.class);
+    }
+
+    @Test
+    void totalOfLargestPurchaseBatchAtMaxAmountDoesNotOverflow() {
+        // given
+        long max = MinorUnits.of(MinorUnits.MAX);
+        long total = 0;
+
+        // when
+        for (int i = 0; i < 10_000; i++)
+            total = Math.addExact(total, max);
+
+        // then
+        assertThat(MinorUnits.toBigDecimal(total)).isEqualTo(MinorUnits.MAX.multiply(BigDecimal.valueOf(10_000)));
+        assertThat(Long.MAX_VALUE / max).isGreaterThan(1_000_000);
+    }
+
+    @Test
+    void migrationConvertsDecimalColumnsToMinorUnits() {
+        // given
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:money-migration;DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE product (product_id UUID PRIMARY KEY, price NUMERIC(38,2) NOT NULL, currency VARCHAR(255))");
+        jdbcTemplate.execute("CREATE TABLE promo_code (code VARCHAR(255) PRIMARY KEY, amount NUMERIC(38,2) NOT NULL)");
+        jdbcTemplate.execute("CREATE TABLE purchase (purchase_id UUID PRIMARY KEY, regular_price NUMERIC(38,2) NOT NULL, " +
+                "discount NUMERIC(38,2) NOT NULL)");
+        jdbcTemplate.execute("CREATE TABLE sales_ledger_entry (currency VARCHAR(255) PRIMARY KEY, " +
+                "total_amount NUMERIC(38,2) NOT NULL, total_discount NUMERIC(38,2) NOT NULL, no_of_purchases BIGINT)");
+        jdbcTemplate.update("INSERT INTO product VALUES (RANDOM_UUID(), 9.99, 'PLN')");
+        jdbcTemplate.update("INSERT INTO promo_code VALUES ('Summer2024', 12.50)");
+        jdbcTemplate.update("INSERT INTO purchase VALUES (RANDOM_UUID(), 9.99, 1.25)");
+        jdbcTemplate.update("INSERT INTO sales_ledger_entry VALUES ('PLN', 92233720368547758.07, 0.00, 1)");
+
+        // when
+        new ResourceDatabasePopulator(new ClassPathResource("db/money-minor-units.sql")).execute(dataSource);
+
+        // then
+        assertThat(jdbcTemplate.queryForList("SELECT price FROM product", Long.class)).isEqualTo(List.of(999L));
+        assertThat(jdbcTemplate.queryForList("SELECT amount FROM promo_code", Long.class)).isEqualTo(List.of(1250L));
+        assertThat(jdbcTemplate.queryForMap("SELECT regular_price, discount FROM purchase"))
+                .isEqualTo(Map.of("REGULAR_PRICE", 999L, "DISCOUNT", 125L));
+        assertThat(jdbcTemplate.queryForMap("SELECT total_amount, total_discount FROM sales_ledger_entry"))
+                .isEqualTo(Map.of("TOTAL_AMOUNT", Long.MAX_VALUE, "TOTAL_DISCOUNT", 0L));
+
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+    }
+}
@@ -0,0 +1,73 @@
+package com.promocodes.api.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MoneyFormatterTest {
+
+    @Test
+    void formatRoundsToTwoDecimalPointsHalfUp() {
+        assertThat(MoneyFormatter.format(new BigDecimal("3.75"))).isEqualTo("3.75");
+        assertThat(MoneyFormatter.format(new BigDecimal("3.7"))).isEqualTo("3.70");
+        assertThat(MoneyFormatter.format(new BigDecimal("3"))).isEqualTo("3.00");
+        assertThat(MoneyFormatter.format(new BigDecimal("3.125"))).isEqualTo("3.13");
+        assertThat(MoneyFormatter.format(new BigDecimal("3.124999"))).isEqualTo("3.12");
+        assertThat(MoneyFormatter.format(new BigDecimal("0.005"))).isEqualTo("0.01");
+        assertThat(MoneyFormatter.format(new BigDecimal("0.004"))).isEqualTo("0.00");
+        assertThat(MoneyFormatter.format(BigDecimal.ZERO)).isEqualTo("0.00");
+        assertThat(MoneyFormatter.format(new BigDecimal("1E+3"))).isEqualTo("1000.00");
+    }
+
+    @Test
+    void formatHandlesNegativeAndVeryLargeAmounts() {
+        assertThat(MoneyFormatter.format(new BigDecimal("-1.5"))).isEqualTo("-1.50");
+        assertThat(MoneyFormatter.format(new BigDecimal("-0.07"))).isEqualTo("-0.07");
+        assertThat(MoneyFormatter.format(new BigDecimal("92233720368547758.07"))).isEqualTo("92233720368547758.07");
+        assertThat(MoneyFormatter.format(new BigDecimal("-92233720368547758.08"))).isEqualTo("-92233720368547758.08");
+        assertThat(MoneyFormatter.format(new BigDecimal("123456789012345678901234567890.555")))
+                .isEqualTo("123456789012345678901234567890.56");
+    }
+
+    @Test
+    void formatGivesSameResultsWhenCalledFromManyThreads() throws Exception {
+        // given
+        int threads = 16;
+        int amountsPerThread = 20_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Long>> futures = new ArrayList<>();
+
+        // when
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long mismatches = 0;
+                start.await();
+
+                for (int i = 0; i < amountsPerThread; i++) {
+                    BigDecimal amount = BigDecimal.valueOf(random.nextLong(-10_000_000_000L, 10_000_000_000L), random.nextInt(0, 5));
+
+                    if (!MoneyFormatter.format(amount).equals(amount.setScale(2, RoundingMode.HALF_UP).toPlainString()))
+                        mismatches++;
+                }
+                return mismatches;
+            }));
+        }
+        start.countDown();
+
+        long mismatches = 0;
+        for (Future<Long> future : futures)
+            mismatches += future.get(60, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        // then
+        assertThat(mismatches).isZero();
+    }
+}